@@ -3,6 +3,7 @@ package com.loveyue.auth;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 /**
@@ -10,9 +11,10 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
  * @Date 2025/7/31
  * @Author LoveYue
  */
-@SpringBootApplication
+@SpringBootApplication(scanBasePackages = "com.loveyue")
 @EnableDiscoveryClient
 @EnableTransactionManagement
+@EnableScheduling
 public class AuthApplication {
     public static void main(String[] args) {
         SpringApplication.run(AuthApplication.class, args);
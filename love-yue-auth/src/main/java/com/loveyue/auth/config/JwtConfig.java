@@ -0,0 +1,34 @@
+package com.loveyue.auth.config;
+
+import cn.hutool.core.util.StrUtil;
+import com.loveyue.common.security.PermissionDictionary;
+import com.loveyue.common.security.PermissionRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @Description: JWT相关配置
+ * @Date 2025/8/6
+ * @Author LoveYue
+ */
+@Configuration
+public class JwtConfig {
+
+    /**
+     * 精简令牌使用的权限字典，配置项中的顺序即权限下标，只能在末尾追加
+     */
+    @Bean
+    public PermissionDictionary permissionDictionary(
+            @Value("${jwt.compact-claims.permission-dictionary:}") String permissionDictionary) {
+        return new PermissionDictionary(StrUtil.splitTrim(permissionDictionary, ','));
+    }
+
+    /**
+     * 权限注册表，以权限字典初始化，精简令牌的权限位图可直接转换为权限集合
+     */
+    @Bean
+    public PermissionRegistry permissionRegistry(PermissionDictionary permissionDictionary) {
+        return new PermissionRegistry(permissionDictionary);
+    }
+}
@@ -0,0 +1,25 @@
+package com.loveyue.auth.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * @Description: Redis相关配置
+ * @Date 2025/8/9
+ * @Author LoveYue
+ */
+@Configuration
+public class RedisConfig {
+
+    /**
+     * Redis消息监听容器，用于接收用户缓存失效等跨节点通知
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+}
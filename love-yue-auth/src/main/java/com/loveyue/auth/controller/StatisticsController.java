@@ -0,0 +1,56 @@
+package com.loveyue.auth.controller;
+
+import com.loveyue.auth.dto.UserRetentionDTO;
+import com.loveyue.auth.dto.UserStatisticsDTO;
+import com.loveyue.auth.service.UserStatisticsService;
+import com.loveyue.common.constant.AuthConstants;
+import com.loveyue.common.controller.BaseController;
+import com.loveyue.common.response.ObjectResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * @Description: 用户统计控制器
+ * @Date 2025/8/14
+ * @Author LoveYue
+ */
+@RestController
+@RequestMapping(AuthConstants.AUTH_API_BASE_PATH)
+@Tag(name = "用户统计", description = "在线用户、活跃用户和留存统计接口")
+public class StatisticsController extends BaseController {
+
+    private final UserStatisticsService userStatisticsService;
+
+    public StatisticsController(UserStatisticsService userStatisticsService) {
+        this.userStatisticsService = userStatisticsService;
+    }
+
+    /**
+     * 获取在线用户数、当日和当前小时活跃用户数以及当日登录次数
+     *
+     * @return 统计概览
+     */
+    @GetMapping(AuthConstants.STATS_API_PATH)
+    @Operation(summary = "获取用户统计概览")
+    public ObjectResponse<UserStatisticsDTO> getOverview() {
+        return success(userStatisticsService.getOverview());
+    }
+
+    /**
+     * 获取指定日期活跃用户在若干天后的留存情况
+     *
+     * @param date 基准日期（格式：yyyy-MM-dd）
+     * @param days 间隔天数
+     * @return 留存统计
+     */
+    @GetMapping(AuthConstants.STATS_RETENTION_API_PATH)
+    @Operation(summary = "获取用户留存统计")
+    public ObjectResponse<UserRetentionDTO> getRetention(@RequestParam String date,
+                                                         @RequestParam(defaultValue = "1") int days) {
+        return success(userStatisticsService.getRetention(date, days));
+    }
+}
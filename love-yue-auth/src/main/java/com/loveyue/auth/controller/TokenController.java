@@ -0,0 +1,84 @@
+package com.loveyue.auth.controller;
+
+import com.loveyue.auth.dto.BatchTokenValidateDTO;
+import com.loveyue.auth.dto.BatchTokenValidateResultDTO;
+import com.loveyue.auth.dto.TokenIntrospectionDTO;
+import com.loveyue.auth.service.TokenService;
+import com.loveyue.common.constant.AuthConstants;
+import com.loveyue.common.controller.BaseController;
+import com.loveyue.common.response.ObjectResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Description: 令牌控制器
+ * @Date 2025/8/4
+ * @Author LoveYue
+ */
+@RestController
+@RequestMapping(AuthConstants.AUTH_API_BASE_PATH)
+@Tag(name = "令牌管理", description = "令牌校验相关接口")
+public class TokenController extends BaseController {
+
+    private final TokenService tokenService;
+
+    public TokenController(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    /**
+     * 批量校验令牌，供网关和批处理任务使用
+     *
+     * @param batchTokenValidateDTO 待校验的令牌列表
+     * @return 每个令牌的校验结果
+     */
+    @PostMapping(AuthConstants.BATCH_VALIDATE_TOKEN_API_PATH)
+    @Operation(summary = "批量校验令牌")
+    public ObjectResponse<BatchTokenValidateResultDTO> validateTokens(
+            @Valid @RequestBody BatchTokenValidateDTO batchTokenValidateDTO) {
+        return success(tokenService.validateTokens(batchTokenValidateDTO.getTokens()));
+    }
+
+    /**
+     * 令牌内省（RFC 7662），供无法内嵌JwtUtil的服务校验令牌。
+     * 响应携带ETag和Cache-Control，客户端可在有效期内复用结果，或通过If-None-Match获取304响应。
+     *
+     * @param token         待内省的令牌
+     * @param tokenTypeHint 令牌类型提示，仅为兼容RFC 7662，不影响校验
+     * @param ifNoneMatch   客户端缓存的实体标签
+     * @return 内省结果
+     */
+    @PostMapping(value = AuthConstants.INTROSPECT_TOKEN_API_PATH, consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    @Operation(summary = "令牌内省")
+    public ResponseEntity<TokenIntrospectionDTO> introspect(
+            @RequestParam("token") String token,
+            @RequestParam(value = "token_type_hint", required = false) String tokenTypeHint,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        TokenIntrospectionDTO introspection = tokenService.introspect(token);
+
+        CacheControl cacheControl = introspection.getMaxAgeSeconds() > 0
+                ? CacheControl.maxAge(introspection.getMaxAgeSeconds(), TimeUnit.SECONDS).cachePrivate()
+                : CacheControl.noStore();
+
+        if (introspection.getEtag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(introspection.getEtag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+
+        return ResponseEntity.ok()
+                .eTag(introspection.getEtag())
+                .cacheControl(cacheControl)
+                .body(introspection);
+    }
+}
@@ -0,0 +1,22 @@
+package com.loveyue.auth.dto;
+
+import com.loveyue.common.constant.AuthConstants;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * @Description: 批量令牌校验请求DTO
+ * @Date 2025/8/4
+ * @Author LoveYue
+ */
+@Data
+public class BatchTokenValidateDTO {
+    @NotEmpty(message = "令牌列表不能为空")
+    @Size(max = AuthConstants.MAX_BATCH_VALIDATE_TOKENS, message = "单次最多校验" + AuthConstants.MAX_BATCH_VALIDATE_TOKENS + "个令牌")
+    @Schema(description = "待校验的令牌列表")
+    private List<String> tokens;
+}
@@ -0,0 +1,35 @@
+package com.loveyue.auth.dto;
+
+import com.loveyue.common.dto.BaseDTO;
+import com.loveyue.common.security.TokenValidationResult;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serial;
+import java.util.List;
+
+/**
+ * @Description: 批量令牌校验结果DTO
+ * @Date 2025/8/4
+ * @Author LoveYue
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@Schema(description = "批量令牌校验结果")
+public class BatchTokenValidateResultDTO extends BaseDTO {
+    @Serial
+    private static final long serialVersionUID = 4871196470528330263L;
+
+    @Schema(description = "令牌总数")
+    private int total;
+
+    @Schema(description = "有效令牌数")
+    private int validCount;
+
+    @Schema(description = "无效令牌数")
+    private int invalidCount;
+
+    @Schema(description = "校验结果，与请求顺序一致")
+    private List<TokenValidationResult> results;
+}
@@ -0,0 +1,40 @@
+package com.loveyue.auth.dto;
+
+import com.loveyue.common.dto.BaseDTO;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serial;
+import java.util.Date;
+
+/**
+ * @Description: 登录失败计数与锁定状态DTO
+ * @Date 2025/8/13
+ * @Author LoveYue
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class LoginLockoutStateDTO extends BaseDTO {
+    @Serial
+    private static final long serialVersionUID = 6120385517730904863L;
+
+    @Schema(name = "用户ID")
+    private Long userId;
+
+    @Schema(name = "用户名")
+    private String username;
+
+    @Schema(name = "当前窗口内的登录失败次数")
+    private Integer failedLoginAttempts;
+
+    @Schema(name = "锁定截止时间，未锁定时为空")
+    private Date lockedUntil;
+
+    /**
+     * 是否处于锁定状态
+     */
+    public boolean isLocked() {
+        return lockedUntil != null && lockedUntil.after(new Date());
+    }
+}
@@ -0,0 +1,30 @@
+package com.loveyue.auth.dto;
+
+import com.loveyue.common.dto.BaseDTO;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serial;
+import java.util.Date;
+
+/**
+ * @Description: 刷新令牌使用记录合并结果DTO，一个刷新周期内同一令牌的多次使用合并为一条
+ * @Date 2025/8/20
+ * @Author LoveYue
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class RefreshTokenUsageDTO extends BaseDTO {
+    @Serial
+    private static final long serialVersionUID = -2871650233459180417L;
+
+    @Schema(name = "刷新令牌ID")
+    private Long tokenId;
+
+    @Schema(name = "周期内最后一次使用时间")
+    private Date lastUsedAt;
+
+    @Schema(name = "周期内新增的使用次数")
+    private Integer useCountDelta;
+}
@@ -0,0 +1,30 @@
+package com.loveyue.auth.dto;
+
+import com.loveyue.common.dto.BaseDTO;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serial;
+import java.util.Date;
+
+/**
+ * @Description: SSO会话活动合并结果DTO，一个刷新周期内同一会话的多次访问合并为一条
+ * @Date 2025/8/17
+ * @Author LoveYue
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class SessionActivityDTO extends BaseDTO {
+    @Serial
+    private static final long serialVersionUID = 3307415625518826390L;
+
+    @Schema(name = "会话ID")
+    private Long sessionId;
+
+    @Schema(name = "周期内最后一次活动时间")
+    private Date lastActivityTime;
+
+    @Schema(name = "周期内新增的访问次数")
+    private Integer accessCountDelta;
+}
@@ -0,0 +1,36 @@
+package com.loveyue.auth.dto;
+
+import com.loveyue.common.dto.BaseDTO;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serial;
+import java.util.Date;
+
+/**
+ * @Description: SSO会话到期信息DTO，会话到期引擎只保存判断过期和非活跃所需的字段
+ * @Date 2025/8/18
+ * @Author LoveYue
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class SessionDeadlineDTO extends BaseDTO {
+    @Serial
+    private static final long serialVersionUID = -2915376602417253844L;
+
+    @Schema(name = "会话ID")
+    private Long sessionId;
+
+    @Schema(name = "用户ID")
+    private Long userId;
+
+    @Schema(name = "会话过期时间")
+    private Date expiresAt;
+
+    @Schema(name = "数据库中的最后活动时间")
+    private Date lastActivityTime;
+
+    @Schema(name = "最大非活动间隔（秒）")
+    private Integer maxInactiveInterval;
+}
@@ -0,0 +1,68 @@
+package com.loveyue.auth.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * @Description: 令牌内省响应DTO，字段遵循RFC 7662
+ * @Date 2025/8/7
+ * @Author LoveYue
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TokenIntrospectionDTO {
+    @Schema(description = "令牌是否有效")
+    private boolean active;
+
+    @Schema(description = "令牌作用域（权限列表，空格分隔）")
+    private String scope;
+
+    @Schema(description = "用户名")
+    private String username;
+
+    @JsonProperty("token_type")
+    @Schema(description = "令牌类型")
+    private String tokenType;
+
+    @Schema(description = "过期时间（秒级时间戳）")
+    private Long exp;
+
+    @Schema(description = "签发时间（秒级时间戳）")
+    private Long iat;
+
+    @Schema(description = "主体（用户ID）")
+    private String sub;
+
+    @Schema(description = "受众")
+    private String aud;
+
+    @Schema(description = "签发者")
+    private String iss;
+
+    @Schema(description = "令牌ID")
+    private String jti;
+
+    @Schema(description = "角色列表")
+    private List<String> roles;
+
+    @JsonProperty("session_id")
+    @Schema(description = "会话ID")
+    private String sessionId;
+
+    /**
+     * 响应实体标签，用于ETag和条件请求，不参与序列化
+     */
+    @JsonIgnore
+    private String etag;
+
+    /**
+     * 响应可被缓存的秒数，不参与序列化
+     */
+    @JsonIgnore
+    private long maxAgeSeconds;
+}
@@ -0,0 +1,35 @@
+package com.loveyue.auth.dto;
+
+import com.loveyue.common.dto.BaseDTO;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serial;
+
+/**
+ * @Description: 用户留存统计DTO
+ * @Date 2025/8/14
+ * @Author LoveYue
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class UserRetentionDTO extends BaseDTO {
+    @Serial
+    private static final long serialVersionUID = -4186532907342719548L;
+
+    @Schema(name = "基准日期")
+    private String date;
+
+    @Schema(name = "间隔天数")
+    private Integer days;
+
+    @Schema(name = "基准日活跃用户数")
+    private Long baseUsers;
+
+    @Schema(name = "间隔天数后仍活跃的用户数")
+    private Long retainedUsers;
+
+    @Schema(name = "留存率")
+    private Double retentionRate;
+}
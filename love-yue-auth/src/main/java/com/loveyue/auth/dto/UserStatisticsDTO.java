@@ -0,0 +1,36 @@
+package com.loveyue.auth.dto;
+
+import com.loveyue.common.dto.BaseDTO;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serial;
+import java.util.Map;
+
+/**
+ * @Description: 用户统计概览DTO
+ * @Date 2025/8/14
+ * @Author LoveYue
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class UserStatisticsDTO extends BaseDTO {
+    @Serial
+    private static final long serialVersionUID = 2749130586215846731L;
+
+    @Schema(name = "统计日期")
+    private String date;
+
+    @Schema(name = "在线用户数（近似值）")
+    private Long onlineUsers;
+
+    @Schema(name = "当日活跃用户数（近似值）")
+    private Long dailyActiveUsers;
+
+    @Schema(name = "当前小时活跃用户数（近似值）")
+    private Long hourlyActiveUsers;
+
+    @Schema(name = "当日各登录结果次数")
+    private Map<String, Long> loginCounts;
+}
@@ -22,7 +22,7 @@ import java.util.Date;
 @EqualsAndHashCode(callSuper = true)
 @Entity
 @Table(name = "refresh_token", indexes = {
-        @Index(name = "idx_token_value", columnList = "token_value", unique = true),
+        @Index(name = "idx_token_family", columnList = "token_family"),
         @Index(name = "idx_user_id", columnList = "user_id"),
         @Index(name = "idx_expires_at", columnList = "expires_at"),
         @Index(name = "idx_device_id", columnList = "device_id"),
@@ -35,11 +35,17 @@ public class RefreshToken extends BaseBusinessEntity {
     @Serial
     private static final long serialVersionUID = 9092780989605458936L;
 
-    @NotBlank(message = "令牌值不能为空")
-    @Column(name = "token_value", nullable = false, unique = true, length = 500)
-    @Schema(name = "刷新令牌值")
+    @Column(name = "token_value", length = 500)
+    @Schema(name = "刷新令牌值（仅摘要存储模式关闭时保存）")
     private String tokenValue;
 
+    /**
+     * 令牌值的SHA-256摘要，查找令牌只使用该列；索引由RefreshTokenRepository#migrateToHashStorage维护
+     */
+    @Column(name = "token_hash", length = 32)
+    @Schema(name = "刷新令牌值的SHA-256摘要（用于查找）")
+    private byte[] tokenHash;
+
     @NotNull(message = "用户ID不能为空")
     @Column(name = "user_id", nullable = false)
     @Schema(name = "用户Id")
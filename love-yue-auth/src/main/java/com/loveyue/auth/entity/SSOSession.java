@@ -174,15 +174,22 @@ public class SSOSession extends BaseBusinessEntity {
      * 检查会话是否非活跃
      */
     public boolean isInactive() {
-        if (lastActivityTime == null || maxInactiveInterval == null) {
+        return isInactive(lastActivityTime);
+    }
+
+    /**
+     * 以给定的最后活动时间检查会话是否非活跃，用于包含尚未写回数据库的活动时间
+     */
+    public boolean isInactive(Date latestActivityTime) {
+        if (latestActivityTime == null || maxInactiveInterval == null) {
             return false;
         }
-        long inactiveTime = (System.currentTimeMillis() - lastActivityTime.getTime()) / 1000;
+        long inactiveTime = (System.currentTimeMillis() - latestActivityTime.getTime()) / 1000;
         return inactiveTime > maxInactiveInterval;
     }
 
     /**
-     * 更新最后活动时间
+     * 更新最后活动时间。请求路径上应使用SessionActivityService.touch合并写入，避免每次请求产生一次带版本号的UPDATE
      */
     public void updateLastActivity() {
         this.lastActivityTime = new Date();
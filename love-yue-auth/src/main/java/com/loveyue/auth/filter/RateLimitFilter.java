@@ -0,0 +1,137 @@
+package com.loveyue.auth.filter;
+
+import com.loveyue.common.constant.AuthConstants;
+import com.loveyue.common.constant.RedisKeys;
+import com.loveyue.common.constant.SecurityConstants;
+import com.loveyue.common.enums.ResponseCode;
+import com.loveyue.common.ratelimit.LocalSlidingWindowRateLimiter;
+import com.loveyue.common.ratelimit.RateLimitDecision;
+import com.loveyue.common.ratelimit.RedisTokenBucketRateLimiter;
+import com.loveyue.common.utils.IpRangeMatcher;
+import com.loveyue.common.utils.JwtUtil;
+import com.loveyue.common.utils.ResponseUtils;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * @Description: 接口限流过滤器。IP和用户维度请求量大、精度要求低，使用本地滑动窗口近似限流，请求路径上不访问Redis；
+ * 接口维度按客户端IP做令牌桶限流，登录接口使用更严格的限额。
+ * 超限时直接返回429和Retry-After，响应体由预先编码的字节拼接，不经过Jackson序列化。
+ * 客户端IP只在直连地址属于auth.rate-limit.trusted-proxies时才取自转发头，否则客户端可伪造转发头绕过IP限流
+ * @Date 2025/8/11
+ * @Author LoveYue
+ */
+@Slf4j
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Duration ONE_MINUTE = Duration.ofMinutes(1);
+
+    private static final String LOGIN_PATH = AuthConstants.AUTH_API_BASE_PATH + AuthConstants.LOGIN_API_PATH;
+
+    private static final byte[] REJECTED_BODY_PREFIX = ("{\"code\":" + ResponseCode.TOO_MANY_REQUESTS.getCode()
+            + ",\"message\":\"" + ResponseCode.TOO_MANY_REQUESTS.getMessage()
+            + "\",\"success\":false,\"timestamp\":").getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] REJECTED_BODY_SUFFIX = "}".getBytes(StandardCharsets.UTF_8);
+
+    private static final String BEARER_PREFIX = AuthConstants.TOKEN_PREFIX + " ";
+
+    private final RedisTokenBucketRateLimiter tokenBucketRateLimiter;
+
+    private final LocalSlidingWindowRateLimiter slidingWindowRateLimiter;
+
+    private final JwtUtil jwtUtil;
+
+    private final IpRangeMatcher trustedProxies;
+
+    public RateLimitFilter(RedisTokenBucketRateLimiter tokenBucketRateLimiter,
+                           LocalSlidingWindowRateLimiter slidingWindowRateLimiter,
+                           JwtUtil jwtUtil,
+                           @Value("${auth.rate-limit.trusted-proxies:}") List<String> trustedProxies) {
+        this.tokenBucketRateLimiter = tokenBucketRateLimiter;
+        this.slidingWindowRateLimiter = slidingWindowRateLimiter;
+        this.jwtUtil = jwtUtil;
+        this.trustedProxies = new IpRangeMatcher(trustedProxies);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getServletPath().startsWith(AuthConstants.AUTH_API_BASE_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String clientIp = ResponseUtils.getClientIpAddress(request, trustedProxies);
+        String path = request.getServletPath();
+
+        RateLimitDecision decision = slidingWindowRateLimiter.tryAcquire(
+                RedisKeys.buildIpRateLimitKey(clientIp), SecurityConstants.IP_RATE_LIMIT_PER_MINUTE, ONE_MINUTE);
+        if (decision.isAllowed()) {
+            Long userId = resolveUserId(request);
+            if (userId != null) {
+                decision = slidingWindowRateLimiter.tryAcquire(
+                        RedisKeys.buildUserRateLimitKey(String.valueOf(userId), "request"),
+                        SecurityConstants.USER_RATE_LIMIT_PER_MINUTE, ONE_MINUTE);
+            }
+        }
+        if (decision.isAllowed()) {
+            int apiLimit = LOGIN_PATH.equals(path)
+                    ? SecurityConstants.LOGIN_API_RATE_LIMIT_PER_MINUTE
+                    : SecurityConstants.API_RATE_LIMIT_PER_MINUTE;
+            decision = tokenBucketRateLimiter.tryAcquire(
+                    RedisKeys.buildApiRateLimitKey(path, clientIp), apiLimit, ONE_MINUTE);
+        }
+
+        if (!decision.isAllowed()) {
+            log.debug("请求被限流: {} {} from {}", request.getMethod(), path, clientIp);
+            writeRejected(response, decision);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * 从访问令牌中解析用户ID，只校验签名和有效期，不还原精简声明也不查询黑名单，请求路径上不访问Redis；
+     * 令牌无效时不做用户维度限流
+     */
+    private Long resolveUserId(HttpServletRequest request) {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return null;
+        }
+
+        return jwtUtil.getAccessTokenUserId(authorization.substring(BEARER_PREFIX.length()));
+    }
+
+    private void writeRejected(HttpServletResponse response, RateLimitDecision decision) throws IOException {
+        byte[] timestamp = Long.toString(System.currentTimeMillis()).getBytes(StandardCharsets.US_ASCII);
+
+        response.setStatus(ResponseCode.TOO_MANY_REQUESTS.getCode());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(decision.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentLength(REJECTED_BODY_PREFIX.length + timestamp.length + REJECTED_BODY_SUFFIX.length);
+
+        ServletOutputStream outputStream = response.getOutputStream();
+        outputStream.write(REJECTED_BODY_PREFIX);
+        outputStream.write(timestamp);
+        outputStream.write(REJECTED_BODY_SUFFIX);
+    }
+}
@@ -0,0 +1,45 @@
+package com.loveyue.auth.repository;
+
+import com.loveyue.common.repository.BaseRepository;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * @Description: 数据库负载信息仓库，供后台批量任务节流使用
+ * @Date 2025/8/21
+ * @Author LoveYue
+ */
+@Repository
+public class DatabaseLoadRepository extends BaseRepository {
+
+    /**
+     * 备库中最大的回放延迟
+     *
+     * @return 延迟毫秒数，没有备库或无权限读取延迟时为0
+     */
+    public long getReplicationLagMillis() {
+        return queryLong("SELECT COALESCE(EXTRACT(EPOCH FROM MAX(replay_lag)) * 1000, 0) FROM pg_stat_replication");
+    }
+
+    /**
+     * 当前数据库中正在执行语句的连接数（不含本连接）
+     *
+     * @return 活跃连接数
+     */
+    public long getActiveBackendCount() {
+        return queryLong("SELECT COUNT(*) FROM pg_stat_activity WHERE datname = current_database() "
+                + "AND state = 'active' AND pid <> pg_backend_pid()");
+    }
+
+    private long queryLong(String sql) {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(sql)) {
+                return resultSet.next() ? resultSet.getLong(1) : 0L;
+            }
+        });
+    }
+}
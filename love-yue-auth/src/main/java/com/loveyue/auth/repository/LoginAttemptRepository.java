@@ -0,0 +1,453 @@
+package com.loveyue.auth.repository;
+
+import com.loveyue.auth.entity.LoginAttempt;
+import com.loveyue.common.repository.BaseRepository;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @Description: 登录尝试记录数据仓库
+ * <p>
+ * 审计记录以行数组（按{@link #COLUMNS}顺序）的形式在写入队列和本地溢出文件中流转，
+ * 写入时拼接为单条多行INSERT，一次往返插入整批记录。
+ * </p>
+ *
+ * <p>
+ * login_attempt按attempt_time做月度范围分区，分区表命名为login_attempt_pYYYYMM；
+ * 没有对应月度分区的记录写入默认分区login_attempt_default，创建月度分区时迁入对应月份的记录。
+ * 分区维护相关的DDL都需要在事务中调用，并先通过{@link #tryLockPartitionMaintenance()}取得咨询锁，避免多节点并发执行。
+ * </p>
+ * @Date 2025/8/15
+ * @Author LoveYue
+ */
+@Repository
+public class LoginAttemptRepository extends BaseRepository {
+
+    /**
+     * 默认创建人
+     */
+    private static final String SYSTEM_OPERATOR = "system";
+
+    /**
+     * login_attempt表的列定义，顺序即行数组的顺序
+     */
+    public static final List<Column> COLUMNS = List.of(
+            new Column("id", Types.BIGINT, LoginAttempt::getId),
+            new Column("extra_attributes", Types.VARCHAR, LoginAttempt::getExtraAttributes),
+            new Column("create_time", Types.TIMESTAMP, LoginAttempt::getCreateTime),
+            new Column("create_by", Types.VARCHAR,
+                    attempt -> attempt.getCreateBy() == null ? SYSTEM_OPERATOR : attempt.getCreateBy()),
+            new Column("last_modified_time", Types.TIMESTAMP, LoginAttempt::getLastModifiedTime),
+            new Column("last_modified_by", Types.VARCHAR,
+                    attempt -> attempt.getLastModifiedBy() == null ? SYSTEM_OPERATOR : attempt.getLastModifiedBy()),
+            new Column("status", Types.VARCHAR, attempt -> attempt.getStatus() == null ? null : attempt.getStatus().name()),
+            new Column("deleted", Types.BOOLEAN, attempt -> Boolean.TRUE.equals(attempt.getDeleted())),
+            new Column("version", Types.BIGINT, attempt -> attempt.getVersion() == null ? 0L : attempt.getVersion()),
+            new Column("username", Types.VARCHAR, LoginAttempt::getUsername),
+            new Column("user_id", Types.BIGINT, LoginAttempt::getUserId),
+            new Column("client_ip", Types.VARCHAR, LoginAttempt::getClientIp),
+            new Column("user_agent", Types.VARCHAR, LoginAttempt::getUserAgent),
+            new Column("attempt_time", Types.TIMESTAMP, LoginAttempt::getAttemptTime),
+            new Column("login_result", Types.VARCHAR,
+                    attempt -> attempt.getLoginResult() == null ? null : attempt.getLoginResult().name()),
+            new Column("failure_reason", Types.VARCHAR, LoginAttempt::getFailureReason),
+            new Column("device_id", Types.VARCHAR, LoginAttempt::getDeviceId),
+            new Column("device_type", Types.VARCHAR, LoginAttempt::getDeviceType),
+            new Column("browser_info", Types.VARCHAR, LoginAttempt::getBrowserInfo),
+            new Column("os_info", Types.VARCHAR, LoginAttempt::getOsInfo),
+            new Column("location_info", Types.VARCHAR, LoginAttempt::getLocationInfo),
+            new Column("session_id", Types.VARCHAR, LoginAttempt::getSessionId),
+            new Column("access_token_id", Types.VARCHAR, LoginAttempt::getAccessTokenId),
+            new Column("login_duration", Types.BIGINT, LoginAttempt::getLoginDuration),
+            new Column("is_suspicious", Types.BOOLEAN, attempt -> Boolean.TRUE.equals(attempt.getSuspicious())),
+            new Column("risk_score", Types.INTEGER, LoginAttempt::getRiskScore),
+            new Column("auth_method", Types.VARCHAR, LoginAttempt::getAuthMethod),
+            new Column("mfa_used", Types.BOOLEAN, attempt -> Boolean.TRUE.equals(attempt.getMfaUsed())),
+            new Column("login_source", Types.VARCHAR, LoginAttempt::getLoginSource),
+            new Column("referrer_url", Types.VARCHAR, LoginAttempt::getReferrerUrl),
+            new Column("consecutive_failures", Types.INTEGER, LoginAttempt::getConsecutiveFailures),
+            new Column("blocked_by_policy", Types.BOOLEAN,
+                    attempt -> Boolean.TRUE.equals(attempt.getBlockedByPolicy())),
+            new Column("policy_name", Types.VARCHAR, LoginAttempt::getPolicyName),
+            new Column("additional_info", Types.VARCHAR, LoginAttempt::getAdditionalInfo)
+    );
+
+    private static final String INSERT_PREFIX = "INSERT INTO login_attempt ("
+            + String.join(", ", COLUMNS.stream().map(Column::name).toList()) + ") VALUES ";
+
+    /**
+     * 分区表名前缀
+     */
+    private static final String PARTITION_PREFIX = "login_attempt_p";
+
+    /**
+     * 默认分区，接收没有对应月度分区的记录（时间超出已创建范围或为空）
+     */
+    private static final String DEFAULT_PARTITION = "login_attempt_default";
+
+    private static final Pattern PARTITION_NAME_PATTERN = Pattern.compile("^" + PARTITION_PREFIX + "(\\d{6})$");
+
+    private static final DateTimeFormatter PARTITION_SUFFIX_FORMATTER = DateTimeFormatter.ofPattern("yyyyMM");
+
+    /**
+     * 分区维护咨询锁的键
+     */
+    private static final long PARTITION_MAINTENANCE_LOCK_KEY = 0x4C59_4C41_5041_5254L;
+
+    /**
+     * 主键冲突的行（溢出文件回放时已写入过的记录）直接跳过，使重复写入幂等
+     */
+    private static final String INSERT_SUFFIX = " ON CONFLICT DO NOTHING";
+
+    private static final String ROW_PLACEHOLDERS = "(" + String.join(", ", COLUMNS.stream().map(c -> "?").toList()) + ")";
+
+    /**
+     * 将实体转换为行数组，时间统一转换为毫秒数，便于序列化到溢出文件
+     *
+     * @param attempt 登录尝试记录
+     * @return 行数组
+     */
+    public static Object[] toRow(LoginAttempt attempt) {
+        Object[] row = new Object[COLUMNS.size()];
+        for (int i = 0; i < row.length; i++) {
+            Object value = COLUMNS.get(i).extractor().apply(attempt);
+            row[i] = value instanceof Date date ? date.getTime() : value;
+        }
+        return row;
+    }
+
+    /**
+     * 以单条多行INSERT批量写入，主键已存在的行跳过，需要在事务中调用
+     *
+     * @param rows 行数组列表
+     */
+    public void insertRows(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows.size() * (ROW_PLACEHOLDERS.length() + 2)
+                + INSERT_SUFFIX.length());
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDERS);
+        }
+        sql.append(INSERT_SUFFIX);
+
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                int index = 1;
+                for (Object[] row : rows) {
+                    for (int i = 0; i < COLUMNS.size(); i++) {
+                        bind(statement, index++, COLUMNS.get(i).sqlType(), row[i]);
+                    }
+                }
+                statement.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * 尝试获取分区维护咨询锁，事务结束时自动释放
+     *
+     * @return 是否获取成功
+     */
+    public boolean tryLockPartitionMaintenance() {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_xact_lock(?)")) {
+                statement.setLong(1, PARTITION_MAINTENANCE_LOCK_KEY);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() && resultSet.getBoolean(1);
+                }
+            }
+        });
+    }
+
+    /**
+     * login_attempt是否已经是分区表
+     *
+     * @return 是否为分区表，表不存在时返回false
+     */
+    public boolean isPartitioned() {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(
+                         "SELECT relkind FROM pg_class WHERE oid = to_regclass('login_attempt')")) {
+                return resultSet.next() && "p".equals(resultSet.getString(1));
+            }
+        });
+    }
+
+    /**
+     * 将普通表login_attempt转换为按attempt_time月度分区的表
+     * <p>
+     * 旧表重命名后以相同结构创建分区父表，按已有数据的时间范围创建分区及默认分区并迁移数据，最后删除旧表。
+     * 分区表的主键必须包含分区键，因此主键变为(id, attempt_time)；索引按实体上声明的索引在父表上重建。
+     * </p>
+     *
+     * @param upTo 至少创建到该月份（含）的分区
+     */
+    public void convertToPartitioned(YearMonth upTo) {
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                YearMonth from = upTo;
+                YearMonth to = upTo;
+                try (ResultSet resultSet = statement.executeQuery(
+                        "SELECT min(attempt_time), max(attempt_time) FROM login_attempt")) {
+                    if (resultSet.next() && resultSet.getTimestamp(1) != null) {
+                        from = YearMonth.from(resultSet.getTimestamp(1).toLocalDateTime());
+                        YearMonth max = YearMonth.from(resultSet.getTimestamp(2).toLocalDateTime());
+                        to = max.isAfter(upTo) ? max : upTo;
+                    }
+                }
+
+                statement.execute("ALTER TABLE login_attempt RENAME TO login_attempt_legacy");
+                statement.execute("CREATE TABLE login_attempt (LIKE login_attempt_legacy INCLUDING DEFAULTS "
+                        + "INCLUDING CONSTRAINTS) PARTITION BY RANGE (attempt_time)");
+                for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+                    statement.execute(createPartitionSql(month));
+                }
+                statement.execute(createDefaultPartitionSql());
+                statement.execute("INSERT INTO login_attempt SELECT * FROM login_attempt_legacy");
+                // 旧表删除后主键和索引名称才可复用
+                statement.execute("DROP TABLE login_attempt_legacy");
+                statement.execute("ALTER TABLE login_attempt ADD PRIMARY KEY (id, attempt_time)");
+                for (Index index : LoginAttempt.class.getAnnotation(Table.class).indexes()) {
+                    statement.execute("CREATE INDEX IF NOT EXISTS " + index.name()
+                            + " ON login_attempt (" + index.columnList() + ")");
+                }
+            }
+        });
+    }
+
+    /**
+     * 创建默认分区，已存在时忽略
+     */
+    public void createDefaultPartition() {
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(createDefaultPartitionSql());
+            }
+        });
+    }
+
+    /**
+     * 创建指定月份的分区，已存在时忽略
+     * <p>
+     * 默认分区中已有该月份的记录时无法直接创建分区，先把这些记录移到临时表，创建分区后再写回。
+     * </p>
+     *
+     * @param month 月份
+     */
+    public void createPartition(YearMonth month) {
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                try (ResultSet resultSet = statement.executeQuery(
+                        "SELECT to_regclass('" + partitionName(month) + "') IS NOT NULL")) {
+                    if (resultSet.next() && resultSet.getBoolean(1)) {
+                        return;
+                    }
+                }
+
+                boolean hasDefaultRows;
+                try (ResultSet resultSet = statement.executeQuery(
+                        "SELECT to_regclass('" + DEFAULT_PARTITION + "') IS NOT NULL AND EXISTS (SELECT 1 FROM "
+                                + DEFAULT_PARTITION + " WHERE " + monthCondition(month) + ")")) {
+                    hasDefaultRows = resultSet.next() && resultSet.getBoolean(1);
+                }
+                if (!hasDefaultRows) {
+                    statement.execute(createPartitionSql(month));
+                    return;
+                }
+
+                String stagingTable = "login_attempt_staging_" + month.format(PARTITION_SUFFIX_FORMATTER);
+                statement.execute("CREATE TEMP TABLE " + stagingTable + " (LIKE login_attempt) ON COMMIT DROP");
+                statement.execute("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE " + monthCondition(month)
+                        + " RETURNING *) INSERT INTO " + stagingTable + " SELECT * FROM moved");
+                statement.execute(createPartitionSql(month));
+                statement.execute("INSERT INTO login_attempt SELECT * FROM " + stagingTable);
+                statement.execute("DROP TABLE " + stagingTable);
+            }
+        });
+    }
+
+    /**
+     * 查询默认分区中记录所在的月份，用于补建对应的月度分区
+     *
+     * @return 月份，按时间升序，默认分区不存在时为空
+     */
+    public List<YearMonth> listDefaultPartitionMonths() {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            List<YearMonth> months = new ArrayList<>();
+            try (Statement statement = connection.createStatement()) {
+                try (ResultSet resultSet = statement.executeQuery(
+                        "SELECT to_regclass('" + DEFAULT_PARTITION + "') IS NOT NULL")) {
+                    if (!resultSet.next() || !resultSet.getBoolean(1)) {
+                        return months;
+                    }
+                }
+                try (ResultSet resultSet = statement.executeQuery("SELECT DISTINCT date_trunc('month', attempt_time) "
+                        + "FROM " + DEFAULT_PARTITION + " WHERE attempt_time IS NOT NULL ORDER BY 1")) {
+                    while (resultSet.next()) {
+                        months.add(YearMonth.from(resultSet.getTimestamp(1).toLocalDateTime()));
+                    }
+                }
+            }
+            return months;
+        });
+    }
+
+    /**
+     * 查询已有的月度分区
+     *
+     * @return 分区月份，按时间升序
+     */
+    public List<YearMonth> listPartitions() {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            List<YearMonth> months = new ArrayList<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT c.relname FROM pg_inherits i "
+                         + "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass('login_attempt')")) {
+                while (resultSet.next()) {
+                    Matcher matcher = PARTITION_NAME_PATTERN.matcher(resultSet.getString(1));
+                    if (matcher.matches()) {
+                        months.add(YearMonth.parse(matcher.group(1), PARTITION_SUFFIX_FORMATTER));
+                    }
+                }
+            }
+            months.sort(null);
+            return months;
+        });
+    }
+
+    /**
+     * 以流式游标逐行读取指定月份分区的全部记录，行数组格式与{@link #toRow(LoginAttempt)}一致
+     *
+     * @param month     月份
+     * @param fetchSize 每次从数据库拉取的行数
+     * @param consumer  行处理函数
+     * @return 读取的行数
+     */
+    public long scanPartition(YearMonth month, int fetchSize, Consumer<Object[]> consumer) {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            long count = 0;
+            try (Statement statement = connection.createStatement()) {
+                statement.setFetchSize(fetchSize);
+                try (ResultSet resultSet = statement.executeQuery("SELECT "
+                        + String.join(", ", COLUMNS.stream().map(Column::name).toList())
+                        + " FROM " + partitionName(month))) {
+                    while (resultSet.next()) {
+                        Object[] row = new Object[COLUMNS.size()];
+                        for (int i = 0; i < row.length; i++) {
+                            row[i] = read(resultSet, i + 1, COLUMNS.get(i).sqlType());
+                        }
+                        consumer.accept(row);
+                        count++;
+                    }
+                }
+            }
+            return count;
+        });
+    }
+
+    /**
+     * 删除指定月份的分区及其数据
+     *
+     * @param month 月份
+     */
+    public void dropPartition(YearMonth month) {
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS " + partitionName(month));
+            }
+        });
+    }
+
+    /**
+     * 分区表名
+     *
+     * @param month 月份
+     * @return 表名
+     */
+    public static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX_FORMATTER);
+    }
+
+    private static String createPartitionSql(YearMonth month) {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        return "CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF login_attempt FOR VALUES FROM ('"
+                + Timestamp.valueOf(from) + "') TO ('" + Timestamp.valueOf(to) + "')";
+    }
+
+    private static String createDefaultPartitionSql() {
+        return "CREATE TABLE IF NOT EXISTS " + DEFAULT_PARTITION + " PARTITION OF login_attempt DEFAULT";
+    }
+
+    private static String monthCondition(YearMonth month) {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        return "attempt_time >= '" + Timestamp.valueOf(from) + "' AND attempt_time < '" + Timestamp.valueOf(to) + "'";
+    }
+
+    private static Object read(ResultSet resultSet, int index, int sqlType) throws SQLException {
+        Object value = switch (sqlType) {
+            case Types.TIMESTAMP -> {
+                Timestamp timestamp = resultSet.getTimestamp(index);
+                yield timestamp == null ? null : timestamp.getTime();
+            }
+            case Types.BIGINT -> resultSet.getLong(index);
+            case Types.INTEGER -> resultSet.getInt(index);
+            case Types.BOOLEAN -> resultSet.getBoolean(index);
+            default -> resultSet.getString(index);
+        };
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private static void bind(PreparedStatement statement, int index, int sqlType, Object value)
+            throws SQLException {
+        if (value == null) {
+            statement.setNull(index, sqlType);
+            return;
+        }
+        switch (sqlType) {
+            case Types.TIMESTAMP -> statement.setTimestamp(index, new Timestamp(((Number) value).longValue()));
+            case Types.BIGINT -> statement.setLong(index, ((Number) value).longValue());
+            case Types.INTEGER -> statement.setInt(index, ((Number) value).intValue());
+            case Types.BOOLEAN -> statement.setBoolean(index, (Boolean) value);
+            default -> statement.setString(index, value.toString());
+        }
+    }
+
+    /**
+     * 列定义
+     *
+     * @param name      列名
+     * @param sqlType   JDBC类型
+     * @param extractor 取值函数
+     */
+    public record Column(String name, int sqlType, Function<LoginAttempt, Object> extractor) {
+    }
+}
@@ -0,0 +1,261 @@
+package com.loveyue.auth.repository;
+
+import com.loveyue.auth.dto.RefreshTokenUsageDTO;
+import com.loveyue.auth.entity.RefreshToken;
+import com.loveyue.common.constant.AuthConstants;
+import com.loveyue.common.repository.BaseRepository;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @Description: 刷新令牌数据仓库
+ * @Date 2025/8/20
+ * @Author LoveYue
+ */
+@Repository
+public class RefreshTokenRepository extends BaseRepository {
+
+    /**
+     * 存储迁移咨询锁的键
+     */
+    private static final long STORAGE_MAINTENANCE_LOCK_KEY = 0x4C59_5254_4F4B_4E48L;
+
+    /**
+     * token_hash上的B-tree唯一索引
+     */
+    private static final String TOKEN_HASH_INDEX = "idx_token_hash";
+
+    /**
+     * token_hash上的HASH索引，HASH索引不支持唯一约束，摘要冲突由SHA-256保证
+     */
+    private static final String TOKEN_HASH_HASH_INDEX = "idx_token_hash_h";
+
+    /**
+     * 按令牌值摘要查找，走定长的token_hash唯一索引
+     *
+     * @param tokenHash 令牌值的SHA-256摘要
+     * @return 刷新令牌，不存在时为null
+     */
+    public RefreshToken findByTokenHash(byte[] tokenHash) {
+        return getEntityManager()
+                .createQuery("SELECT t FROM RefreshToken t WHERE t.tokenHash = :tokenHash", RefreshToken.class)
+                .setParameter("tokenHash", tokenHash)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * 尝试获取存储迁移咨询锁，事务结束时自动释放
+     *
+     * @return 是否获取成功
+     */
+    public boolean tryLockStorageMaintenance() {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_xact_lock(?)")) {
+                statement.setLong(1, STORAGE_MAINTENANCE_LOCK_KEY);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() && resultSet.getBoolean(1);
+                }
+            }
+        });
+    }
+
+    /**
+     * 迁移到按摘要查找的存储方式，可重复执行
+     * <p>
+     * token_value改为可空并删除其上的唯一索引和唯一约束；为尚无摘要的旧令牌回填SHA-256摘要；
+     * 不保存原始值时清空已保存的令牌值；token_hash上按配置只保留HASH索引或B-tree唯一索引之一。
+     * 需要在事务中调用。
+     * </p>
+     *
+     * @param storeRawValue 是否保留原始令牌值
+     * @param hashIndex     是否使用HASH索引
+     * @return 回填摘要的令牌数
+     */
+    public int migrateToHashStorage(boolean storeRawValue, boolean hashIndex) {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                boolean valueRequired;
+                try (ResultSet resultSet = statement.executeQuery(
+                        "SELECT is_nullable FROM information_schema.columns "
+                                + "WHERE table_name = 'refresh_token' AND column_name = 'token_value' "
+                                + "AND table_schema = current_schema()")) {
+                    valueRequired = resultSet.next() && "NO".equals(resultSet.getString(1));
+                }
+                if (valueRequired) {
+                    statement.execute("ALTER TABLE refresh_token ALTER COLUMN token_value DROP NOT NULL");
+                }
+
+                List<String> constraints = new ArrayList<>();
+                try (ResultSet resultSet = statement.executeQuery(
+                        "SELECT c.conname FROM pg_constraint c JOIN pg_attribute a "
+                                + "ON a.attrelid = c.conrelid AND a.attnum = ANY (c.conkey) "
+                                + "WHERE c.conrelid = to_regclass('refresh_token') AND c.contype = 'u' "
+                                + "AND a.attname = 'token_value'")) {
+                    while (resultSet.next()) {
+                        constraints.add(resultSet.getString(1));
+                    }
+                }
+                for (String constraint : constraints) {
+                    statement.execute("ALTER TABLE refresh_token DROP CONSTRAINT \"" + constraint + "\"");
+                }
+                statement.execute("DROP INDEX IF EXISTS idx_token_value");
+
+                int backfilled = statement.executeUpdate(
+                        "UPDATE refresh_token SET token_hash = sha256(convert_to(token_value, 'UTF8')) "
+                                + "WHERE token_hash IS NULL AND token_value IS NOT NULL");
+                if (!storeRawValue) {
+                    statement.executeUpdate("UPDATE refresh_token SET token_value = NULL "
+                            + "WHERE token_value IS NOT NULL AND token_hash IS NOT NULL");
+                }
+
+                if (hashIndex) {
+                    statement.execute("CREATE INDEX IF NOT EXISTS " + TOKEN_HASH_HASH_INDEX
+                            + " ON refresh_token USING HASH (token_hash)");
+                    statement.execute("DROP INDEX IF EXISTS " + TOKEN_HASH_INDEX);
+                } else {
+                    statement.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + TOKEN_HASH_INDEX
+                            + " ON refresh_token (token_hash)");
+                    statement.execute("DROP INDEX IF EXISTS " + TOKEN_HASH_HASH_INDEX);
+                }
+                return backfilled;
+            }
+        });
+    }
+
+    /**
+     * 写入刷新令牌，需要在事务中调用
+     *
+     * @param refreshToken 刷新令牌
+     */
+    public void insert(RefreshToken refreshToken) {
+        getEntityManager().persist(refreshToken);
+    }
+
+    /**
+     * 将令牌标记为已轮换
+     * <p>
+     * 只更新仍未撤销的令牌；返回0说明令牌已被并发轮换或撤销，调用方应按重用处理。需要在事务中调用。
+     * </p>
+     *
+     * @param tokenId 刷新令牌ID
+     * @param reason  撤销原因
+     * @return 更新的行数
+     */
+    public int markRotated(Long tokenId, String reason) {
+        Timestamp now = new Timestamp(new Date().getTime());
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE refresh_token SET is_revoked = TRUE, revoked_at = ?, revoke_reason = ?, "
+                            + "last_modified_time = ?, version = COALESCE(version, 0) + 1 "
+                            + "WHERE id = ? AND is_revoked = FALSE")) {
+                statement.setTimestamp(1, now);
+                statement.setString(2, reason);
+                statement.setTimestamp(3, now);
+                statement.setLong(4, tokenId);
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * 一条UPDATE撤销令牌族中全部未撤销的令牌，走token_family索引。需要在事务中调用。
+     *
+     * @param tokenFamily 令牌族
+     * @param reason      撤销原因
+     * @return 撤销的令牌数
+     */
+    public int revokeFamily(String tokenFamily, String reason) {
+        Timestamp now = new Timestamp(new Date().getTime());
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE refresh_token SET is_revoked = TRUE, revoked_at = ?, revoke_reason = ?, "
+                            + "last_modified_time = ?, version = COALESCE(version, 0) + 1 "
+                            + "WHERE token_family = ? AND is_revoked = FALSE")) {
+                statement.setTimestamp(1, now);
+                statement.setString(2, reason);
+                statement.setTimestamp(3, now);
+                statement.setString(4, tokenFamily);
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * 批量写入合并后的令牌使用记录
+     * <p>
+     * 最后使用时间只前进不后退，使用次数按增量累加，不递增版本号。需要在事务中调用。
+     * </p>
+     *
+     * @param usages 令牌使用记录
+     */
+    public void batchUpdateUsage(Collection<RefreshTokenUsageDTO> usages) {
+        if (usages.isEmpty()) {
+            return;
+        }
+
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE refresh_token SET last_used_at = GREATEST(COALESCE(last_used_at, ?), ?), "
+                            + "use_count = COALESCE(use_count, 0) + ? WHERE id = ?")) {
+                for (RefreshTokenUsageDTO usage : usages) {
+                    Timestamp lastUsedAt = new Timestamp(usage.getLastUsedAt().getTime());
+                    statement.setTimestamp(1, lastUsedAt);
+                    statement.setTimestamp(2, lastUsedAt);
+                    statement.setInt(3, usage.getUseCountDelta());
+                    statement.setLong(4, usage.getTokenId());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * 按主键顺序删除一批过期或已撤销的令牌
+     * <p>
+     * 过期时间早于expiredBefore的令牌，以及撤销时间早于revokedBefore的令牌被删除；
+     * 因轮换而撤销的令牌保留到过期，以便继续识别重用。跳过被其他事务锁定的行，需要在事务中调用。
+     * </p>
+     *
+     * @param afterId       上一批最大的令牌ID
+     * @param expiredBefore 过期时间上限
+     * @param revokedBefore 撤销时间上限
+     * @param limit         本批最多删除的行数
+     * @return 删除的令牌ID
+     */
+    public List<Long> deleteExpiredBatch(long afterId, Date expiredBefore, Date revokedBefore, int limit) {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM refresh_token WHERE id IN (SELECT id FROM refresh_token WHERE id > ? "
+                            + "AND (expires_at < ? OR (is_revoked = TRUE AND revoked_at < ? "
+                            + "AND revoke_reason IS DISTINCT FROM ?)) "
+                            + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) RETURNING id")) {
+                statement.setLong(1, afterId);
+                statement.setTimestamp(2, new Timestamp(expiredBefore.getTime()));
+                statement.setTimestamp(3, new Timestamp(revokedBefore.getTime()));
+                statement.setString(4, AuthConstants.REVOKE_REASON_ROTATED);
+                statement.setInt(5, limit);
+                List<Long> ids = new ArrayList<>();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        ids.add(resultSet.getLong(1));
+                    }
+                }
+                return ids;
+            }
+        });
+    }
+}
@@ -0,0 +1,193 @@
+package com.loveyue.auth.repository;
+
+import com.loveyue.common.enums.RoleStatus;
+import com.loveyue.common.enums.DataScope;
+import com.loveyue.common.repository.BaseRepository;
+import com.loveyue.common.security.DataScopeFilter;
+import com.loveyue.common.security.RoleHierarchy;
+import com.loveyue.common.utils.StringUtils;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @Description: 角色数据仓库
+ * @Date 2025/8/22
+ * @Author LoveYue
+ */
+@Repository
+public class RoleRepository extends BaseRepository {
+
+    private static final long USER_COUNT_RECONCILE_LOCK_KEY = 0x4C59_524F_4C45_5543L;
+
+    private static final String HIERARCHY_COLUMNS = "SELECT id, parent_id, role_name, role_name_en, role_status, "
+            + "expiry_time, permissions FROM role_entity WHERE (deleted IS NULL OR deleted = FALSE)";
+
+    /**
+     * 读取全部角色的层级信息
+     *
+     * @return 角色层级编译输入
+     */
+    public List<RoleHierarchy.Role> findAllForHierarchy() {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            List<RoleHierarchy.Role> roles = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(HIERARCHY_COLUMNS);
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    roles.add(toHierarchyRole(resultSet));
+                }
+            }
+            return roles;
+        });
+    }
+
+    /**
+     * 读取单个角色的层级信息
+     *
+     * @param roleId 角色ID
+     * @return 角色层级编译输入，角色不存在或已删除时为null
+     */
+    public RoleHierarchy.Role findForHierarchy(Long roleId) {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(HIERARCHY_COLUMNS + " AND id = ?")) {
+                statement.setLong(1, roleId);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? toHierarchyRole(resultSet) : null;
+                }
+            }
+        });
+    }
+
+    /**
+     * 读取全部有效角色的数据权限规则，无效（非启用或已过期）角色和未配置或无法识别数据权限的角色不包含在内
+     *
+     * @return 角色ID到数据权限规则的映射
+     */
+    public Map<Long, DataScopeFilter.Rule> findAllDataScopeRules() {
+        String sql = "SELECT id, data_scope, dept_ids FROM role_entity "
+                + "WHERE (deleted IS NULL OR deleted = FALSE) AND role_status = ? "
+                + "AND (expiry_time IS NULL OR expiry_time > CURRENT_TIMESTAMP) AND data_scope IS NOT NULL";
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            Map<Long, DataScopeFilter.Rule> rules = new HashMap<>();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, RoleStatus.ACTIVE.name());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        DataScope scope;
+                        try {
+                            scope = DataScope.valueOf(resultSet.getString(2).trim());
+                        } catch (IllegalArgumentException e) {
+                            continue;
+                        }
+                        rules.put(resultSet.getLong(1), new DataScopeFilter.Rule(scope,
+                                DataScopeFilter.parseDeptIds(StringUtils.splitCodes(resultSet.getString(3)))));
+                    }
+                }
+            }
+            return rules;
+        });
+    }
+
+    /**
+     * 批量累加角色用户数量，结果不小于0；不加载实体也不递增版本号。需要在事务中调用。
+     * 按角色ID升序更新，多个节点并发写回时以相同顺序加行锁，不会互相死锁。
+     *
+     * @param deltas 角色ID到增量的映射
+     */
+    public void batchAddUserCount(Map<Long, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE role_entity SET user_count = GREATEST(0, COALESCE(user_count, 0) + ?) WHERE id = ?")) {
+                for (Map.Entry<Long, Long> delta : new TreeMap<>(deltas).entrySet()) {
+                    statement.setLong(1, delta.getValue());
+                    statement.setLong(2, delta.getKey());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * 以重新统计的结果覆盖角色用户数量，只写入与统计结果不一致的行；不在统计结果中的角色置为0。
+     * 需要在事务中调用。
+     *
+     * @param counts 角色ID到用户数量的映射
+     * @return 被修正的角色数量
+     */
+    public int reconcileUserCounts(Map<Long, Long> counts) {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            int corrected = 0;
+            if (!counts.isEmpty()) {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "UPDATE role_entity SET user_count = ? WHERE id = ? AND user_count IS DISTINCT FROM ?")) {
+                    // 与增量写回相同的加锁顺序
+                    for (Map.Entry<Long, Long> count : new TreeMap<>(counts).entrySet()) {
+                        int value = (int) Math.min(Integer.MAX_VALUE, count.getValue());
+                        statement.setInt(1, value);
+                        statement.setLong(2, count.getKey());
+                        statement.setInt(3, value);
+                        statement.addBatch();
+                    }
+                    for (int updated : statement.executeBatch()) {
+                        corrected += Math.max(updated, 0);
+                    }
+                }
+            }
+
+            Array roleIds = connection.createArrayOf("bigint", counts.keySet().toArray());
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE role_entity SET user_count = 0 WHERE user_count <> 0 AND NOT (id = ANY(?))")) {
+                statement.setArray(1, roleIds);
+                corrected += statement.executeUpdate();
+            } finally {
+                roleIds.free();
+            }
+            return corrected;
+        });
+    }
+
+    /**
+     * 尝试获取用户数量校正咨询锁，事务结束时自动释放
+     *
+     * @return 是否获取成功
+     */
+    public boolean tryLockUserCountReconcile() {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_xact_lock(?)")) {
+                statement.setLong(1, USER_COUNT_RECONCILE_LOCK_KEY);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() && resultSet.getBoolean(1);
+                }
+            }
+        });
+    }
+
+    /**
+     * 无效（非启用或已过期）的角色保留在层级中，但不贡献权限
+     */
+    private static RoleHierarchy.Role toHierarchyRole(ResultSet resultSet) throws SQLException {
+        long parentId = resultSet.getLong(2);
+        boolean hasParent = !resultSet.wasNull();
+        Timestamp expiryTime = resultSet.getTimestamp(6);
+        boolean valid = RoleStatus.ACTIVE.name().equals(resultSet.getString(5))
+                && (expiryTime == null || expiryTime.getTime() > System.currentTimeMillis());
+        return new RoleHierarchy.Role(resultSet.getLong(1), hasParent ? parentId : null,
+                resultSet.getString(3), resultSet.getString(4),
+                valid ? StringUtils.splitCodes(resultSet.getString(7)) : List.of());
+    }
+}
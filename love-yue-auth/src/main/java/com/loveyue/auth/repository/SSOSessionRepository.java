@@ -0,0 +1,267 @@
+package com.loveyue.auth.repository;
+
+import com.loveyue.auth.dto.SessionActivityDTO;
+import com.loveyue.auth.dto.SessionDeadlineDTO;
+import com.loveyue.auth.entity.SSOSession;
+import com.loveyue.common.enums.SessionStatus;
+import com.loveyue.common.repository.BaseRepository;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * @Description: SSO会话数据仓库
+ * @Date 2025/8/17
+ * @Author LoveYue
+ */
+@Repository
+public class SSOSessionRepository extends BaseRepository {
+
+    /**
+     * 批量写入合并后的会话活动
+     * <p>
+     * 最后活动时间只前进不后退，访问次数按增量累加；不加载实体也不递增版本号，
+     * 热点会话的活动写入不会与会话状态修改产生乐观锁冲突。需要在事务中调用。
+     * </p>
+     *
+     * @param activities 会话活动
+     */
+    public void batchUpdateActivity(Collection<SessionActivityDTO> activities) {
+        if (activities.isEmpty()) {
+            return;
+        }
+
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE sso_session SET last_activity_time = GREATEST(COALESCE(last_activity_time, ?), ?), "
+                            + "access_count = COALESCE(access_count, 0) + ? WHERE id = ?")) {
+                for (SessionActivityDTO activity : activities) {
+                    Timestamp lastActivityTime = new Timestamp(activity.getLastActivityTime().getTime());
+                    statement.setTimestamp(1, lastActivityTime);
+                    statement.setTimestamp(2, lastActivityTime);
+                    statement.setInt(3, activity.getAccessCountDelta());
+                    statement.setLong(4, activity.getSessionId());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * 以流式游标读取全部活跃会话的到期信息，需要在事务中调用
+     *
+     * @param fetchSize 每次从数据库拉取的行数
+     * @param consumer  处理函数
+     * @return 读取的会话数
+     */
+    public long scanActiveSessionDeadlines(int fetchSize, Consumer<SessionDeadlineDTO> consumer) {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            long count = 0;
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id, user_id, expires_at, last_activity_time, max_inactive_interval FROM sso_session "
+                            + "WHERE session_status = ? AND (deleted IS NULL OR deleted = FALSE)")) {
+                statement.setFetchSize(fetchSize);
+                statement.setString(1, SessionStatus.ACTIVE.name());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        consumer.accept(toDeadline(resultSet));
+                        count++;
+                    }
+                }
+            }
+            return count;
+        });
+    }
+
+    /**
+     * 批量读取仍处于活跃状态的会话的到期信息，需要在事务中调用
+     *
+     * @param sessionIds 会话ID
+     * @return 会话ID到到期信息的映射，已结束或不存在的会话不包含在内
+     */
+    public Map<Long, SessionDeadlineDTO> findActiveSessionDeadlines(Collection<Long> sessionIds) {
+        if (sessionIds.isEmpty()) {
+            return Map.of();
+        }
+
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            Map<Long, SessionDeadlineDTO> deadlines = new HashMap<>();
+            Array ids = connection.createArrayOf("bigint", sessionIds.toArray());
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id, user_id, expires_at, last_activity_time, max_inactive_interval FROM sso_session "
+                            + "WHERE id = ANY(?) AND session_status = ? AND (deleted IS NULL OR deleted = FALSE)")) {
+                statement.setArray(1, ids);
+                statement.setString(2, SessionStatus.ACTIVE.name());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        SessionDeadlineDTO deadline = toDeadline(resultSet);
+                        deadlines.put(deadline.getSessionId(), deadline);
+                    }
+                }
+            } finally {
+                ids.free();
+            }
+            return deadlines;
+        });
+    }
+
+    /**
+     * 批量结束仍处于活跃状态的会话
+     * <p>
+     * 与{@link com.loveyue.auth.entity.SSOSession#terminate(String)}写入相同的字段，状态使用给定的结束状态；
+     * 只更新仍为ACTIVE的会话并递增版本号，已登出的会话不受影响，同时持有旧版本实体的修改会因乐观锁失败。
+     * 结束状态为INACTIVE时还要求数据库中的最后活动时间确实已超过最大非活动间隔，其他节点刚合并写入的活动不会被误判。
+     * 需要在事务中调用。
+     * </p>
+     *
+     * @param sessionIds 会话ID
+     * @param status     结束后的状态
+     * @param reason     登出原因
+     * @return 实际被结束的会话ID
+     */
+    public List<Long> batchCloseSessions(Collection<Long> sessionIds, SessionStatus status, String reason) {
+        if (sessionIds.isEmpty()) {
+            return List.of();
+        }
+
+        String idleCondition = status == SessionStatus.INACTIVE
+                ? " AND last_activity_time + max_inactive_interval * interval '1 second' <= now()"
+                : "";
+        Timestamp now = new Timestamp(new Date().getTime());
+        List<Long> ids = List.copyOf(sessionIds);
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE sso_session SET session_status = ?, logout_time = ?, logout_reason = ?, "
+                            + "last_modified_time = ?, version = COALESCE(version, 0) + 1 "
+                            + "WHERE id = ? AND session_status = ?" + idleCondition)) {
+                for (Long sessionId : ids) {
+                    statement.setString(1, status.name());
+                    statement.setTimestamp(2, now);
+                    statement.setString(3, reason);
+                    statement.setTimestamp(4, now);
+                    statement.setLong(5, sessionId);
+                    statement.setString(6, SessionStatus.ACTIVE.name());
+                    statement.addBatch();
+                }
+                int[] updated = statement.executeBatch();
+                List<Long> closed = new ArrayList<>();
+                for (int i = 0; i < updated.length; i++) {
+                    if (updated[i] != 0) {
+                        closed.add(ids.get(i));
+                    }
+                }
+                return closed;
+            }
+        });
+    }
+
+    /**
+     * 写入会话快照，需要在事务中调用
+     *
+     * @param session 会话
+     */
+    public void insert(SSOSession session) {
+        getEntityManager().persist(session);
+    }
+
+    /**
+     * 批量写入会话检查点：会话状态、过期时间和安全相关字段
+     * <p>
+     * 活动时间和访问次数由会话活动合并写入，这里不覆盖；只更新仍为ACTIVE的会话并递增版本号。需要在事务中调用。
+     * </p>
+     *
+     * @param sessions 会话的当前状态
+     */
+    public void batchCheckpoint(Collection<SSOSession> sessions) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = new Timestamp(new Date().getTime());
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE sso_session SET session_status = ?, expires_at = ?, max_inactive_interval = ?, "
+                            + "risk_score = ?, is_suspicious = ?, security_level = ?, authorized_apps = ?, "
+                            + "permissions = ?, roles = ?, last_modified_time = ?, version = COALESCE(version, 0) + 1 "
+                            + "WHERE id = ? AND session_status = ?")) {
+                for (SSOSession session : sessions) {
+                    statement.setString(1, session.getSessionStatus().name());
+                    statement.setTimestamp(2, new Timestamp(session.getExpiresAt().getTime()));
+                    statement.setObject(3, session.getMaxInactiveInterval(), Types.INTEGER);
+                    statement.setObject(4, session.getRiskScore(), Types.INTEGER);
+                    statement.setObject(5, session.getSuspicious(), Types.BOOLEAN);
+                    statement.setString(6, session.getSecurityLevel());
+                    statement.setString(7, session.getAuthorizedApps());
+                    statement.setString(8, session.getPermissions());
+                    statement.setString(9, session.getRoles());
+                    statement.setTimestamp(10, now);
+                    statement.setLong(11, session.getId());
+                    statement.setString(12, SessionStatus.ACTIVE.name());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * 按主键顺序删除一批过期或已结束的会话
+     * <p>
+     * 过期时间早于expiredBefore的会话，以及登出时间早于endedBefore的非活跃会话被删除。
+     * 跳过被其他事务锁定的行，需要在事务中调用。
+     * </p>
+     *
+     * @param afterId       上一批最大的会话ID
+     * @param expiredBefore 过期时间上限
+     * @param endedBefore   登出时间上限
+     * @param limit         本批最多删除的行数
+     * @return 删除的会话ID
+     */
+    public List<Long> deleteExpiredBatch(long afterId, Date expiredBefore, Date endedBefore, int limit) {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM sso_session WHERE id IN (SELECT id FROM sso_session WHERE id > ? "
+                            + "AND (expires_at < ? OR (session_status <> ? "
+                            + "AND COALESCE(logout_time, last_modified_time) < ?)) "
+                            + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) RETURNING id")) {
+                statement.setLong(1, afterId);
+                statement.setTimestamp(2, new Timestamp(expiredBefore.getTime()));
+                statement.setString(3, SessionStatus.ACTIVE.name());
+                statement.setTimestamp(4, new Timestamp(endedBefore.getTime()));
+                statement.setInt(5, limit);
+                List<Long> ids = new ArrayList<>();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        ids.add(resultSet.getLong(1));
+                    }
+                }
+                return ids;
+            }
+        });
+    }
+
+    private static SessionDeadlineDTO toDeadline(ResultSet resultSet) throws SQLException {
+        SessionDeadlineDTO deadline = new SessionDeadlineDTO();
+        deadline.setSessionId(resultSet.getLong(1));
+        deadline.setUserId(resultSet.getLong(2));
+        deadline.setExpiresAt(resultSet.getTimestamp(3));
+        deadline.setLastActivityTime(resultSet.getTimestamp(4));
+        int maxInactiveInterval = resultSet.getInt(5);
+        deadline.setMaxInactiveInterval(resultSet.wasNull() ? null : maxInactiveInterval);
+        return deadline;
+    }
+}
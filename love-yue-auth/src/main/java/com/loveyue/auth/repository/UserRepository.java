@@ -0,0 +1,109 @@
+package com.loveyue.auth.repository;
+
+import com.loveyue.auth.dto.LoginLockoutStateDTO;
+import com.loveyue.common.repository.BaseRepository;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * @Description: 用户数据仓库
+ * @Date 2025/8/13
+ * @Author LoveYue
+ */
+@Repository
+public class UserRepository extends BaseRepository {
+
+    /**
+     * 批量写入登录失败次数和锁定时间
+     * <p>
+     * 使用JDBC批量UPDATE直接写入两列，不加载实体也不递增版本号，
+     * 不会与用户资料修改产生乐观锁冲突；与目标值相同的行不改写。需要在事务中调用。
+     * </p>
+     *
+     * @param states 锁定状态
+     */
+    public void batchUpdateLockoutStates(Collection<LoginLockoutStateDTO> states) {
+        if (states.isEmpty()) {
+            return;
+        }
+
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE user_entity SET failed_login_attempts = ?, locked_until = ? WHERE id = ? "
+                            + "AND (failed_login_attempts IS DISTINCT FROM ? OR locked_until IS DISTINCT FROM ?)")) {
+                for (LoginLockoutStateDTO state : states) {
+                    int failedLoginAttempts = state.getFailedLoginAttempts() == null ? 0 : state.getFailedLoginAttempts();
+                    Timestamp lockedUntil = state.getLockedUntil() == null
+                            ? null : new Timestamp(state.getLockedUntil().getTime());
+                    statement.setInt(1, failedLoginAttempts);
+                    setTimestamp(statement, 2, lockedUntil);
+                    statement.setLong(3, state.getUserId());
+                    statement.setInt(4, failedLoginAttempts);
+                    setTimestamp(statement, 5, lockedUntil);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    private static void setTimestamp(PreparedStatement statement, int index, Timestamp value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.TIMESTAMP);
+        } else {
+            statement.setTimestamp(index, value);
+        }
+    }
+
+    /**
+     * 未删除用户的ID范围
+     *
+     * @return [最小ID, 最大ID]，没有用户时为null
+     */
+    public long[] findUserIdRange() {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT MIN(id), MAX(id) FROM user_entity WHERE (deleted IS NULL OR deleted = FALSE)");
+                 ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                long min = resultSet.getLong(1);
+                return resultSet.wasNull() ? null : new long[]{min, resultSet.getLong(2)};
+            }
+        });
+    }
+
+    /**
+     * 按主键范围流式读取未删除用户的roles字段，只读取一列，需要在事务中调用
+     *
+     * @param fromId    起始用户ID（含）
+     * @param toId      结束用户ID（含）
+     * @param fetchSize 每次从数据库拉取的行数
+     * @param consumer  roles字段（JSON数组或逗号分隔），为空的用户不回调
+     */
+    public void scanUserRoles(long fromId, long toId, int fetchSize, Consumer<String> consumer) {
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT roles FROM user_entity WHERE id BETWEEN ? AND ? "
+                            + "AND (deleted IS NULL OR deleted = FALSE) AND roles IS NOT NULL")) {
+                statement.setFetchSize(fetchSize);
+                statement.setLong(1, fromId);
+                statement.setLong(2, toId);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        consumer.accept(resultSet.getString(1));
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,48 @@
+package com.loveyue.auth.service;
+
+import com.loveyue.auth.entity.UserEntity;
+import com.loveyue.common.security.DataScopeFilter;
+import io.jsonwebtoken.Claims;
+
+import java.util.Collection;
+
+/**
+ * @Description: 数据权限服务接口，把用户角色（含继承）的dataScope、deptIds解析为可直接用于查询的数据权限范围
+ * @Date 2025/8/24
+ * @Author LoveYue
+ */
+public interface DataScopeService {
+
+    /**
+     * 解析数据权限范围
+     *
+     * @param roleNames    角色名称
+     * @param departmentId 用户所在部门ID
+     * @param owner        本人标识（创建人）
+     * @return 数据权限范围
+     */
+    DataScopeFilter getDataScope(Collection<String> roleNames, Long departmentId, String owner);
+
+    /**
+     * 解析用户的数据权限范围，本人标识为用户名
+     *
+     * @param user 用户
+     * @return 数据权限范围
+     */
+    DataScopeFilter getDataScope(UserEntity user);
+
+    /**
+     * 解析令牌声明中的数据权限范围，本人标识为用户名
+     *
+     * @param claims 已解析的令牌声明
+     * @return 数据权限范围
+     */
+    DataScopeFilter getDataScope(Claims claims);
+
+    /**
+     * 从数据库重新加载角色的数据权限规则
+     *
+     * @return 配置了数据权限的有效角色数量
+     */
+    int reload();
+}
@@ -0,0 +1,16 @@
+package com.loveyue.auth.service;
+
+/**
+ * @Description: 过期记录清理服务接口，分批删除过期或已撤销的刷新令牌和已结束的SSO会话
+ * @Date 2025/8/21
+ * @Author LoveYue
+ */
+public interface ExpiredRecordReaperService {
+
+    /**
+     * 执行一轮清理，数据库负载过高时提前结束
+     *
+     * @return 删除的行数
+     */
+    long reap();
+}
@@ -0,0 +1,26 @@
+package com.loveyue.auth.service;
+
+import com.loveyue.auth.entity.LoginAttempt;
+
+/**
+ * @Description: 登录尝试审计服务接口，记录进入内存队列后由后台线程批量写入数据库，不占用登录请求的耗时
+ * @Date 2025/8/15
+ * @Author LoveYue
+ */
+public interface LoginAttemptAuditService {
+
+    /**
+     * 提交一条登录尝试记录，不阻塞（队列已满时最多等待配置的背压时间）
+     *
+     * @param loginAttempt 登录尝试记录
+     * @return 是否被接受（进入队列或溢出文件），按溢出策略被丢弃时返回false
+     */
+    boolean record(LoginAttempt loginAttempt);
+
+    /**
+     * 当前队列中等待写入的记录数
+     *
+     * @return 记录数
+     */
+    int getPendingCount();
+}
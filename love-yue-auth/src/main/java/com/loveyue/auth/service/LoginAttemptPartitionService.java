@@ -0,0 +1,28 @@
+package com.loveyue.auth.service;
+
+import java.time.YearMonth;
+
+/**
+ * @Description: 登录尝试记录分区维护服务接口，负责预建月度分区、归档并删除超出保留期的分区
+ * @Date 2025/8/16
+ * @Author LoveYue
+ */
+public interface LoginAttemptPartitionService {
+
+    /**
+     * 执行一次分区维护：必要时将login_attempt转换为分区表，创建后续月份的分区，归档并删除过期分区。
+     * 其他节点正在维护时直接返回
+     *
+     * @return 本次删除的过期分区数
+     */
+    int maintain();
+
+    /**
+     * 从归档文件恢复指定月份的登录尝试记录：创建该月分区并写回全部记录，已存在的记录跳过。
+     * 恢复的月份仍早于保留期时，下次维护会再次归档并删除，需要长期保留时先调大保留月份数
+     *
+     * @param month 分区月份
+     * @return 从归档文件读取的行数
+     */
+    long restore(YearMonth month);
+}
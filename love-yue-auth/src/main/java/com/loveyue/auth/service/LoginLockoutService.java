@@ -0,0 +1,43 @@
+package com.loveyue.auth.service;
+
+import com.loveyue.auth.dto.LoginLockoutStateDTO;
+
+/**
+ * @Description: 登录失败计数与账户锁定服务接口，计数保存在Redis，最终状态异步批量写回数据库
+ * @Date 2025/8/13
+ * @Author LoveYue
+ */
+public interface LoginLockoutService {
+
+    /**
+     * 账户是否处于锁定状态
+     *
+     * @param username 用户名
+     * @return 是否锁定
+     */
+    boolean isLocked(String username);
+
+    /**
+     * 记录一次登录失败，达到上限时锁定账户
+     *
+     * @param userId   用户ID，用户不存在时为null，此时只计数不写回数据库
+     * @param username 用户名
+     * @return 记录后的锁定状态
+     */
+    LoginLockoutStateDTO recordFailure(Long userId, String username);
+
+    /**
+     * 登录成功后清除失败计数和锁定
+     *
+     * @param userId   用户ID
+     * @param username 用户名
+     */
+    void recordSuccess(Long userId, String username);
+
+    /**
+     * 立即把待写回的状态批量写入数据库
+     *
+     * @return 写入的用户数
+     */
+    int flush();
+}
@@ -0,0 +1,26 @@
+package com.loveyue.auth.service;
+
+/**
+ * @Description: 密码哈希服务接口，BCrypt计算在独立的有界线程池中执行，线程池繁忙时快速拒绝（429）
+ * @Date 2025/8/26
+ * @Author LoveYue
+ */
+public interface PasswordHashService {
+
+    /**
+     * 计算密码的BCrypt哈希，强度为{@link com.loveyue.common.constant.SecurityConstants#BCRYPT_STRENGTH}
+     *
+     * @param rawPassword 明文密码
+     * @return BCrypt哈希
+     */
+    String encode(String rawPassword);
+
+    /**
+     * 校验密码与BCrypt哈希是否匹配，哈希格式无效时返回false
+     *
+     * @param rawPassword     明文密码
+     * @param encodedPassword BCrypt哈希
+     * @return 是否匹配
+     */
+    boolean matches(String rawPassword, String encodedPassword);
+}
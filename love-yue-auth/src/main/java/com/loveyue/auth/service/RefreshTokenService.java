@@ -0,0 +1,59 @@
+package com.loveyue.auth.service;
+
+/**
+ * @Description: 刷新令牌服务接口，每次使用按策略轮换，检测到已轮换令牌被重用时撤销整个令牌族
+ * @Date 2025/8/20
+ * @Author LoveYue
+ */
+public interface RefreshTokenService {
+
+    /**
+     * 签发新令牌族的第一个刷新令牌
+     *
+     * @param userId    用户ID
+     * @param username  用户名
+     * @param deviceId  设备ID
+     * @param sessionId SSO会话ID
+     * @param clientIp  客户端IP
+     * @param userAgent 用户代理
+     * @return 刷新令牌值
+     */
+    String issue(Long userId, String username, String deviceId, String sessionId, String clientIp, String userAgent);
+
+    /**
+     * 使用刷新令牌：校验令牌，记录一次使用，需要轮换时签发同一令牌族的新令牌
+     * <p>
+     * 已轮换的令牌再次出现视为泄露，撤销整个令牌族并发布撤销通知。
+     * </p>
+     *
+     * @param tokenValue 刷新令牌值
+     * @param clientIp   客户端IP
+     * @param userAgent  用户代理
+     * @return 客户端之后应使用的刷新令牌值，未轮换时为原值
+     */
+    String rotate(String tokenValue, String clientIp, String userAgent);
+
+    /**
+     * 撤销整个令牌族并发布撤销通知
+     *
+     * @param tokenFamily 令牌族
+     * @param sessionId   令牌族绑定的SSO会话ID，可为null
+     * @param reason      撤销原因
+     * @return 撤销的令牌数
+     */
+    int revokeFamily(String tokenFamily, String sessionId, String reason);
+
+    /**
+     * 将refresh_token迁移到按摘要查找的存储方式，按配置清空原始令牌值并维护摘要索引
+     *
+     * @return 回填摘要的令牌数
+     */
+    int migrateStorage();
+
+    /**
+     * 把合并后的令牌使用记录批量写入数据库
+     *
+     * @return 写入的令牌数
+     */
+    int flushUsage();
+}
@@ -0,0 +1,61 @@
+package com.loveyue.auth.service;
+
+import com.loveyue.common.security.RoleHierarchy;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @Description: 角色层级服务接口，在内存中维护编译后的角色层级，角色变更时增量更新并通知其他节点
+ * @Date 2025/8/22
+ * @Author LoveYue
+ */
+public interface RoleHierarchyService {
+
+    /**
+     * 获取当前的角色层级快照
+     *
+     * @return 角色层级
+     */
+    RoleHierarchy getHierarchy();
+
+    /**
+     * 角色是否继承另一个角色（自身视为继承自身）
+     *
+     * @param roleId       角色ID
+     * @param juniorRoleId 被继承的角色ID
+     * @return 是否继承
+     */
+    boolean inherits(Long roleId, Long juniorRoleId);
+
+    /**
+     * 按角色名称解析角色ID，忽略不存在的角色
+     *
+     * @param roleNames 角色名称或英文名称
+     * @return 角色ID
+     */
+    Set<Long> resolveRoleIds(Collection<String> roleNames);
+
+    /**
+     * 角色集合的全部权限（含继承）
+     *
+     * @param roleIds 角色ID
+     * @return 权限编码
+     */
+    List<String> getPermissions(Collection<Long> roleIds);
+
+    /**
+     * 角色新增、修改或删除后调用：从数据库重新加载该角色，增量更新本节点并通知其他节点
+     *
+     * @param roleId 角色ID
+     */
+    void roleChanged(Long roleId);
+
+    /**
+     * 从数据库全量重建角色层级
+     *
+     * @return 角色数量
+     */
+    int rebuild();
+}
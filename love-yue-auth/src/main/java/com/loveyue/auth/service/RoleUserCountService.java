@@ -0,0 +1,41 @@
+package com.loveyue.auth.service;
+
+import java.util.Collection;
+
+/**
+ * @Description: 角色用户数量服务接口，成员变更时在内存中累加增量，定时批量写回role_entity.user_count，并定期重新统计校正
+ * @Date 2025/8/25
+ * @Author LoveYue
+ */
+public interface RoleUserCountService {
+
+    /**
+     * 用户的角色发生变化后调用：旧角色中被移除的减1，新角色中新增的加1
+     *
+     * @param oldRoleNames 变更前的角色名称，新增用户时为空
+     * @param newRoleNames 变更后的角色名称，删除用户时为空
+     */
+    void membershipChanged(Collection<String> oldRoleNames, Collection<String> newRoleNames);
+
+    /**
+     * 累加角色用户数量增量
+     *
+     * @param roleId 角色ID
+     * @param delta  增量
+     */
+    void increment(Long roleId, long delta);
+
+    /**
+     * 把累积的增量一次批量写回数据库
+     *
+     * @return 写回的角色数量
+     */
+    int flush();
+
+    /**
+     * 按用户ID范围分区并行重新统计各角色的用户数量，修正与统计结果不一致的角色
+     *
+     * @return 被修正的角色数量，其他节点正在校正时返回0
+     */
+    int reconcile();
+}
@@ -0,0 +1,67 @@
+package com.loveyue.auth.service;
+
+import com.loveyue.auth.entity.SSOSession;
+import com.loveyue.common.enums.SessionStatus;
+
+/**
+ * @Description: SSO会话存储服务接口，会话的实时状态以Redis哈希为准，数据库只接收异步快照
+ * @Date 2025/8/19
+ * @Author LoveYue
+ */
+public interface SSOSessionStoreService {
+
+    /**
+     * 创建会话：写入Redis并异步写入数据库快照
+     *
+     * @param session 会话，需已设置用户、过期时间等信息
+     * @return 创建的会话
+     */
+    SSOSession create(SSOSession session);
+
+    /**
+     * 读取会话的实时状态
+     *
+     * @param sessionId 会话ID
+     * @return 会话，不存在或已过期时为null
+     */
+    SSOSession get(Long sessionId);
+
+    /**
+     * 校验会话并记录一次访问，一次Redis调用，不访问数据库
+     *
+     * @param sessionId 会话ID
+     * @return 会话是否有效
+     */
+    boolean validate(Long sessionId);
+
+    /**
+     * 更新会话的状态和安全相关字段，下一个检查点写入数据库
+     *
+     * @param session 会话
+     */
+    void update(SSOSession session);
+
+    /**
+     * 结束会话：删除Redis中的会话并异步写入数据库
+     *
+     * @param sessionId 会话ID
+     * @param status    结束后的状态
+     * @param reason    登出原因
+     * @return 会话是否存在
+     */
+    boolean terminate(Long sessionId, SessionStatus status, String reason);
+
+    /**
+     * 把检查点之后更新过的会话批量写入数据库
+     *
+     * @return 写入的会话数
+     */
+    int checkpoint();
+
+    /**
+     * 从活跃会话集合中移除会话哈希已由Redis过期清理的成员
+     *
+     * @return 移除的成员数
+     */
+    int pruneActiveSessions();
+}
@@ -0,0 +1,52 @@
+package com.loveyue.auth.service;
+
+import com.loveyue.auth.entity.SSOSession;
+
+import java.util.Date;
+
+/**
+ * @Description: SSO会话活动服务接口，请求路径上的会话访问只在内存中合并，定期批量写回数据库
+ * @Date 2025/8/17
+ * @Author LoveYue
+ */
+public interface SessionActivityService {
+
+    /**
+     * 记录一次会话访问，代替在请求路径上调用{@link SSOSession#updateLastActivity()}并保存实体
+     *
+     * @param sessionId 会话ID
+     */
+    void touch(Long sessionId);
+
+    /**
+     * 获取会话最后活动时间，包含尚未写回数据库的访问
+     *
+     * @param session 会话
+     * @return 最后活动时间，从未活动时为null
+     */
+    Date getLastActivityTime(SSOSession session);
+
+    /**
+     * 获取会话最后活动时间，包含尚未写回数据库的访问
+     *
+     * @param sessionId                会话ID
+     * @param persistedLastActivityTime 数据库中的最后活动时间
+     * @return 最后活动时间，从未活动时为null
+     */
+    Date getLastActivityTime(Long sessionId, Date persistedLastActivityTime);
+
+    /**
+     * 检查会话是否超过最大非活动间隔，使用包含内存中未写回访问的最新活动时间
+     *
+     * @param session 会话
+     * @return 是否非活跃
+     */
+    boolean isInactive(SSOSession session);
+
+    /**
+     * 立即把合并后的会话活动批量写入数据库
+     *
+     * @return 写入的会话数
+     */
+    int flush();
+}
@@ -0,0 +1,47 @@
+package com.loveyue.auth.service;
+
+import com.loveyue.auth.dto.SessionDeadlineDTO;
+import com.loveyue.auth.entity.SSOSession;
+
+/**
+ * @Description: SSO会话到期服务接口，以分层时间轮调度每个会话的过期和非活跃事件，代替按时间字段扫描会话表
+ * @Date 2025/8/18
+ * @Author LoveYue
+ */
+public interface SessionExpiryService {
+
+    /**
+     * 调度会话的到期事件，已调度的会话按新的到期信息重新调度
+     *
+     * @param session 会话
+     */
+    void schedule(SSOSession session);
+
+    /**
+     * 调度会话的到期事件，已调度的会话按新的到期信息重新调度
+     *
+     * @param deadline 会话到期信息
+     */
+    void schedule(SessionDeadlineDTO deadline);
+
+    /**
+     * 取消会话的到期事件，会话被主动登出或终止时调用
+     *
+     * @param sessionId 会话ID
+     */
+    void cancel(Long sessionId);
+
+    /**
+     * 从数据库重建时间轮
+     *
+     * @return 调度的会话数
+     */
+    long rebuild();
+
+    /**
+     * 当前调度中的会话数
+     *
+     * @return 会话数
+     */
+    int getScheduledCount();
+}
@@ -0,0 +1,30 @@
+package com.loveyue.auth.service;
+
+import com.loveyue.auth.dto.BatchTokenValidateResultDTO;
+import com.loveyue.auth.dto.TokenIntrospectionDTO;
+
+import java.util.List;
+
+/**
+ * @Description: 令牌服务接口
+ * @Date 2025/8/4
+ * @Author LoveYue
+ */
+public interface TokenService {
+
+    /**
+     * 批量校验令牌
+     *
+     * @param tokens 令牌列表
+     * @return 批量校验结果
+     */
+    BatchTokenValidateResultDTO validateTokens(List<String> tokens);
+
+    /**
+     * 令牌内省（RFC 7662），结果在短时间内缓存
+     *
+     * @param token 令牌
+     * @return 内省结果
+     */
+    TokenIntrospectionDTO introspect(String token);
+}
@@ -0,0 +1,48 @@
+package com.loveyue.auth.service;
+
+import com.loveyue.auth.entity.UserEntity;
+import com.loveyue.common.security.PermissionSet;
+import io.jsonwebtoken.Claims;
+
+import java.util.Collection;
+
+/**
+ * @Description: 用户权限服务接口，把用户的角色（含继承）权限和直接权限编译为不可变的权限集合
+ * @Date 2025/8/23
+ * @Author LoveYue
+ */
+public interface UserPermissionService {
+
+    /**
+     * 编译有效权限：角色层级中各角色的有效权限与直接权限的并集
+     *
+     * @param roleNames   角色名称
+     * @param permissions 直接权限
+     * @return 权限集合
+     */
+    PermissionSet getPermissionSet(Collection<String> roleNames, Collection<String> permissions);
+
+    /**
+     * 编译用户的有效权限，解析用户的roles、permissions字段（JSON数组或逗号分隔）
+     *
+     * @param user 用户
+     * @return 权限集合
+     */
+    PermissionSet getPermissionSet(UserEntity user);
+
+    /**
+     * 编译令牌声明中的有效权限
+     *
+     * @param claims 已解析的令牌声明
+     * @return 权限集合
+     */
+    PermissionSet getPermissionSet(Claims claims);
+
+    /**
+     * 预先编译权限集合，用作{@link PermissionSet#hasAny(PermissionSet)}、{@link PermissionSet#hasAll(PermissionSet)}的参数
+     *
+     * @param permissions 权限编码
+     * @return 权限集合
+     */
+    PermissionSet compile(String... permissions);
+}
@@ -0,0 +1,49 @@
+package com.loveyue.auth.service;
+
+import com.loveyue.auth.dto.UserRetentionDTO;
+import com.loveyue.auth.dto.UserStatisticsDTO;
+import com.loveyue.common.enums.LoginResult;
+
+/**
+ * @Description: 用户统计服务接口，记录在本地缓冲后批量写入Redis的HyperLogLog、位图和计数器，查询均为O(1)
+ * @Date 2025/8/14
+ * @Author LoveYue
+ */
+public interface UserStatisticsService {
+
+    /**
+     * 记录用户活跃
+     *
+     * @param userId 用户ID
+     */
+    void recordActivity(Long userId);
+
+    /**
+     * 记录一次登录，成功时同时记录用户活跃
+     *
+     * @param userId      用户ID，用户不存在时为null
+     * @param loginResult 登录结果
+     */
+    void recordLogin(Long userId, LoginResult loginResult);
+
+    /**
+     * 获取当前统计概览
+     *
+     * @return 统计概览
+     */
+    UserStatisticsDTO getOverview();
+
+    /**
+     * 获取留存统计
+     *
+     * @param date 基准日期（格式：yyyy-MM-dd）
+     * @param days 间隔天数
+     * @return 留存统计
+     */
+    UserRetentionDTO getRetention(String date, int days);
+
+    /**
+     * 立即把本地缓冲写入Redis
+     */
+    void flush();
+}
@@ -0,0 +1,158 @@
+package com.loveyue.auth.service.impl;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import com.loveyue.auth.entity.UserEntity;
+import com.loveyue.auth.repository.RoleRepository;
+import com.loveyue.auth.service.DataScopeService;
+import com.loveyue.auth.service.RoleHierarchyService;
+import com.loveyue.common.security.DataScopeFilter;
+import com.loveyue.common.security.RoleHierarchy;
+import com.loveyue.common.utils.JwtUtil;
+import com.loveyue.common.utils.StringUtils;
+import io.jsonwebtoken.Claims;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @Description: 数据权限服务实现类
+ * <p>
+ * 全部有效角色的数据权限规则（dataScope及解析后的deptIds）一次性加载到内存，与加载时的角色层级快照绑定；
+ * 角色变更或定时重建产生新的层级快照后，下一次访问重新加载规则，不需要单独的失效通知。
+ * 用户的有效角色取角色层级中的继承闭包，合并后的数据权限范围按（角色集合，部门，本人）缓存，
+ * 请求路径上不解析JSON也不访问数据库。
+ * </p>
+ *
+ * <p>
+ * 当前没有部门表，DEPT_AND_CHILD按用户所在部门加角色deptIds中配置的下级部门处理。
+ * </p>
+ * @Date 2025/8/24
+ * @Author LoveYue
+ */
+@Slf4j
+@Service
+public class DataScopeServiceImpl implements DataScopeService {
+
+    private final RoleRepository roleRepository;
+
+    private final RoleHierarchyService roleHierarchyService;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final LRUCache<Key, Resolved> resolvedCache;
+
+    private volatile Rules rules;
+
+    public DataScopeServiceImpl(RoleRepository roleRepository,
+                                RoleHierarchyService roleHierarchyService,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${auth.data-scope.cache-size:10000}") int cacheSize) {
+        this.roleRepository = roleRepository;
+        this.roleHierarchyService = roleHierarchyService;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.resolvedCache = CacheUtil.newLRUCache(cacheSize);
+    }
+
+    @Override
+    public DataScopeFilter getDataScope(Collection<String> roleNames, Long departmentId, String owner) {
+        Key key = new Key(roleNames == null ? Set.of() : Set.copyOf(roleNames), departmentId, owner);
+        Rules current = currentRules();
+        Resolved resolved = resolvedCache.get(key, false);
+        if (resolved != null && resolved.rules() == current) {
+            return resolved.filter();
+        }
+
+        RoleHierarchy hierarchy = current.hierarchy();
+        List<DataScopeFilter.Rule> roleRules = new ArrayList<>();
+        for (Long roleId : hierarchy.getEffectiveRoleIds(roleHierarchyService.resolveRoleIds(key.roleNames()))) {
+            DataScopeFilter.Rule rule = current.rules().get(roleId);
+            if (rule != null) {
+                roleRules.add(rule);
+            }
+        }
+        DataScopeFilter filter = DataScopeFilter.resolve(roleRules, departmentId, owner);
+        resolvedCache.put(key, new Resolved(current, filter));
+        return filter;
+    }
+
+    @Override
+    public DataScopeFilter getDataScope(UserEntity user) {
+        return getDataScope(StringUtils.splitCodes(user.getRoles()), user.getDepartmentId(), user.getUsername());
+    }
+
+    @Override
+    public DataScopeFilter getDataScope(Claims claims) {
+        Object roles = claims.get(JwtUtil.CLAIM_ROLES);
+        Object deptId = claims.get(JwtUtil.CLAIM_DEPT_ID);
+        return getDataScope(
+                roles instanceof List<?> list ? list.stream().map(String::valueOf).toList() : null,
+                deptId instanceof Number number ? Long.valueOf(number.longValue()) : null,
+                claims.get(JwtUtil.CLAIM_USERNAME, String.class)
+        );
+    }
+
+    @Override
+    public synchronized int reload() {
+        RoleHierarchy hierarchy = roleHierarchyService.getHierarchy();
+        Map<Long, DataScopeFilter.Rule> loaded = readOnlyTransactionTemplate.execute(status ->
+                roleRepository.findAllDataScopeRules());
+        rules = new Rules(hierarchy, loaded == null ? Map.of() : loaded);
+        log.debug("角色数据权限规则加载完成，{}个", rules.rules().size());
+        return rules.rules().size();
+    }
+
+    /**
+     * 与当前角色层级快照一致的规则，层级变更后重新加载；加载失败时沿用旧规则直到下一次层级变更
+     */
+    private Rules currentRules() {
+        Rules current = rules;
+        RoleHierarchy hierarchy = roleHierarchyService.getHierarchy();
+        if (current != null && current.hierarchy() == hierarchy) {
+            return current;
+        }
+        synchronized (this) {
+            current = rules;
+            if (current != null && current.hierarchy() == hierarchy) {
+                return current;
+            }
+            try {
+                reload();
+            } catch (Exception e) {
+                if (current == null) {
+                    throw e;
+                }
+                log.warn("角色数据权限规则加载失败，沿用旧规则: {}", e.getMessage());
+                rules = new Rules(hierarchy, current.rules());
+            }
+            return rules;
+        }
+    }
+
+    /**
+     * 缓存键：角色名称集合、用户所在部门和本人标识
+     */
+    private record Key(Set<String> roleNames, Long departmentId, String owner) {
+    }
+
+    /**
+     * 角色数据权限规则及加载时的角色层级快照
+     */
+    private record Rules(RoleHierarchy hierarchy, Map<Long, DataScopeFilter.Rule> rules) {
+    }
+
+    /**
+     * 解析结果及解析时使用的规则
+     */
+    private record Resolved(Rules rules, DataScopeFilter filter) {
+    }
+}
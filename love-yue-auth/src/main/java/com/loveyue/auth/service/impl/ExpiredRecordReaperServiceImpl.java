@@ -0,0 +1,362 @@
+package com.loveyue.auth.service.impl;
+
+import com.loveyue.auth.repository.DatabaseLoadRepository;
+import com.loveyue.auth.repository.RefreshTokenRepository;
+import com.loveyue.auth.repository.SSOSessionRepository;
+import com.loveyue.auth.service.ExpiredRecordReaperService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Description: 过期记录清理服务实现类
+ * <p>
+ * 在独立线程上定时执行，不占用共享的@Scheduled线程。每张表按主键顺序分批删除，每批一个短事务，
+ * 以上一批最大ID作为下一批的起点，不重复扫描已清理的区间；被其他事务锁定的行跳过，留到下一轮。
+ * </p>
+ *
+ * <p>
+ * 节流：每批之间暂停该批耗时的pause-factor倍；单批耗时超过target-batch-time时批大小减半，
+ * 否则逐步恢复到batch-size。每批之前检查备库回放延迟和活跃连接数，超过阈值时结束本轮，下一轮重新开始。
+ * </p>
+ *
+ * <p>
+ * 指标：love_yue.reaper.deleted（按table区分）、love_yue.reaper.batch（每批耗时）、
+ * love_yue.reaper.throttled（按reason区分）、love_yue.reaper.batch.size（当前批大小）。
+ * </p>
+ * @Date 2025/8/21
+ * @Author LoveYue
+ */
+@Slf4j
+@Service
+public class ExpiredRecordReaperServiceImpl implements ExpiredRecordReaperService {
+
+    private static final String TABLE_REFRESH_TOKEN = "refresh_token";
+
+    private static final String TABLE_SSO_SESSION = "sso_session";
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    private final SSOSessionRepository ssoSessionRepository;
+
+    private final DatabaseLoadRepository databaseLoadRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    /**
+     * 是否启用清理
+     */
+    @Value("${auth.reaper.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 两轮清理之间的间隔
+     */
+    @Value("${auth.reaper.interval:5m}")
+    private Duration interval;
+
+    /**
+     * 过期后保留的时长
+     */
+    @Value("${auth.reaper.expired-grace:1h}")
+    private Duration expiredGrace;
+
+    /**
+     * 撤销或登出后保留的时长
+     */
+    @Value("${auth.reaper.ended-retention:7d}")
+    private Duration endedRetention;
+
+    /**
+     * 每批最多删除的行数
+     */
+    @Value("${auth.reaper.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 批大小下限
+     */
+    @Value("${auth.reaper.min-batch-size:50}")
+    private int minBatchSize;
+
+    /**
+     * 单批目标耗时，超过后批大小减半
+     */
+    @Value("${auth.reaper.target-batch-time:200ms}")
+    private Duration targetBatchTime;
+
+    /**
+     * 每批之间的暂停时长与该批耗时之比
+     */
+    @Value("${auth.reaper.pause-factor:1.0}")
+    private double pauseFactor;
+
+    /**
+     * 每轮每张表最多执行的批数
+     */
+    @Value("${auth.reaper.max-batches-per-run:500}")
+    private int maxBatchesPerRun;
+
+    /**
+     * 备库回放延迟阈值
+     */
+    @Value("${auth.reaper.max-replication-lag:10s}")
+    private Duration maxReplicationLag;
+
+    /**
+     * 活跃连接数阈值，0表示不检查
+     */
+    @Value("${auth.reaper.max-active-backends:32}")
+    private int maxActiveBackends;
+
+    private final AtomicInteger currentBatchSize = new AtomicInteger();
+
+    private ScheduledExecutorService reaperExecutor;
+
+    private Counter lagThrottledCounter;
+
+    private Counter loadThrottledCounter;
+
+    private Timer batchTimer;
+
+    private volatile boolean running;
+
+    public ExpiredRecordReaperServiceImpl(RefreshTokenRepository refreshTokenRepository,
+                                          SSOSessionRepository ssoSessionRepository,
+                                          DatabaseLoadRepository databaseLoadRepository,
+                                          PlatformTransactionManager transactionManager,
+                                          ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.ssoSessionRepository = ssoSessionRepository;
+        this.databaseLoadRepository = databaseLoadRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistryProvider = meterRegistryProvider;
+    }
+
+    @PostConstruct
+    public void init() {
+        minBatchSize = Math.max(1, Math.min(minBatchSize, batchSize));
+        currentBatchSize.set(batchSize);
+
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        if (meterRegistry != null) {
+            Gauge.builder("love_yue.reaper.batch.size", currentBatchSize, AtomicInteger::get)
+                    .description("过期记录清理当前批大小")
+                    .register(meterRegistry);
+            lagThrottledCounter = throttledCounter(meterRegistry, "replication_lag");
+            loadThrottledCounter = throttledCounter(meterRegistry, "active_backends");
+            batchTimer = Timer.builder("love_yue.reaper.batch")
+                    .description("过期记录清理每批耗时")
+                    .register(meterRegistry);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        reaperExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "expired-record-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reaperExecutor.scheduleWithFixedDelay(this::reapSafely, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        if (reaperExecutor != null) {
+            reaperExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public long reap() {
+        long now = System.currentTimeMillis();
+        Date expiredBefore = new Date(now - expiredGrace.toMillis());
+        Date endedBefore = new Date(now - endedRetention.toMillis());
+
+        long deleted = reapTable(TABLE_REFRESH_TOKEN, (afterId, limit) ->
+                refreshTokenRepository.deleteExpiredBatch(afterId, expiredBefore, endedBefore, limit));
+        deleted += reapTable(TABLE_SSO_SESSION, (afterId, limit) ->
+                ssoSessionRepository.deleteExpiredBatch(afterId, expiredBefore, endedBefore, limit));
+        if (deleted > 0) {
+            log.info("过期记录清理完成，共删除{}行", deleted);
+        }
+        return deleted;
+    }
+
+    private void reapSafely() {
+        try {
+            reap();
+        } catch (Exception e) {
+            log.warn("过期记录清理失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 分批清理一张表
+     */
+    private long reapTable(String table, BatchDeleter deleter) {
+        Counter deletedCounter = deletedCounter(table);
+        long afterId = 0;
+        long deleted = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            if (Thread.currentThread().isInterrupted() || overloaded()) {
+                break;
+            }
+
+            int limit = currentBatchSize.get();
+            long start = System.nanoTime();
+            long cursor = afterId;
+            List<Long> ids = transactionTemplate.execute(status -> deleter.delete(cursor, limit));
+            long elapsedNanos = System.nanoTime() - start;
+            if (batchTimer != null) {
+                batchTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            }
+            if (ids == null || ids.isEmpty()) {
+                break;
+            }
+
+            deleted += ids.size();
+            if (deletedCounter != null) {
+                deletedCounter.increment(ids.size());
+            }
+            afterId = Collections.max(ids);
+            adjustBatchSize(elapsedNanos);
+            if (ids.size() < limit) {
+                break;
+            }
+            if (!pause(elapsedNanos)) {
+                break;
+            }
+        }
+        if (deleted > 0) {
+            log.debug("{}已清理{}行", table, deleted);
+        }
+        return deleted;
+    }
+
+    /**
+     * 单批耗时超过目标时批大小减半，否则每批增加四分之一直到配置值
+     */
+    private void adjustBatchSize(long elapsedNanos) {
+        int size = currentBatchSize.get();
+        if (elapsedNanos > targetBatchTime.toNanos()) {
+            currentBatchSize.set(Math.max(minBatchSize, size / 2));
+        } else if (size < batchSize) {
+            currentBatchSize.set(Math.min(batchSize, size + Math.max(1, size / 4)));
+        }
+    }
+
+    /**
+     * 按上一批耗时暂停，给其他事务和复制留出余量
+     *
+     * @return 线程被中断时返回false
+     */
+    private boolean pause(long elapsedNanos) {
+        long pauseMillis = (long) (TimeUnit.NANOSECONDS.toMillis(elapsedNanos) * pauseFactor);
+        if (pauseMillis <= 0) {
+            return running;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+            return running;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 备库回放延迟或活跃连接数超过阈值
+     */
+    private boolean overloaded() {
+        if (!running) {
+            return true;
+        }
+        try {
+            TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+            readOnly.setReadOnly(true);
+            long[] load = readOnly.execute(status -> new long[]{
+                    databaseLoadRepository.getReplicationLagMillis(),
+                    maxActiveBackends > 0 ? databaseLoadRepository.getActiveBackendCount() : 0});
+            if (load == null) {
+                return false;
+            }
+            if (load[0] > maxReplicationLag.toMillis()) {
+                increment(lagThrottledCounter);
+                log.info("备库回放延迟{}毫秒，暂停过期记录清理", load[0]);
+                return true;
+            }
+            if (maxActiveBackends > 0 && load[1] > maxActiveBackends) {
+                increment(loadThrottledCounter);
+                log.info("数据库活跃连接数{}，暂停过期记录清理", load[1]);
+                return true;
+            }
+            return false;
+        } catch (Exception e) {
+            log.debug("读取数据库负载失败，按未过载处理: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private Counter deletedCounter(String table) {
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        if (meterRegistry == null) {
+            return null;
+        }
+        return Counter.builder("love_yue.reaper.deleted")
+                .description("过期记录清理删除的行数")
+                .tag("table", table)
+                .register(meterRegistry);
+    }
+
+    private static Counter throttledCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("love_yue.reaper.throttled")
+                .description("过期记录清理因数据库负载提前结束的次数")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    /**
+     * 按主键顺序删除一批记录
+     */
+    @FunctionalInterface
+    private interface BatchDeleter {
+
+        List<Long> delete(long afterId, int limit);
+    }
+}
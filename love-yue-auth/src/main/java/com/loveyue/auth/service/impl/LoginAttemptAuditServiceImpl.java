@@ -0,0 +1,410 @@
+package com.loveyue.auth.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.loveyue.auth.entity.LoginAttempt;
+import com.loveyue.auth.repository.LoginAttemptRepository;
+import com.loveyue.auth.service.LoginAttemptAuditService;
+import com.loveyue.common.enums.AuditOverflowPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * @Description: 登录尝试审计服务实现类
+ * <p>
+ * 提交的记录转换为行数组后进入无锁有界队列（ConcurrentLinkedQueue加原子计数），后台写入线程按批次大小或刷新间隔
+ * 取出记录，以单条多行INSERT写入login_attempt。队列已满时先按背压时间自旋等待，仍无空间则按溢出策略处理。
+ * </p>
+ *
+ * <p>
+ * 数据库写入失败或溢出策略为SPILL_TO_DISK时，记录以JSON行追加到本地溢出文件；写入线程定期回放溢出文件，
+ * 成功后删除。应用关闭时队列中剩余的记录写入数据库，失败则落盘，重启后回放。
+ * 指标：love_yue.login_audit.queue.size、love_yue.login_audit.records（按outcome区分）、love_yue.login_audit.batch.write。
+ * </p>
+ * @Date 2025/8/15
+ * @Author LoveYue
+ */
+@Slf4j
+@Service
+public class LoginAttemptAuditServiceImpl implements LoginAttemptAuditService {
+
+    private static final String SPILL_FILE_PREFIX = "login-attempt-";
+
+    private static final String SPILL_FILE_SUFFIX = ".jsonl";
+
+    private final LoginAttemptRepository loginAttemptRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    private final ConcurrentLinkedQueue<Object[]> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger queueSize = new AtomicInteger();
+
+    /**
+     * 队列容量
+     */
+    @Value("${auth.login-audit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    /**
+     * 单批写入的最大记录数
+     */
+    @Value("${auth.login-audit.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * 队列未满一批时的最长等待时间（毫秒）
+     */
+    @Value("${auth.login-audit.flush-interval-millis:500}")
+    private long flushIntervalMillis;
+
+    /**
+     * 队列已满时提交方的最长等待时间（毫秒），0表示不等待直接按溢出策略处理
+     */
+    @Value("${auth.login-audit.offer-timeout-millis:0}")
+    private long offerTimeoutMillis;
+
+    /**
+     * 队列溢出策略
+     */
+    @Value("${auth.login-audit.overflow-policy:SPILL_TO_DISK}")
+    private AuditOverflowPolicy overflowPolicy;
+
+    /**
+     * 溢出文件目录
+     */
+    @Value("${auth.login-audit.spill-dir:${java.io.tmpdir}/love-yue-auth/login-audit}")
+    private String spillDir;
+
+    /**
+     * 溢出文件回放间隔（毫秒）
+     */
+    @Value("${auth.login-audit.replay-interval-millis:30000}")
+    private long replayIntervalMillis;
+
+    private volatile boolean running;
+
+    private Thread writerThread;
+
+    private Path spillDirectory;
+
+    /**
+     * 当前追加的溢出文件，回放前轮换
+     */
+    private Path currentSpillFile;
+
+    private long lastReplayAt;
+
+    private Counter writtenCounter;
+
+    private Counter droppedCounter;
+
+    private Counter spilledCounter;
+
+    private Counter failedCounter;
+
+    private Timer batchWriteTimer;
+
+    public LoginAttemptAuditServiceImpl(LoginAttemptRepository loginAttemptRepository,
+                                        PlatformTransactionManager transactionManager,
+                                        ObjectProvider<ObjectMapper> objectMapperProvider,
+                                        ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.loginAttemptRepository = loginAttemptRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapperProvider.getIfAvailable(ObjectMapper::new);
+        this.meterRegistryProvider = meterRegistryProvider;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        // PostgreSQL单条语句最多32767个绑定参数
+        batchSize = Math.max(1, Math.min(batchSize, Short.MAX_VALUE / LoginAttemptRepository.COLUMNS.size()));
+        spillDirectory = Paths.get(spillDir);
+        Files.createDirectories(spillDirectory);
+
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        if (meterRegistry != null) {
+            Gauge.builder("love_yue.login_audit.queue.size", queueSize, AtomicInteger::get)
+                    .description("等待写入的登录审计记录数")
+                    .register(meterRegistry);
+            writtenCounter = recordCounter(meterRegistry, "written");
+            droppedCounter = recordCounter(meterRegistry, "dropped");
+            spilledCounter = recordCounter(meterRegistry, "spilled");
+            failedCounter = recordCounter(meterRegistry, "failed");
+            batchWriteTimer = Timer.builder("love_yue.login_audit.batch.write")
+                    .description("登录审计批量写入耗时")
+                    .register(meterRegistry);
+        }
+
+        running = true;
+        writerThread = new Thread(this::runWriter, "login-audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        if (writerThread != null) {
+            LockSupport.unpark(writerThread);
+            try {
+                writerThread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // 写入线程退出后处理剩余记录
+        List<Object[]> batch;
+        while (!(batch = drain(batchSize)).isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+
+    @Override
+    public boolean record(LoginAttempt loginAttempt) {
+        Object[] row = LoginAttemptRepository.toRow(loginAttempt);
+        if (tryEnqueue(row) || (offerTimeoutMillis > 0 && enqueueWithBackPressure(row))) {
+            return true;
+        }
+
+        switch (overflowPolicy) {
+            case DROP_OLDEST -> {
+                if (queue.poll() != null) {
+                    queueSize.decrementAndGet();
+                }
+                increment(droppedCounter, 1);
+                return tryEnqueue(row);
+            }
+            case SPILL_TO_DISK -> {
+                return spill(List.<Object[]>of(row));
+            }
+            default -> {
+                increment(droppedCounter, 1);
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public int getPendingCount() {
+        return queueSize.get();
+    }
+
+    private boolean tryEnqueue(Object[] row) {
+        int size = queueSize.incrementAndGet();
+        if (size > queueCapacity) {
+            queueSize.decrementAndGet();
+            return false;
+        }
+        queue.offer(row);
+        if (size >= batchSize) {
+            LockSupport.unpark(writerThread);
+        }
+        return true;
+    }
+
+    private boolean enqueueWithBackPressure(Object[] row) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+        LockSupport.unpark(writerThread);
+        while (System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            if (tryEnqueue(row)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void runWriter() {
+        while (running) {
+            if (queueSize.get() < batchSize) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis));
+            }
+
+            List<Object[]> batch = drain(batchSize);
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+            } else if (System.currentTimeMillis() - lastReplayAt >= replayIntervalMillis) {
+                // 队列空闲时回放溢出文件
+                lastReplayAt = System.currentTimeMillis();
+                replaySpillFiles();
+            }
+        }
+    }
+
+    private List<Object[]> drain(int maxSize) {
+        List<Object[]> batch = new ArrayList<>(Math.min(maxSize, Math.max(queueSize.get(), 1)));
+        Object[] row;
+        while (batch.size() < maxSize && (row = queue.poll()) != null) {
+            queueSize.decrementAndGet();
+            batch.add(row);
+        }
+        return batch;
+    }
+
+    /**
+     * 写入一批记录，失败时落盘
+     */
+    private void writeBatch(List<Object[]> batch) {
+        if (insert(batch)) {
+            increment(writtenCounter, batch.size());
+        } else {
+            increment(failedCounter, batch.size());
+            spill(batch);
+        }
+    }
+
+    private boolean insert(List<Object[]> rows) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> loginAttemptRepository.insertRows(rows));
+            return true;
+        } catch (Exception e) {
+            log.warn("登录审计记录批量写入失败，共{}条: {}", rows.size(), e.getMessage());
+            return false;
+        } finally {
+            if (batchWriteTimer != null) {
+                batchWriteTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * 追加到当前溢出文件，每行一条JSON数组
+     */
+    private synchronized boolean spill(List<Object[]> rows) {
+        if (currentSpillFile == null) {
+            currentSpillFile = spillDirectory.resolve(
+                    SPILL_FILE_PREFIX + System.currentTimeMillis() + "-" + System.nanoTime() + SPILL_FILE_SUFFIX);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(currentSpillFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Object[] row : rows) {
+                writer.write(objectMapper.writeValueAsString(row));
+                writer.newLine();
+            }
+            increment(spilledCounter, rows.size());
+            return true;
+        } catch (IOException e) {
+            log.error("登录审计记录写入溢出文件失败，丢弃{}条: {}", rows.size(), e.getMessage());
+            increment(droppedCounter, rows.size());
+            return false;
+        }
+    }
+
+    /**
+     * 回放溢出文件，成功写入的文件删除，遇到数据库错误时停止，等待下次回放。
+     * 写入时跳过已存在的记录，部分批次已提交的文件重新回放不会因主键冲突一直失败
+     */
+    private void replaySpillFiles() {
+        synchronized (this) {
+            // 轮换后新的溢出记录写入新文件，避免回放与追加同一文件
+            currentSpillFile = null;
+        }
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(spillDirectory)) {
+            files = stream.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SPILL_FILE_PREFIX) && name.endsWith(SPILL_FILE_SUFFIX);
+            }).sorted().toList();
+        } catch (IOException e) {
+            log.warn("读取登录审计溢出目录失败: {}", e.getMessage());
+            return;
+        }
+
+        for (Path file : files) {
+            if (!replaySpillFile(file)) {
+                return;
+            }
+        }
+    }
+
+    private boolean replaySpillFile(Path file) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<Object[]> batch = new ArrayList<>(batchSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(objectMapper.readValue(line, Object[].class));
+                } catch (JsonProcessingException e) {
+                    // 损坏的行（如进程退出时写了一半）跳过，避免阻塞整个文件及后续文件的回放
+                    log.warn("跳过无法解析的登录审计溢出记录: {}，{}", file, e.getOriginalMessage());
+                    increment(droppedCounter, 1);
+                    continue;
+                }
+                if (batch.size() >= batchSize) {
+                    if (!insert(batch)) {
+                        return false;
+                    }
+                    increment(writtenCounter, batch.size());
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                if (!insert(batch)) {
+                    return false;
+                }
+                increment(writtenCounter, batch.size());
+            }
+        } catch (IOException e) {
+            log.warn("回放登录审计溢出文件失败: {}，{}", file, e.getMessage());
+            return false;
+        }
+
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除已回放的登录审计溢出文件失败: {}，{}", file, e.getMessage());
+        }
+        log.info("登录审计溢出文件回放完成: {}", file);
+        return true;
+    }
+
+    private static Counter recordCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("love_yue.login_audit.records")
+                .description("登录审计记录处理数")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static void increment(Counter counter, int amount) {
+        if (counter != null) {
+            counter.increment(amount);
+        }
+    }
+}
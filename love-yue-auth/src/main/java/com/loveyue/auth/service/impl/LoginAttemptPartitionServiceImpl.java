@@ -0,0 +1,423 @@
+package com.loveyue.auth.service.impl;
+
+import com.loveyue.auth.repository.LoginAttemptRepository;
+import com.loveyue.auth.service.LoginAttemptPartitionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Types;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @Description: 登录尝试记录分区维护服务实现类
+ * <p>
+ * 应用启动后和每天定时执行一次维护：login_attempt仍为普通表时转换为按attempt_time月度分区的表，
+ * 预先创建当前月份之后premake-months个月的分区；超出已建范围的记录进入默认分区，维护时迁入补建的月度分区；
+ * 早于retention-months个月的分区先归档再整体删除，删除分区不产生逐行DELETE和索引维护，
+ * 热数据的分区数量和索引大小保持稳定。建表和建分区在一个短事务中完成，每个过期分区的归档和删除各自一个事务。
+ * </p>
+ *
+ * <p>
+ * 归档文件为gzip压缩的列式文件（login_attempt_pYYYYMM.lya.gz）：文件头记录列名和JDBC类型，
+ * 之后按行组写入，每个行组内逐列连续存放该列全部取值，相同列的数据相邻，压缩率高于按行导出。
+ * 归档先写入临时文件，完成后原子重命名，归档失败的分区保留到下次维护。
+ * 字节格式见{@link ColumnarArchiveWriter}，{@link #restore(YearMonth)}可将归档文件写回数据库。
+ * </p>
+ * @Date 2025/8/16
+ * @Author LoveYue
+ */
+@Slf4j
+@Service
+public class LoginAttemptPartitionServiceImpl implements LoginAttemptPartitionService {
+
+    private static final String ARCHIVE_FILE_SUFFIX = ".lya.gz";
+
+    /**
+     * 恢复时每条INSERT的行数，避免超出单条语句的参数个数上限
+     */
+    private static final int RESTORE_BATCH_SIZE = 1000;
+
+    private final LoginAttemptRepository loginAttemptRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 是否启用分区维护
+     */
+    @Value("${auth.login-audit.partition.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 预先创建的后续月份数
+     */
+    @Value("${auth.login-audit.partition.premake-months:3}")
+    private int premakeMonths;
+
+    /**
+     * 保留的月份数（含当前月份），更早的分区被归档并删除
+     */
+    @Value("${auth.login-audit.partition.retention-months:6}")
+    private int retentionMonths;
+
+    /**
+     * 删除前是否归档
+     */
+    @Value("${auth.login-audit.partition.archive-enabled:true}")
+    private boolean archiveEnabled;
+
+    /**
+     * 归档文件目录
+     */
+    @Value("${auth.login-audit.partition.archive-dir:data/archive/login-attempt}")
+    private String archiveDir;
+
+    /**
+     * 归档时每个行组的行数，同时作为读取游标的fetch size
+     */
+    @Value("${auth.login-audit.partition.archive-row-group-size:8192}")
+    private int rowGroupSize;
+
+    public LoginAttemptPartitionServiceImpl(LoginAttemptRepository loginAttemptRepository,
+                                            PlatformTransactionManager transactionManager) {
+        this.loginAttemptRepository = loginAttemptRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scheduledMaintain();
+    }
+
+    @Scheduled(cron = "${auth.login-audit.partition.maintenance-cron:0 30 3 * * ?}")
+    public void scheduledMaintain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            maintain();
+        } catch (Exception e) {
+            log.error("登录尝试记录分区维护失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int maintain() {
+        List<YearMonth> expired = transactionTemplate.execute(status -> {
+            if (!loginAttemptRepository.tryLockPartitionMaintenance()) {
+                log.debug("其他节点正在执行登录尝试记录分区维护，跳过");
+                return List.<YearMonth>of();
+            }
+
+            YearMonth current = YearMonth.now();
+            YearMonth premakeUpTo = current.plusMonths(premakeMonths);
+            if (!loginAttemptRepository.isPartitioned()) {
+                log.info("login_attempt转换为按月分区表");
+                loginAttemptRepository.convertToPartitioned(premakeUpTo);
+            }
+            loginAttemptRepository.createDefaultPartition();
+            for (YearMonth month = current; !month.isAfter(premakeUpTo); month = month.plusMonths(1)) {
+                loginAttemptRepository.createPartition(month);
+            }
+            // 落入默认分区的记录迁入各自的月度分区，过期的随后按保留策略归档删除
+            for (YearMonth month : loginAttemptRepository.listDefaultPartitionMonths()) {
+                loginAttemptRepository.createPartition(month);
+            }
+
+            YearMonth oldestRetained = current.minusMonths(Math.max(retentionMonths, 1) - 1L);
+            return loginAttemptRepository.listPartitions().stream()
+                    .filter(month -> month.isBefore(oldestRetained))
+                    .toList();
+        });
+        if (expired == null) {
+            return 0;
+        }
+
+        int count = 0;
+        for (YearMonth month : expired) {
+            try {
+                if (archiveAndDrop(month)) {
+                    count++;
+                }
+            } catch (Exception e) {
+                log.error("登录尝试记录过期分区处理失败，保留分区待下次维护: {}，{}",
+                        LoginAttemptRepository.partitionName(month), e.getMessage());
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 在独立事务中归档并删除一个过期分区
+     * <p>
+     * 归档期间只读取该分区，删除分区需要的父表排他锁只在事务末尾短暂持有，不会在整个归档过程中阻塞login_attempt的写入。
+     * </p>
+     *
+     * @param month 分区月份
+     * @return 是否已删除
+     */
+    private boolean archiveAndDrop(YearMonth month) {
+        Boolean dropped = transactionTemplate.execute(status -> {
+            if (!loginAttemptRepository.tryLockPartitionMaintenance()
+                    || !loginAttemptRepository.listPartitions().contains(month)) {
+                return false;
+            }
+            if (archiveEnabled && !archive(month)) {
+                return false;
+            }
+            loginAttemptRepository.dropPartition(month);
+            log.info("登录尝试记录过期分区已删除: {}", LoginAttemptRepository.partitionName(month));
+            return true;
+        });
+        return Boolean.TRUE.equals(dropped);
+    }
+
+    @Override
+    public long restore(YearMonth month) {
+        Path file = Paths.get(archiveDir).resolve(LoginAttemptRepository.partitionName(month) + ARCHIVE_FILE_SUFFIX);
+        if (!Files.exists(file)) {
+            throw new IllegalArgumentException("归档文件不存在: " + file.toAbsolutePath());
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!loginAttemptRepository.tryLockPartitionMaintenance()) {
+                throw new IllegalStateException("其他节点正在执行登录尝试记录分区维护，请稍后重试");
+            }
+            loginAttemptRepository.createPartition(month);
+        });
+
+        long rows = 0;
+        try (ColumnarArchiveReader reader = new ColumnarArchiveReader(file)) {
+            List<Object[]> rowGroup;
+            while (!(rowGroup = reader.readRowGroup()).isEmpty()) {
+                for (int from = 0; from < rowGroup.size(); from += RESTORE_BATCH_SIZE) {
+                    List<Object[]> batch = rowGroup.subList(from, Math.min(rowGroup.size(), from + RESTORE_BATCH_SIZE));
+                    transactionTemplate.executeWithoutResult(status -> loginAttemptRepository.insertRows(batch));
+                }
+                rows += rowGroup.size();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取登录尝试记录归档文件失败: " + file, e);
+        }
+        log.info("登录尝试记录已从归档恢复: {}，共{}行", LoginAttemptRepository.partitionName(month), rows);
+        return rows;
+    }
+
+    /**
+     * 将分区导出为列式归档文件
+     *
+     * @param month 分区月份
+     * @return 是否归档成功
+     */
+    private boolean archive(YearMonth month) {
+        String partitionName = LoginAttemptRepository.partitionName(month);
+        Path directory = Paths.get(archiveDir);
+        Path target = directory.resolve(partitionName + ARCHIVE_FILE_SUFFIX);
+        Path temp = directory.resolve(partitionName + ARCHIVE_FILE_SUFFIX + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            long rows;
+            try (ColumnarArchiveWriter writer = new ColumnarArchiveWriter(temp, rowGroupSize)) {
+                rows = loginAttemptRepository.scanPartition(month, rowGroupSize, writer::write);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("登录尝试记录分区已归档: {}，共{}行，文件{}", partitionName, rows, target.toAbsolutePath());
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            log.error("登录尝试记录分区归档失败，保留分区待下次维护: {}，{}", partitionName, e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // 临时文件下次归档时覆盖
+            }
+            return false;
+        }
+    }
+
+    /**
+     * gzip压缩的列式归档文件写入器
+     * <p>
+     * 文件格式（gzip解压后，整数均为大端序，与{@link DataOutputStream}一致）：
+     * </p>
+     * <pre>
+     * int32   魔数0x4C594131（"LYA1"）
+     * int16   列数
+     * 每列    列名（DataOutputStream.writeUTF：uint16长度 + modified UTF-8）、int32 JDBC类型（java.sql.Types）
+     * 行组*   int32行数n（n &gt; 0），随后按列依次写出该列的n个取值
+     * int32   0，文件结束
+     * </pre>
+     * <p>
+     * 每个取值以1字节非空标志开头（0为null，之后无内容），非空时按类型：TIMESTAMP（epoch毫秒）和BIGINT为int64，
+     * INTEGER为int32，BOOLEAN为1字节，其余为int32字节数 + UTF-8字节。对应的读取见{@link ColumnarArchiveReader}。
+     * </p>
+     */
+    private static final class ColumnarArchiveWriter implements Closeable {
+
+        /**
+         * 文件魔数 "LYA1"
+         */
+        private static final int MAGIC = 0x4C594131;
+
+        private final DataOutputStream out;
+
+        private final int rowGroupSize;
+
+        private final List<Object[]> rowGroup;
+
+        private ColumnarArchiveWriter(Path file, int rowGroupSize) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(file), 64 * 1024), 64 * 1024));
+            this.rowGroupSize = Math.max(rowGroupSize, 1);
+            this.rowGroup = new ArrayList<>(this.rowGroupSize);
+
+            out.writeInt(MAGIC);
+            out.writeShort(LoginAttemptRepository.COLUMNS.size());
+            for (LoginAttemptRepository.Column column : LoginAttemptRepository.COLUMNS) {
+                out.writeUTF(column.name());
+                out.writeInt(column.sqlType());
+            }
+        }
+
+        private void write(Object[] row) {
+            rowGroup.add(row);
+            if (rowGroup.size() >= rowGroupSize) {
+                try {
+                    flushRowGroup();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        private void flushRowGroup() throws IOException {
+            out.writeInt(rowGroup.size());
+            for (int i = 0; i < LoginAttemptRepository.COLUMNS.size(); i++) {
+                int sqlType = LoginAttemptRepository.COLUMNS.get(i).sqlType();
+                for (Object[] row : rowGroup) {
+                    writeValue(sqlType, row[i]);
+                }
+            }
+            rowGroup.clear();
+        }
+
+        private void writeValue(int sqlType, Object value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value == null) {
+                return;
+            }
+            switch (sqlType) {
+                case Types.TIMESTAMP, Types.BIGINT -> out.writeLong(((Number) value).longValue());
+                case Types.INTEGER -> out.writeInt(((Number) value).intValue());
+                case Types.BOOLEAN -> out.writeBoolean((Boolean) value);
+                default -> {
+                    byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (!rowGroup.isEmpty()) {
+                    flushRowGroup();
+                }
+                out.writeInt(0);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * 列式归档文件读取器，格式见{@link ColumnarArchiveWriter}。行数组格式与{@link LoginAttemptRepository#toRow}一致
+     */
+    private static final class ColumnarArchiveReader implements Closeable {
+
+        private final DataInputStream in;
+
+        private ColumnarArchiveReader(Path file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(
+                    new GZIPInputStream(Files.newInputStream(file), 64 * 1024), 64 * 1024));
+            try {
+                if (in.readInt() != ColumnarArchiveWriter.MAGIC) {
+                    throw new IOException("不是登录尝试记录归档文件: " + file);
+                }
+                int columnCount = in.readShort();
+                if (columnCount != LoginAttemptRepository.COLUMNS.size()) {
+                    throw new IOException("归档文件列数与当前表结构不一致: " + columnCount);
+                }
+                for (LoginAttemptRepository.Column column : LoginAttemptRepository.COLUMNS) {
+                    String name = in.readUTF();
+                    int sqlType = in.readInt();
+                    if (!column.name().equals(name) || column.sqlType() != sqlType) {
+                        throw new IOException("归档文件列定义与当前表结构不一致: " + name);
+                    }
+                }
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        /**
+         * 读取下一个行组，文件结束时返回空列表
+         */
+        private List<Object[]> readRowGroup() throws IOException {
+            int rowCount = in.readInt();
+            List<Object[]> rows = new ArrayList<>(rowCount);
+            for (int r = 0; r < rowCount; r++) {
+                rows.add(new Object[LoginAttemptRepository.COLUMNS.size()]);
+            }
+            for (int i = 0; i < LoginAttemptRepository.COLUMNS.size(); i++) {
+                int sqlType = LoginAttemptRepository.COLUMNS.get(i).sqlType();
+                for (Object[] row : rows) {
+                    row[i] = readValue(sqlType);
+                }
+            }
+            return rows;
+        }
+
+        private Object readValue(int sqlType) throws IOException {
+            if (!in.readBoolean()) {
+                return null;
+            }
+            return switch (sqlType) {
+                case Types.TIMESTAMP, Types.BIGINT -> in.readLong();
+                case Types.INTEGER -> in.readInt();
+                case Types.BOOLEAN -> in.readBoolean();
+                default -> {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    yield new String(bytes, StandardCharsets.UTF_8);
+                }
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.loveyue.auth.service.impl;
+
+import com.loveyue.auth.dto.LoginLockoutStateDTO;
+import com.loveyue.auth.repository.UserRepository;
+import com.loveyue.auth.service.LoginLockoutService;
+import com.loveyue.common.constant.RedisKeys;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Description: 登录失败计数与账户锁定服务实现类
+ * <p>
+ * 失败计数和锁定标记分别保存在SECURITY_LOGIN_ATTEMPTS和SECURITY_ACCOUNT_LOCKED键上，
+ * 计数、首次设置窗口过期时间和达到上限时加锁由一个Lua脚本原子完成，一次往返，不涉及数据库行锁。
+ * 每个用户的最新状态暂存在内存中（同一用户多次失败合并为一条），由定时任务批量写回user_entity。
+ * </p>
+ * @Date 2025/8/13
+ * @Author LoveYue
+ */
+@Slf4j
+@Service
+public class LoginLockoutServiceImpl implements LoginLockoutService {
+
+    /**
+     * KEYS[1]: 失败计数键；KEYS[2]: 锁定键；ARGV[1]: 计数窗口毫秒数；ARGV[2]: 失败上限；ARGV[3]: 锁定毫秒数。
+     * 返回 {失败次数, 锁定剩余毫秒数}，已锁定时失败次数返回-1且不再计数
+     */
+    private static final String RECORD_FAILURE_SCRIPT = """
+            local lockTtl = redis.call('PTTL', KEYS[2])
+            if lockTtl > 0 then
+                return {-1, lockTtl}
+            end
+            local attempts = redis.call('INCR', KEYS[1])
+            if attempts == 1 then
+                redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            end
+            if attempts >= tonumber(ARGV[2]) then
+                redis.call('SET', KEYS[2], attempts, 'PX', ARGV[3])
+                redis.call('DEL', KEYS[1])
+                return {attempts, tonumber(ARGV[3])}
+            end
+            return {attempts, 0}
+            """;
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> RECORD_FAILURE = new DefaultRedisScript<>(RECORD_FAILURE_SCRIPT, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final UserRepository userRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 失败次数上限
+     */
+    private final int attemptLimit;
+
+    /**
+     * 锁定时长
+     */
+    private final Duration lockoutDuration;
+
+    /**
+     * 失败计数窗口
+     */
+    private final Duration attemptWindow;
+
+    /**
+     * 待写回数据库的最新状态，按用户ID合并
+     */
+    private final Map<Long, LoginLockoutStateDTO> pendingStates = new ConcurrentHashMap<>();
+
+    public LoginLockoutServiceImpl(StringRedisTemplate redisTemplate,
+                                   UserRepository userRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${auth.security.login-attempt-limit:5}") int attemptLimit,
+                                   @Value("${auth.security.lockout-duration:5m}") Duration lockoutDuration,
+                                   @Value("${auth.security.login-attempt-window:15m}") Duration attemptWindow) {
+        this.redisTemplate = redisTemplate;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.attemptLimit = attemptLimit;
+        this.lockoutDuration = lockoutDuration;
+        this.attemptWindow = attemptWindow;
+    }
+
+    @Override
+    public boolean isLocked(String username) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(RedisKeys.buildAccountLockedKey(username)));
+    }
+
+    @Override
+    public LoginLockoutStateDTO recordFailure(Long userId, String username) {
+        List<?> result = redisTemplate.execute(RECORD_FAILURE,
+                Arrays.asList(RedisKeys.buildLoginAttemptsKey(username), RedisKeys.buildAccountLockedKey(username)),
+                String.valueOf(attemptWindow.toMillis()),
+                String.valueOf(attemptLimit),
+                String.valueOf(lockoutDuration.toMillis()));
+
+        long attempts = ((Number) result.get(0)).longValue();
+        long lockMillis = ((Number) result.get(1)).longValue();
+
+        LoginLockoutStateDTO state = new LoginLockoutStateDTO();
+        state.setUserId(userId);
+        state.setUsername(username);
+        state.setFailedLoginAttempts(attempts < 0 ? attemptLimit : (int) attempts);
+        state.setLockedUntil(lockMillis > 0 ? new Date(System.currentTimeMillis() + lockMillis) : null);
+
+        // 已锁定时的重复失败不改变持久化状态
+        if (userId != null && attempts >= 0) {
+            pendingStates.put(userId, state);
+        }
+        return state;
+    }
+
+    @Override
+    public void recordSuccess(Long userId, String username) {
+        redisTemplate.delete(Arrays.asList(
+                RedisKeys.buildLoginAttemptsKey(username), RedisKeys.buildAccountLockedKey(username)));
+        // Redis键可能已按TTL过期而数据库仍保留旧的失败次数，成功登录总是排队重置；
+        // 批量UPDATE只改写与目标值不同的行，已是零值的用户不产生写入
+        if (userId == null) {
+            return;
+        }
+
+        LoginLockoutStateDTO state = new LoginLockoutStateDTO();
+        state.setUserId(userId);
+        state.setUsername(username);
+        state.setFailedLoginAttempts(0);
+        pendingStates.put(userId, state);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${auth.security.lockout-flush-interval:5s}")
+    public int flush() {
+        if (pendingStates.isEmpty()) {
+            return 0;
+        }
+
+        List<LoginLockoutStateDTO> batch = new ArrayList<>(pendingStates.size());
+        for (Long userId : new ArrayList<>(pendingStates.keySet())) {
+            LoginLockoutStateDTO state = pendingStates.remove(userId);
+            if (state != null) {
+                batch.add(state);
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> userRepository.batchUpdateLockoutStates(batch));
+            log.debug("登录锁定状态写回数据库: {}条", batch.size());
+            return batch.size();
+        } catch (Exception e) {
+            // 写回失败时放回队列，不覆盖期间产生的更新状态
+            batch.forEach(state -> pendingStates.putIfAbsent(state.getUserId(), state));
+            log.warn("登录锁定状态写回数据库失败，待下次重试: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+}
@@ -0,0 +1,232 @@
+package com.loveyue.auth.service.impl;
+
+import cn.hutool.crypto.digest.BCrypt;
+import com.loveyue.auth.service.PasswordHashService;
+import com.loveyue.common.constant.SecurityConstants;
+import com.loveyue.common.enums.ResponseCode;
+import com.loveyue.common.exception.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * @Description: 密码哈希服务实现类
+ * <p>
+ * 强度12的BCrypt每次计算约占用200~300毫秒CPU。计算放在线程数等于CPU核数的专用线程池中执行，
+ * 登录高峰时最多占满这些核，Tomcat线程只等待结果，令牌校验等其他接口不会因CPU被占满而排队。
+ * </p>
+ *
+ * <p>
+ * 等待队列有界且按提交顺序公平出队；队列已满时立即拒绝，不再排队。每个任务有截止时间：
+ * 调用方最多等待到截止时间，超时后取消任务；已超过截止时间或已被取消的任务出队时直接丢弃，不再占用CPU。
+ * 拒绝和超时都抛出{@link ResponseCode#TOO_MANY_REQUESTS}，由全局异常处理返回HTTP 429。
+ * </p>
+ * @Date 2025/8/26
+ * @Author LoveYue
+ */
+@Slf4j
+@Service
+public class PasswordHashServiceImpl implements PasswordHashService {
+
+    private static final String OPERATION_ENCODE = "encode";
+
+    private static final String OPERATION_MATCHES = "matches";
+
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    /**
+     * 哈希线程数，不大于0时取CPU核数
+     */
+    @Value("${auth.password-hash.threads:0}")
+    private int threads;
+
+    /**
+     * 等待队列容量
+     */
+    @Value("${auth.password-hash.queue-capacity:64}")
+    private int queueCapacity;
+
+    /**
+     * 单个任务从提交到完成的截止时间
+     */
+    @Value("${auth.password-hash.task-deadline:2s}")
+    private Duration taskDeadline;
+
+    private ThreadPoolExecutor hashExecutor;
+
+    private Counter queueFullCounter;
+
+    private Counter deadlineCounter;
+
+    private Timer queueWaitTimer;
+
+    private Timer encodeTimer;
+
+    private Timer matchesTimer;
+
+    public PasswordHashServiceImpl(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.meterRegistryProvider = meterRegistryProvider;
+    }
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        hashExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity), true), runnable -> {
+            Thread thread = new Thread(runnable, "password-hash-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        hashExecutor.prestartAllCoreThreads();
+
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        if (meterRegistry != null) {
+            Gauge.builder("love_yue.password_hash.queue.size", hashExecutor, executor -> executor.getQueue().size())
+                    .description("密码哈希等待队列长度")
+                    .register(meterRegistry);
+            Gauge.builder("love_yue.password_hash.active", hashExecutor, ThreadPoolExecutor::getActiveCount)
+                    .description("正在计算密码哈希的线程数")
+                    .register(meterRegistry);
+            queueFullCounter = rejectedCounter(meterRegistry, "queue_full");
+            deadlineCounter = rejectedCounter(meterRegistry, "deadline");
+            queueWaitTimer = Timer.builder("love_yue.password_hash.queue.wait")
+                    .description("密码哈希任务排队耗时")
+                    .register(meterRegistry);
+            encodeTimer = hashTimer(meterRegistry, OPERATION_ENCODE);
+            matchesTimer = hashTimer(meterRegistry, OPERATION_MATCHES);
+        }
+        log.info("密码哈希线程池已启动，线程{}个，队列容量{}，截止时间{}毫秒",
+                poolSize, queueCapacity, taskDeadline.toMillis());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (hashExecutor != null) {
+            hashExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public String encode(String rawPassword) {
+        return execute(encodeTimer, () -> BCrypt.hashpw(rawPassword, BCrypt.gensalt(SecurityConstants.BCRYPT_STRENGTH)));
+    }
+
+    @Override
+    public boolean matches(String rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        return execute(matchesTimer, () -> {
+            try {
+                return BCrypt.checkpw(rawPassword, encodedPassword);
+            } catch (IllegalArgumentException e) {
+                log.warn("密码哈希格式无效: {}", e.getMessage());
+                return false;
+            }
+        });
+    }
+
+    /**
+     * 提交到哈希线程池并等待结果，队列已满或超过截止时间时抛出429
+     */
+    private <T> T execute(Timer timer, Supplier<T> task) {
+        long submittedAt = System.nanoTime();
+        long deadline = submittedAt + taskDeadline.toNanos();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            hashExecutor.execute(() -> {
+                long startedAt = System.nanoTime();
+                record(queueWaitTimer, startedAt - submittedAt);
+                // 调用方已放弃或已超过截止时间，不再计算
+                if (future.isDone()) {
+                    return;
+                }
+                if (startedAt - deadline > 0) {
+                    future.completeExceptionally(new TimeoutException());
+                    return;
+                }
+                try {
+                    future.complete(task.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    record(timer, System.nanoTime() - startedAt);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            increment(queueFullCounter);
+            throw busy();
+        }
+
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            increment(deadlineCounter);
+            throw busy();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw busy();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                increment(deadlineCounter);
+                throw busy();
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("密码哈希计算失败", cause);
+        }
+    }
+
+    private static BusinessException busy() {
+        return new BusinessException(ResponseCode.TOO_MANY_REQUESTS);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("love_yue.password_hash.rejected")
+                .description("密码哈希因线程池繁忙被拒绝的次数")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static Timer hashTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("love_yue.password_hash.duration")
+                .description("密码哈希计算耗时")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    private static void record(Timer timer, long nanos) {
+        if (timer != null) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.loveyue.auth.service.impl;
+
+import com.loveyue.auth.dto.RefreshTokenUsageDTO;
+import com.loveyue.auth.entity.RefreshToken;
+import com.loveyue.auth.repository.RefreshTokenRepository;
+import com.loveyue.auth.service.RefreshTokenService;
+import com.loveyue.common.constant.AuthConstants;
+import com.loveyue.common.constant.RedisKeys;
+import com.loveyue.common.enums.ResponseCode;
+import com.loveyue.common.exception.BusinessException;
+import com.loveyue.common.utils.CryptoUtils;
+import com.loveyue.common.utils.JwtUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Description: 刷新令牌服务实现类
+ * <p>
+ * 令牌按令牌值的SHA-256摘要（32字节定长）查找，一次索引查询取得令牌及其令牌族。
+ * 默认不保存原始令牌值，数据库行泄露不会暴露可用的令牌；摘要列上可选用HASH索引，
+ * 索引大小远小于原token_value上500字符的B-tree唯一索引。启动时迁移旧数据并维护索引。
+ * 未轮换的使用只在内存中合并使用次数和最后使用时间，定时以JDBC批量UPDATE写回，请求路径上不写数据库。
+ * </p>
+ *
+ * <p>
+ * 轮换时在同一事务中把旧令牌标记为ROTATED并写入同一令牌族的新令牌，标记只作用于未撤销的令牌，
+ * 并发的两次轮换只有一次成功。已轮换的令牌再次出现即视为重用：一条UPDATE撤销整个令牌族，
+ * 再发布一条令牌族撤销通知，由订阅方清理绑定会话等缓存。
+ * </p>
+ * @Date 2025/8/20
+ * @Author LoveYue
+ */
+@Slf4j
+@Service
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    private final JwtUtil jwtUtil;
+
+    private final ObjectProvider<StringRedisTemplate> redisTemplateProvider;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 达到该使用次数后轮换，默认每次使用都轮换
+     */
+    @Value("${auth.refresh-token.max-use-count:1}")
+    private int maxUseCount;
+
+    /**
+     * 令牌签发超过该小时数后轮换
+     */
+    @Value("${auth.refresh-token.max-age-hours:24}")
+    private long maxAgeHours;
+
+    /**
+     * 是否同时保存原始令牌值，关闭时只保存摘要
+     */
+    @Value("${auth.refresh-token.store-raw-value:false}")
+    private boolean storeRawValue;
+
+    /**
+     * 摘要列是否使用HASH索引，关闭时使用B-tree唯一索引
+     */
+    @Value("${auth.refresh-token.hash-index-enabled:false}")
+    private boolean hashIndexEnabled;
+
+    /**
+     * 尚未写回的使用记录，按令牌ID合并
+     */
+    private final Map<Long, RefreshTokenUsageDTO> pendingUsages = new ConcurrentHashMap<>();
+
+    public RefreshTokenServiceImpl(RefreshTokenRepository refreshTokenRepository,
+                                   JwtUtil jwtUtil,
+                                   ObjectProvider<StringRedisTemplate> redisTemplateProvider,
+                                   PlatformTransactionManager transactionManager) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.jwtUtil = jwtUtil;
+        this.redisTemplateProvider = redisTemplateProvider;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            migrateStorage();
+        } catch (Exception e) {
+            log.error("刷新令牌存储迁移失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int migrateStorage() {
+        Integer backfilled = transactionTemplate.execute(status -> {
+            if (!refreshTokenRepository.tryLockStorageMaintenance()) {
+                log.debug("其他节点正在执行刷新令牌存储迁移，跳过");
+                return 0;
+            }
+            return refreshTokenRepository.migrateToHashStorage(storeRawValue, hashIndexEnabled);
+        });
+        if (backfilled != null && backfilled > 0) {
+            log.info("刷新令牌摘要回填完成: {}个", backfilled);
+        }
+        return backfilled == null ? 0 : backfilled;
+    }
+
+    @Override
+    public String issue(Long userId, String username, String deviceId, String sessionId,
+                        String clientIp, String userAgent) {
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUserId(userId);
+        refreshToken.setUsername(username);
+        refreshToken.setDeviceId(deviceId);
+        refreshToken.setSessionId(sessionId);
+        refreshToken.setClientIp(clientIp);
+        refreshToken.setUserAgent(userAgent);
+        refreshToken.setTokenFamily(UUID.randomUUID().toString());
+
+        String tokenValue = newTokenValue(refreshToken);
+        transactionTemplate.executeWithoutResult(status -> refreshTokenRepository.insert(refreshToken));
+        return tokenValue;
+    }
+
+    @Override
+    public String rotate(String tokenValue, String clientIp, String userAgent) {
+        if (tokenValue == null || tokenValue.isEmpty()) {
+            throw new BusinessException(ResponseCode.UNAUTHORIZED.getCode(), "刷新令牌无效");
+        }
+        RefreshToken current = refreshTokenRepository.findByTokenHash(CryptoUtils.sha256Bytes(tokenValue));
+        if (current == null) {
+            throw new BusinessException(ResponseCode.UNAUTHORIZED.getCode(), "刷新令牌无效");
+        }
+        if (Boolean.TRUE.equals(current.getRevoked())) {
+            if (AuthConstants.REVOKE_REASON_ROTATED.equals(current.getRevokeReason())) {
+                handleReuse(current);
+            }
+            throw new BusinessException(ResponseCode.UNAUTHORIZED.getCode(), "刷新令牌已撤销");
+        }
+        if (current.isExpired()) {
+            throw new BusinessException(ResponseCode.UNAUTHORIZED.getCode(), "刷新令牌已过期");
+        }
+
+        RefreshTokenUsageDTO usage = recordUsage(current.getId());
+        current.setUseCount((current.getUseCount() == null ? 0 : current.getUseCount()) + usage.getUseCountDelta());
+        if (!current.needsRotation(maxUseCount, maxAgeHours)) {
+            return tokenValue;
+        }
+
+        RefreshToken next = new RefreshToken();
+        next.setUserId(current.getUserId());
+        next.setUsername(current.getUsername());
+        next.setDeviceId(current.getDeviceId());
+        next.setDeviceType(current.getDeviceType());
+        next.setSessionId(current.getSessionId());
+        next.setScope(current.getScope());
+        next.setTokenFamily(current.getTokenFamily());
+        next.setClientIp(clientIp);
+        next.setUserAgent(userAgent);
+        String nextValue = newTokenValue(next);
+
+        Boolean rotated = transactionTemplate.execute(status -> {
+            if (refreshTokenRepository.markRotated(current.getId(), AuthConstants.REVOKE_REASON_ROTATED) == 0) {
+                return false;
+            }
+            refreshTokenRepository.insert(next);
+            return true;
+        });
+        if (!Boolean.TRUE.equals(rotated)) {
+            // 同一令牌已被并发轮换或撤销
+            handleReuse(current);
+            throw new BusinessException(ResponseCode.UNAUTHORIZED.getCode(), "刷新令牌已撤销");
+        }
+        return nextValue;
+    }
+
+    @Override
+    public int revokeFamily(String tokenFamily, String sessionId, String reason) {
+        if (tokenFamily == null) {
+            return 0;
+        }
+        Integer revoked = transactionTemplate.execute(status ->
+                refreshTokenRepository.revokeFamily(tokenFamily, reason));
+
+        StringRedisTemplate redisTemplate = redisTemplateProvider.getIfAvailable();
+        if (redisTemplate != null) {
+            try {
+                redisTemplate.convertAndSend(RedisKeys.TOKEN_FAMILY_REVOCATION_CHANNEL,
+                        tokenFamily + ":" + (sessionId == null ? "" : sessionId));
+            } catch (Exception e) {
+                log.warn("发布令牌族撤销通知失败，令牌族: {}，错误: {}", tokenFamily, e.getMessage());
+            }
+        }
+        return revoked == null ? 0 : revoked;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${auth.refresh-token.usage-flush-interval:10s}")
+    public synchronized int flushUsage() {
+        if (pendingUsages.isEmpty()) {
+            return 0;
+        }
+
+        List<RefreshTokenUsageDTO> batch = new ArrayList<>(pendingUsages.size());
+        for (Long tokenId : pendingUsages.keySet()) {
+            RefreshTokenUsageDTO usage = pendingUsages.remove(tokenId);
+            if (usage != null) {
+                batch.add(usage);
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> refreshTokenRepository.batchUpdateUsage(batch));
+            log.debug("刷新令牌使用记录写回数据库: {}条", batch.size());
+            return batch.size();
+        } catch (Exception e) {
+            // 写回失败时合并回待写入记录，下次重试
+            batch.forEach(usage -> pendingUsages.merge(usage.getTokenId(), usage, RefreshTokenServiceImpl::mergeUsage));
+            log.warn("刷新令牌使用记录写回数据库失败，待下次重试: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flushUsage();
+    }
+
+    /**
+     * 已轮换令牌被重用：撤销整个令牌族，不再区分是哪一方持有泄露的令牌
+     */
+    private void handleReuse(RefreshToken refreshToken) {
+        int revoked = revokeFamily(refreshToken.getTokenFamily(), refreshToken.getSessionId(),
+                AuthConstants.REVOKE_REASON_TOKEN_REUSE);
+        log.warn("检测到刷新令牌重用，令牌族已撤销: 用户ID: {}，令牌族: {}，撤销{}个令牌",
+                refreshToken.getUserId(), refreshToken.getTokenFamily(), revoked);
+    }
+
+    /**
+     * 在内存中合并一次使用
+     *
+     * @return 合并后尚未写回的使用记录
+     */
+    private RefreshTokenUsageDTO recordUsage(Long tokenId) {
+        RefreshTokenUsageDTO usage = new RefreshTokenUsageDTO();
+        usage.setTokenId(tokenId);
+        usage.setLastUsedAt(new Date());
+        usage.setUseCountDelta(1);
+        return pendingUsages.merge(tokenId, usage, RefreshTokenServiceImpl::mergeUsage);
+    }
+
+    private static RefreshTokenUsageDTO mergeUsage(RefreshTokenUsageDTO existing, RefreshTokenUsageDTO added) {
+        RefreshTokenUsageDTO merged = new RefreshTokenUsageDTO();
+        merged.setTokenId(existing.getTokenId());
+        merged.setLastUsedAt(existing.getLastUsedAt().after(added.getLastUsedAt())
+                ? existing.getLastUsedAt() : added.getLastUsedAt());
+        merged.setUseCountDelta(existing.getUseCountDelta() + added.getUseCountDelta());
+        return merged;
+    }
+
+    /**
+     * 为令牌签发JWT并填充令牌值、摘要、过期时间和初始状态
+     */
+    private String newTokenValue(RefreshToken refreshToken) {
+        String tokenValue = jwtUtil.generateRefreshToken(refreshToken.getUserId(), refreshToken.getUsername(),
+                refreshToken.getDeviceId(), refreshToken.getSessionId());
+        refreshToken.setTokenValue(storeRawValue ? tokenValue : null);
+        refreshToken.setTokenHash(CryptoUtils.sha256Bytes(tokenValue));
+        refreshToken.setExpiresAt(Date.from(jwtUtil.getExpirationFromToken(tokenValue)
+                .atZone(ZoneId.systemDefault()).toInstant()));
+        refreshToken.setRevoked(false);
+        refreshToken.setUseCount(0);
+        return tokenValue;
+    }
+}
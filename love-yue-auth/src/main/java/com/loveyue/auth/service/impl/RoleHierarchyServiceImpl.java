@@ -0,0 +1,165 @@
+package com.loveyue.auth.service.impl;
+
+import com.loveyue.auth.repository.RoleRepository;
+import com.loveyue.auth.service.RoleHierarchyService;
+import com.loveyue.common.constant.RedisKeys;
+import com.loveyue.common.security.PermissionRegistry;
+import com.loveyue.common.security.RoleHierarchy;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @Description: 角色层级服务实现类
+ * <p>
+ * 启动时从role_entity全量编译{@link RoleHierarchy}，之后按parentId维护层级（rolePath只记录父角色和自身，不作为依据）。
+ * 查询直接读取volatile快照，不加锁也不访问数据库；角色变更时只重新加载该角色并增量生成新快照，
+ * 再通过Redis发布角色ID，其他节点收到后同样增量更新。
+ * </p>
+ *
+ * <p>
+ * 发布订阅不保证送达，定时全量重建作为兜底，同时回收已删除角色的下标。
+ * </p>
+ * @Date 2025/8/22
+ * @Author LoveYue
+ */
+@Slf4j
+@Service
+public class RoleHierarchyServiceImpl implements RoleHierarchyService {
+
+    private final RoleRepository roleRepository;
+
+    private final ObjectProvider<StringRedisTemplate> redisTemplateProvider;
+
+    private final ObjectProvider<RedisMessageListenerContainer> listenerContainerProvider;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final PermissionRegistry permissionRegistry;
+
+    private volatile RoleHierarchy hierarchy;
+
+    public RoleHierarchyServiceImpl(RoleRepository roleRepository,
+                                    PermissionRegistry permissionRegistry,
+                                    ObjectProvider<StringRedisTemplate> redisTemplateProvider,
+                                    ObjectProvider<RedisMessageListenerContainer> listenerContainerProvider,
+                                    PlatformTransactionManager transactionManager) {
+        this.roleRepository = roleRepository;
+        this.permissionRegistry = permissionRegistry;
+        this.hierarchy = RoleHierarchy.empty(permissionRegistry);
+        this.redisTemplateProvider = redisTemplateProvider;
+        this.listenerContainerProvider = listenerContainerProvider;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void init() {
+        RedisMessageListenerContainer listenerContainer = listenerContainerProvider.getIfAvailable();
+        if (listenerContainer == null) {
+            log.warn("未配置RedisMessageListenerContainer，角色层级仅依赖定时重建同步其他节点的变更");
+            return;
+        }
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody());
+            try {
+                reload(Long.valueOf(body));
+            } catch (NumberFormatException e) {
+                log.warn("忽略无效的角色层级变更消息: {}", body);
+            } catch (Exception e) {
+                log.warn("角色层级增量更新失败，角色ID: {}，错误: {}", body, e.getMessage());
+            }
+        }, new ChannelTopic(RedisKeys.CACHE_ROLE_HIERARCHY_CHANNEL));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scheduledRebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${auth.role-hierarchy.rebuild-interval:10m}",
+            initialDelayString = "${auth.role-hierarchy.rebuild-interval:10m}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("角色层级重建失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public RoleHierarchy getHierarchy() {
+        return hierarchy;
+    }
+
+    @Override
+    public boolean inherits(Long roleId, Long juniorRoleId) {
+        return hierarchy.inherits(roleId, juniorRoleId);
+    }
+
+    @Override
+    public Set<Long> resolveRoleIds(Collection<String> roleNames) {
+        RoleHierarchy current = hierarchy;
+        Set<Long> roleIds = new LinkedHashSet<>();
+        for (String roleName : roleNames) {
+            Long roleId = current.getRoleId(roleName);
+            if (roleId != null) {
+                roleIds.add(roleId);
+            }
+        }
+        return roleIds;
+    }
+
+    @Override
+    public List<String> getPermissions(Collection<Long> roleIds) {
+        return hierarchy.getPermissions(roleIds);
+    }
+
+    @Override
+    public void roleChanged(Long roleId) {
+        if (roleId == null) {
+            return;
+        }
+        reload(roleId);
+
+        StringRedisTemplate redisTemplate = redisTemplateProvider.getIfAvailable();
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(RedisKeys.CACHE_ROLE_HIERARCHY_CHANNEL, String.valueOf(roleId));
+        } catch (Exception e) {
+            log.warn("发布角色层级变更通知失败，角色ID: {}，错误: {}", roleId, e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized int rebuild() {
+        List<RoleHierarchy.Role> roles = readOnlyTransactionTemplate.execute(status -> roleRepository.findAllForHierarchy());
+        hierarchy = RoleHierarchy.compile(roles == null ? List.of() : roles, permissionRegistry);
+        log.debug("角色层级重建完成，角色{}个", hierarchy.size());
+        return hierarchy.size();
+    }
+
+    /**
+     * 重新加载单个角色并增量更新快照，角色已删除时从层级中移除
+     */
+    private synchronized void reload(Long roleId) {
+        RoleHierarchy.Role role = readOnlyTransactionTemplate.execute(status -> roleRepository.findForHierarchy(roleId));
+        hierarchy = role == null ? hierarchy.withoutRole(roleId) : hierarchy.withRole(role);
+    }
+}
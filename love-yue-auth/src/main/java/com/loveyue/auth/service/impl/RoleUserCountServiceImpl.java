@@ -0,0 +1,247 @@
+package com.loveyue.auth.service.impl;
+
+import com.loveyue.auth.repository.RoleRepository;
+import com.loveyue.auth.repository.UserRepository;
+import com.loveyue.auth.service.RoleHierarchyService;
+import com.loveyue.auth.service.RoleUserCountService;
+import com.loveyue.common.security.RoleHierarchy;
+import com.loveyue.common.utils.StringUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Description: 角色用户数量服务实现类
+ * <p>
+ * 成员变更只在内存中按角色累加增量（每个角色一个LongAdder，并发累加不争用同一个计数），
+ * 定时把周期内的增量合并为一次JDBC批量UPDATE写回role_entity.user_count，不执行COUNT查询也不加载角色实体。
+ * 写回失败时增量加回，与期间的新变更合并后下次重试。角色数量有限，计数器创建后不再移除。
+ * </p>
+ *
+ * <p>
+ * 定期校正用于修正其他入口直接修改用户角色、节点异常退出丢失的增量等造成的偏差：
+ * 按用户ID范围分区，各分区在独立的只读事务中并行流式读取roles字段并在内存中统计，
+ * 汇总后只写入与统计结果不一致的角色。协调事务持有咨询锁，同一时间只有一个节点执行校正。
+ * 校正期间发生的成员变更可能被统计结果和增量重复计入，由下一次校正修正。
+ * </p>
+ * @Date 2025/8/25
+ * @Author LoveYue
+ */
+@Slf4j
+@Service
+public class RoleUserCountServiceImpl implements RoleUserCountService {
+
+    private final RoleRepository roleRepository;
+
+    private final UserRepository userRepository;
+
+    private final RoleHierarchyService roleHierarchyService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final Map<Long, LongAdder> deltas = new ConcurrentHashMap<>();
+
+    /**
+     * 校正时的分区数
+     */
+    @Value("${auth.role-user-count.reconcile-partitions:8}")
+    private int reconcilePartitions;
+
+    /**
+     * 校正时并行统计的线程数
+     */
+    @Value("${auth.role-user-count.reconcile-parallelism:4}")
+    private int reconcileParallelism;
+
+    /**
+     * 校正时每次从数据库拉取的行数
+     */
+    @Value("${auth.role-user-count.reconcile-fetch-size:1000}")
+    private int reconcileFetchSize;
+
+    /**
+     * 单次校正的最长等待时间
+     */
+    @Value("${auth.role-user-count.reconcile-timeout:10m}")
+    private Duration reconcileTimeout;
+
+    private ExecutorService reconcileExecutor;
+
+    public RoleUserCountServiceImpl(RoleRepository roleRepository,
+                                    UserRepository userRepository,
+                                    RoleHierarchyService roleHierarchyService,
+                                    PlatformTransactionManager transactionManager) {
+        this.roleRepository = roleRepository;
+        this.userRepository = userRepository;
+        this.roleHierarchyService = roleHierarchyService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        reconcileExecutor = Executors.newFixedThreadPool(Math.max(1, reconcileParallelism), runnable -> {
+            Thread thread = new Thread(runnable, "role-user-count-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+        if (reconcileExecutor != null) {
+            reconcileExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void membershipChanged(Collection<String> oldRoleNames, Collection<String> newRoleNames) {
+        Set<Long> oldRoleIds = oldRoleNames == null ? Set.of() : roleHierarchyService.resolveRoleIds(oldRoleNames);
+        Set<Long> newRoleIds = newRoleNames == null ? Set.of() : roleHierarchyService.resolveRoleIds(newRoleNames);
+        for (Long roleId : oldRoleIds) {
+            if (!newRoleIds.contains(roleId)) {
+                increment(roleId, -1);
+            }
+        }
+        for (Long roleId : newRoleIds) {
+            if (!oldRoleIds.contains(roleId)) {
+                increment(roleId, 1);
+            }
+        }
+    }
+
+    @Override
+    public void increment(Long roleId, long delta) {
+        if (roleId == null || delta == 0) {
+            return;
+        }
+        deltas.computeIfAbsent(roleId, id -> new LongAdder()).add(delta);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${auth.role-user-count.flush-interval:10s}")
+    public synchronized int flush() {
+        Map<Long, Long> batch = new HashMap<>();
+        deltas.forEach((roleId, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta != 0) {
+                batch.put(roleId, delta);
+            }
+        });
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> roleRepository.batchAddUserCount(batch));
+            log.debug("角色用户数量增量写回数据库: {}个角色", batch.size());
+            return batch.size();
+        } catch (Exception e) {
+            batch.forEach(this::increment);
+            log.warn("角色用户数量增量写回失败，待下次重试: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${auth.role-user-count.reconcile-interval:1h}",
+            initialDelayString = "${auth.role-user-count.reconcile-interval:1h}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.error("角色用户数量校正失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int reconcile() {
+        // 先写回本节点已累积的增量，缩小与统计结果的重叠
+        flush();
+
+        Integer corrected = transactionTemplate.execute(status -> {
+            if (!roleRepository.tryLockUserCountReconcile()) {
+                log.debug("其他节点正在校正角色用户数量，跳过");
+                return 0;
+            }
+            long startTime = System.currentTimeMillis();
+            Map<Long, Long> counts = countUsersByRole();
+            int result = roleRepository.reconcileUserCounts(counts);
+            log.info("角色用户数量校正完成，统计角色{}个，修正{}个，耗时{}毫秒",
+                    counts.size(), result, System.currentTimeMillis() - startTime);
+            return result;
+        });
+        return corrected == null ? 0 : corrected;
+    }
+
+    /**
+     * 按用户ID范围分区并行统计各角色的直接用户数量，同一用户重复配置的角色只计一次
+     */
+    private Map<Long, Long> countUsersByRole() {
+        long[] range = readOnlyTransactionTemplate.execute(status -> userRepository.findUserIdRange());
+        if (range == null) {
+            return Map.of();
+        }
+
+        RoleHierarchy hierarchy = roleHierarchyService.getHierarchy();
+        long span = range[1] - range[0] + 1;
+        long partitionSize = Math.max(1, -Math.floorDiv(-span, Math.max(1, reconcilePartitions)));
+        List<CompletableFuture<Map<Long, Long>>> futures = new ArrayList<>();
+        for (long fromId = range[0]; fromId <= range[1]; fromId += partitionSize) {
+            long from = fromId;
+            long to = Math.min(range[1], fromId + partitionSize - 1);
+            futures.add(CompletableFuture.supplyAsync(() -> countPartition(hierarchy, from, to), reconcileExecutor));
+        }
+
+        Map<Long, Long> counts = new HashMap<>();
+        CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new))
+                .orTimeout(reconcileTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .join();
+        for (CompletableFuture<Map<Long, Long>> future : futures) {
+            future.join().forEach((roleId, count) -> counts.merge(roleId, count, Long::sum));
+        }
+        return counts;
+    }
+
+    private Map<Long, Long> countPartition(RoleHierarchy hierarchy, long fromId, long toId) {
+        Map<Long, Long> counts = new HashMap<>();
+        Set<Long> roleIds = new HashSet<>();
+        readOnlyTransactionTemplate.executeWithoutResult(status ->
+                userRepository.scanUserRoles(fromId, toId, reconcileFetchSize, roles -> {
+                    roleIds.clear();
+                    for (String roleName : StringUtils.splitCodes(roles)) {
+                        Long roleId = hierarchy.getRoleId(roleName);
+                        if (roleId != null) {
+                            roleIds.add(roleId);
+                        }
+                    }
+                    roleIds.forEach(roleId -> counts.merge(roleId, 1L, Long::sum));
+                }));
+        return counts;
+    }
+}
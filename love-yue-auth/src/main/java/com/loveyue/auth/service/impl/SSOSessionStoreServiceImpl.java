@@ -0,0 +1,669 @@
+package com.loveyue.auth.service.impl;
+
+import com.loveyue.auth.entity.SSOSession;
+import com.loveyue.auth.repository.SSOSessionRepository;
+import com.loveyue.auth.service.SSOSessionStoreService;
+import com.loveyue.auth.service.SessionActivityService;
+import com.loveyue.auth.service.SessionExpiryService;
+import com.loveyue.common.constant.AuthConstants;
+import com.loveyue.common.constant.RedisKeys;
+import com.loveyue.common.constant.SecurityConstants;
+import com.loveyue.common.enums.SessionStatus;
+import com.loveyue.common.redis.RedisRoundTripTracker;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @Description: SSO会话存储服务实现类
+ * <p>
+ * 会话的实时状态保存在Redis哈希{@link RedisKeys#SSO_SESSION}中，键的过期时间与expiresAt一致，过期由Redis自动清理；
+ * 同时维护活跃会话集合、每个用户按最后活动时间排序的会话有序集合（{@link RedisKeys#SSO_USER_SESSION}）
+ * 和用户名索引集合（{@link RedisKeys#SSO_SESSION_INDEX}）。创建、校验、更新、结束各由一个Lua脚本原子完成。
+ * </p>
+ *
+ * <p>
+ * 并发会话上限在创建脚本中执行：准入新会话和淘汰最早活动的会话在同一个脚本中完成，不查询sso_session；
+ * 被淘汰的会话与新会话的快照在同一个事务中批量结束。脚本根据会话键前缀拼接成员的会话键，
+ * 要求这些键位于同一个Redis节点（单机或主从部署）。
+ * </p>
+ *
+ * <p>
+ * 数据库只接收异步快照：登录时写入完整会话，登出时写入结束状态，{@link #update(SSOSession)}修改的字段在检查点批量写入，
+ * 活动时间和访问次数由{@link SessionActivityService}合并写入。快照由单线程按提交顺序执行，
+ * 登出快照不会早于登录快照；队列满时由调用线程同步执行，执行前先等待该会话仍在排队的登录快照，
+ * 等待超过snapshot-order-wait时仍然执行，数据库中残留的ACTIVE会话由时间轮重建后按过期或非活跃结束。
+ * </p>
+ *
+ * <p>
+ * 会话哈希按expiresAt由Redis自动过期，活跃会话集合中的成员不会随之删除，定时以SSCAN分批检查并移除这些成员。
+ * </p>
+ * @Date 2025/8/19
+ * @Author LoveYue
+ */
+@Slf4j
+@Service
+public class SSOSessionStoreServiceImpl implements SSOSessionStoreService {
+
+    private static final String FIELD_USER_ID = "userId";
+    private static final String FIELD_USERNAME = "username";
+    static final String FIELD_SESSION_STATUS = "sessionStatus";
+    static final String FIELD_EXPIRES_AT = "expiresAt";
+    static final String FIELD_LAST_ACTIVITY_TIME = "lastActivityTime";
+    static final String FIELD_MAX_INACTIVE_INTERVAL = "maxInactiveInterval";
+    private static final String FIELD_ACCESS_COUNT = "accessCount";
+    private static final String FIELD_CLIENT_IP = "clientIp";
+    private static final String FIELD_USER_AGENT = "userAgent";
+    private static final String FIELD_DEVICE_ID = "deviceId";
+    private static final String FIELD_DEVICE_TYPE = "deviceType";
+    private static final String FIELD_BROWSER_INFO = "browserInfo";
+    private static final String FIELD_OS_INFO = "osInfo";
+    private static final String FIELD_LOCATION_INFO = "locationInfo";
+    private static final String FIELD_AUTH_METHOD = "authMethod";
+    private static final String FIELD_MFA_USED = "mfaUsed";
+    private static final String FIELD_LOGIN_TIME = "loginTime";
+    private static final String FIELD_REMEMBER_ME = "rememberMe";
+    private static final String FIELD_CONCURRENT_SESSIONS = "concurrentSessions";
+    private static final String FIELD_AUTHORIZED_APPS = "authorizedApps";
+    private static final String FIELD_PERMISSIONS = "permissions";
+    private static final String FIELD_ROLES = "roles";
+    private static final String FIELD_RISK_SCORE = "riskScore";
+    private static final String FIELD_SUSPICIOUS = "suspicious";
+    private static final String FIELD_SECURITY_LEVEL = "securityLevel";
+
+    private static final String SYSTEM_OPERATOR = "system";
+
+    /**
+     * KEYS[1]: 会话哈希；KEYS[2]: 活跃会话集合；KEYS[3]: 用户会话有序集合；KEYS[4]: 用户名索引。
+     * ARGV[1]: 会话ID；ARGV[2]: 剩余有效毫秒数；ARGV[3]: 当前毫秒时间；ARGV[4]: 每个用户的并发会话上限（0不限制）；
+     * ARGV[5]: 会话键前缀；ARGV[6..]: 字段和值。
+     * 先移除哈希已过期的成员，达到上限时按最后活动时间淘汰最早的会话，再写入新会话。
+     * 返回 {准入后的并发会话数, 被淘汰的会话ID...}
+     */
+    private static final String CREATE_SCRIPT = """
+            local ttl = tonumber(ARGV[2])
+            local function extend(key)
+                if redis.call('PTTL', key) < ttl then
+                    redis.call('PEXPIRE', key, ttl)
+                end
+            end
+            local function remove(member)
+                redis.call('ZREM', KEYS[3], member)
+                redis.call('SREM', KEYS[2], member)
+                redis.call('SREM', KEYS[4], member)
+            end
+            for _, member in ipairs(redis.call('ZRANGE', KEYS[3], 0, -1)) do
+                if redis.call('EXISTS', ARGV[5] .. member) == 0 then
+                    remove(member)
+                end
+            end
+            local result = {0}
+            local limit = tonumber(ARGV[4])
+            local count = redis.call('ZCARD', KEYS[3])
+            if limit > 0 and count >= limit then
+                for _, member in ipairs(redis.call('ZRANGE', KEYS[3], 0, count - limit)) do
+                    redis.call('DEL', ARGV[5] .. member)
+                    remove(member)
+                    table.insert(result, member)
+                end
+            end
+            redis.call('ZADD', KEYS[3], ARGV[3], ARGV[1])
+            result[1] = redis.call('ZCARD', KEYS[3])
+            redis.call('HSET', KEYS[1], 'concurrentSessions', result[1], unpack(ARGV, 6))
+            redis.call('PEXPIRE', KEYS[1], ttl)
+            redis.call('SADD', KEYS[2], ARGV[1])
+            extend(KEYS[3])
+            redis.call('SADD', KEYS[4], ARGV[1])
+            extend(KEYS[4])
+            return result
+            """;
+
+    /**
+     * KEYS[1]: 会话哈希；ARGV[1]: 当前毫秒时间；ARGV[2]: 用户会话有序集合键前缀；ARGV[3]: 会话ID。
+     * 返回 1 有效并已记录访问；0 不存在；-1 非活跃状态；-2 超过最大非活动间隔
+     */
+    private static final String VALIDATE_SCRIPT = """
+            local values = redis.call('HMGET', KEYS[1], 'sessionStatus', 'lastActivityTime', 'maxInactiveInterval',
+                    'userId')
+            if not values[1] then
+                return 0
+            end
+            if values[1] ~= 'ACTIVE' then
+                return -1
+            end
+            if values[2] and values[3] and tonumber(ARGV[1]) - tonumber(values[2]) > tonumber(values[3]) * 1000 then
+                return -2
+            end
+            redis.call('HSET', KEYS[1], 'lastActivityTime', ARGV[1])
+            redis.call('HINCRBY', KEYS[1], 'accessCount', 1)
+            if values[4] then
+                redis.call('ZADD', ARGV[2] .. values[4], 'XX', ARGV[1], ARGV[3])
+            end
+            return 1
+            """;
+
+    /**
+     * KEYS[1]: 会话哈希；ARGV[1]: 剩余有效毫秒数；ARGV[2..]: 字段和值。会话不存在时不写入，避免重建已过期的会话
+     */
+    private static final String UPDATE_SCRIPT = """
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], unpack(ARGV, 2))
+            redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            return 1
+            """;
+
+    /**
+     * KEYS[1]: 会话哈希；KEYS[2]: 活跃会话集合；KEYS[3]: 用户会话有序集合；KEYS[4]: 用户名索引；ARGV[1]: 会话ID
+     */
+    private static final String TERMINATE_SCRIPT = """
+            local existed = redis.call('DEL', KEYS[1])
+            redis.call('SREM', KEYS[2], ARGV[1])
+            redis.call('ZREM', KEYS[3], ARGV[1])
+            redis.call('SREM', KEYS[4], ARGV[1])
+            return existed
+            """;
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CREATE = new DefaultRedisScript<>(CREATE_SCRIPT, List.class);
+
+    private static final RedisScript<Long> VALIDATE = new DefaultRedisScript<>(VALIDATE_SCRIPT, Long.class);
+
+    private static final RedisScript<Long> UPDATE = new DefaultRedisScript<>(UPDATE_SCRIPT, Long.class);
+
+    private static final RedisScript<Long> TERMINATE = new DefaultRedisScript<>(TERMINATE_SCRIPT, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final SSOSessionRepository ssoSessionRepository;
+
+    private final SessionActivityService sessionActivityService;
+
+    private final SessionExpiryService sessionExpiryService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 检查点之后通过update修改过的会话
+     */
+    private final Set<Long> dirtySessions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 快照写入队列容量
+     */
+    @Value("${auth.sso.snapshot-queue-capacity:10000}")
+    private int snapshotQueueCapacity;
+
+    /**
+     * 每个用户的并发会话上限，0表示不限制
+     */
+    @Value("${auth.sso.max-concurrent-sessions:" + SecurityConstants.MAX_CONCURRENT_SESSIONS_PER_USER + "}")
+    private int maxConcurrentSessions;
+
+    /**
+     * 清理活跃会话集合时每批检查的成员数
+     */
+    @Value("${auth.sso.active-sessions-prune-batch-size:1000}")
+    private int pruneBatchSize;
+
+    /**
+     * 快照队列已满时，调用线程等待相关会话登录快照写入的最长时间
+     */
+    @Value("${auth.sso.snapshot-order-wait:5s}")
+    private Duration snapshotOrderWait;
+
+    /**
+     * 已提交但尚未写入数据库的登录快照，结束快照在调用线程执行时据此保持先后顺序
+     */
+    private final Map<Long, CompletableFuture<Void>> pendingInserts = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor snapshotExecutor;
+
+    public SSOSessionStoreServiceImpl(StringRedisTemplate redisTemplate,
+                                      SSOSessionRepository ssoSessionRepository,
+                                      SessionActivityService sessionActivityService,
+                                      SessionExpiryService sessionExpiryService,
+                                      PlatformTransactionManager transactionManager) {
+        this.redisTemplate = redisTemplate;
+        this.ssoSessionRepository = ssoSessionRepository;
+        this.sessionActivityService = sessionActivityService;
+        this.sessionExpiryService = sessionExpiryService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() {
+        snapshotExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(snapshotQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "sso-session-snapshot");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        snapshotExecutor.shutdown();
+        try {
+            if (!snapshotExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("SSO会话快照未在关闭前全部写入，剩余{}条", snapshotExecutor.getQueue().size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkpoint();
+    }
+
+    @Override
+    public SSOSession create(SSOSession session) {
+        if (session.getSessionStatus() == null) {
+            session.setSessionStatus(SessionStatus.ACTIVE);
+        }
+        if (session.getLoginTime() == null) {
+            session.setLoginTime(new Date());
+        }
+        if (session.getLastActivityTime() == null) {
+            session.setLastActivityTime(session.getLoginTime());
+        }
+        if (session.getAccessCount() == null) {
+            session.setAccessCount(0);
+        }
+        long ttlMillis = remainingMillis(session);
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("Session already expired: " + session.getId());
+        }
+
+        String sessionId = String.valueOf(session.getId());
+        List<String> args = new ArrayList<>();
+        args.add(sessionId);
+        args.add(String.valueOf(ttlMillis));
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.add(String.valueOf(maxConcurrentSessions));
+        args.add(RedisKeys.SSO_SESSION);
+        Map<String, String> hash = toHash(session);
+        // 并发会话数由脚本在准入后写入
+        hash.remove(FIELD_CONCURRENT_SESSIONS);
+        hash.forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+        List<?> result = redisTemplate.execute(CREATE,
+                sessionKeys(sessionId, session.getUserId(), session.getUsername()), args.toArray());
+        RedisRoundTripTracker.record();
+
+        session.setConcurrentSessions(((Number) result.get(0)).intValue());
+        List<Long> evicted = result.subList(1, result.size()).stream()
+                .map(member -> Long.valueOf(member.toString()))
+                .toList();
+        evicted.forEach(evictedId -> {
+            dirtySessions.remove(evictedId);
+            sessionExpiryService.cancel(evictedId);
+        });
+        if (!evicted.isEmpty()) {
+            log.info("用户{}超过并发会话上限，淘汰最早的会话: {}", session.getUsername(), evicted);
+        }
+
+        sessionExpiryService.schedule(session);
+        CompletableFuture<Void> inserted = new CompletableFuture<>();
+        pendingInserts.put(session.getId(), inserted);
+        submitSnapshot(evicted, () -> {
+            if (session.getCreateBy() == null) {
+                session.setCreateBy(SYSTEM_OPERATOR);
+            }
+            if (session.getLastModifiedBy() == null) {
+                session.setLastModifiedBy(SYSTEM_OPERATOR);
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    ssoSessionRepository.insert(session);
+                    ssoSessionRepository.batchCloseSessions(evicted, SessionStatus.TERMINATED,
+                            AuthConstants.LOGOUT_REASON_CONCURRENT_SESSION_LIMIT);
+                });
+            } finally {
+                pendingInserts.remove(session.getId(), inserted);
+                inserted.complete(null);
+            }
+        });
+        return session;
+    }
+
+    @Override
+    public SSOSession get(Long sessionId) {
+        Map<Object, Object> hash = redisTemplate.opsForHash()
+                .entries(RedisKeys.buildSSOSessionKey(String.valueOf(sessionId)));
+        RedisRoundTripTracker.record();
+        return hash.isEmpty() ? null : fromHash(sessionId, hash);
+    }
+
+    @Override
+    public boolean validate(Long sessionId) {
+        if (sessionId == null) {
+            return false;
+        }
+        Long result = redisTemplate.execute(VALIDATE,
+                List.of(RedisKeys.buildSSOSessionKey(String.valueOf(sessionId))),
+                String.valueOf(System.currentTimeMillis()), RedisKeys.SSO_USER_SESSION, String.valueOf(sessionId));
+        RedisRoundTripTracker.record();
+
+        if (result != null && result == 1) {
+            sessionActivityService.touch(sessionId);
+            return true;
+        }
+        if (result != null && result == -2) {
+            terminate(sessionId, SessionStatus.INACTIVE, AuthConstants.LOGOUT_REASON_IDLE_TIMEOUT);
+        }
+        return false;
+    }
+
+    @Override
+    public void update(SSOSession session) {
+        long ttlMillis = remainingMillis(session);
+        if (ttlMillis <= 0) {
+            return;
+        }
+
+        Map<String, String> hash = toHash(session);
+        // 活动时间和访问次数只由validate维护
+        hash.remove(FIELD_LAST_ACTIVITY_TIME);
+        hash.remove(FIELD_ACCESS_COUNT);
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(ttlMillis));
+        hash.forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+        Long updated = redisTemplate.execute(UPDATE,
+                List.of(RedisKeys.buildSSOSessionKey(String.valueOf(session.getId()))), args.toArray());
+        RedisRoundTripTracker.record();
+
+        if (updated != null && updated == 1) {
+            dirtySessions.add(session.getId());
+            sessionExpiryService.schedule(session);
+        }
+    }
+
+    @Override
+    public boolean terminate(Long sessionId, SessionStatus status, String reason) {
+        String id = String.valueOf(sessionId);
+        List<Object> owner = redisTemplate.opsForHash().multiGet(RedisKeys.buildSSOSessionKey(id),
+                Arrays.asList(FIELD_USER_ID, FIELD_USERNAME));
+        RedisRoundTripTracker.record();
+        Long existed = redisTemplate.execute(TERMINATE,
+                sessionKeys(id, owner.get(0) == null ? null : Long.valueOf(owner.get(0).toString()),
+                        owner.get(1) == null ? null : owner.get(1).toString()),
+                id);
+        RedisRoundTripTracker.record();
+
+        dirtySessions.remove(sessionId);
+        sessionExpiryService.cancel(sessionId);
+        // Redis中已过期的会话数据库中可能仍为ACTIVE，结束操作只作用于ACTIVE会话，重复执行无副作用
+        submitSnapshot(List.of(sessionId), () -> transactionTemplate.executeWithoutResult(txStatus ->
+                ssoSessionRepository.batchCloseSessions(List.of(sessionId), status, reason)));
+        return existed != null && existed > 0;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${auth.sso.checkpoint-interval:1m}")
+    public int checkpoint() {
+        if (dirtySessions.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> sessionIds = new ArrayList<>(dirtySessions);
+        sessionIds.forEach(dirtySessions::remove);
+        List<Object> hashes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (Long sessionId : sessionIds) {
+                stringConnection.hGetAll(RedisKeys.buildSSOSessionKey(String.valueOf(sessionId)));
+            }
+            return null;
+        });
+        RedisRoundTripTracker.record();
+
+        List<SSOSession> sessions = new ArrayList<>(sessionIds.size());
+        for (int i = 0; i < sessionIds.size(); i++) {
+            if (hashes.get(i) instanceof Map<?, ?> hash && !hash.isEmpty()) {
+                sessions.add(fromHash(sessionIds.get(i), hash));
+            }
+        }
+        if (sessions.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> ssoSessionRepository.batchCheckpoint(sessions));
+            log.debug("SSO会话检查点写入数据库: {}条", sessions.size());
+            return sessions.size();
+        } catch (Exception e) {
+            dirtySessions.addAll(sessionIds);
+            log.warn("SSO会话检查点写入失败，待下次重试: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${auth.sso.active-sessions-prune-interval:10m}",
+            initialDelayString = "${auth.sso.active-sessions-prune-interval:10m}")
+    public int pruneActiveSessions() {
+        int pruned = 0;
+        List<String> batch = new ArrayList<>(pruneBatchSize);
+        try (Cursor<String> cursor = redisTemplate.opsForSet().scan(RedisKeys.SSO_ACTIVE_SESSIONS,
+                ScanOptions.scanOptions().count(pruneBatchSize).build())) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= pruneBatchSize) {
+                    pruned += pruneActiveSessions(batch);
+                    batch.clear();
+                }
+            }
+        }
+        pruned += pruneActiveSessions(batch);
+        if (pruned > 0) {
+            log.info("活跃会话集合已清理过期成员: {}个", pruned);
+        }
+        return pruned;
+    }
+
+    /**
+     * 一次管道检查会话哈希是否存在，移除哈希已不存在的成员。会话ID不会复用，已过期的成员不会再变为有效
+     */
+    private int pruneActiveSessions(List<String> members) {
+        if (members.isEmpty()) {
+            return 0;
+        }
+        List<Object> exists = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            members.forEach(member -> stringConnection.exists(RedisKeys.buildSSOSessionKey(member)));
+            return null;
+        });
+        List<String> stale = new ArrayList<>();
+        for (int i = 0; i < members.size(); i++) {
+            if (Boolean.FALSE.equals(exists.get(i))) {
+                stale.add(members.get(i));
+            }
+        }
+        if (!stale.isEmpty()) {
+            redisTemplate.opsForSet().remove(RedisKeys.SSO_ACTIVE_SESSIONS, stale.toArray());
+        }
+        return stale.size();
+    }
+
+    /**
+     * 提交快照；队列已满时在调用线程执行，执行前先等待相关会话仍在排队的登录快照，保持同一会话的快照顺序
+     *
+     * @param sessionIds 快照会修改的已有会话
+     * @param snapshot   快照
+     */
+    private void submitSnapshot(List<Long> sessionIds, Runnable snapshot) {
+        Runnable task = () -> {
+            try {
+                snapshot.run();
+            } catch (Exception e) {
+                log.error("SSO会话快照写入数据库失败: {}", e.getMessage());
+            }
+        };
+        try {
+            snapshotExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            awaitPendingInserts(sessionIds);
+            task.run();
+        }
+    }
+
+    private void awaitPendingInserts(List<Long> sessionIds) {
+        long deadline = System.nanoTime() + snapshotOrderWait.toNanos();
+        for (Long sessionId : sessionIds) {
+            CompletableFuture<Void> inserted = pendingInserts.get(sessionId);
+            if (inserted == null) {
+                continue;
+            }
+            try {
+                inserted.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // 此时数据库中可能留下ACTIVE的会话，时间轮重建后按过期或非活跃结束
+                log.warn("等待会话{}的登录快照超时，结束快照可能先于登录快照写入", sessionId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // 登录快照只正常完成
+            }
+        }
+    }
+
+    private static List<String> sessionKeys(String sessionId, Long userId, String username) {
+        return Arrays.asList(
+                RedisKeys.buildSSOSessionKey(sessionId),
+                RedisKeys.SSO_ACTIVE_SESSIONS,
+                RedisKeys.buildSSOUserSessionKey(String.valueOf(userId)),
+                RedisKeys.buildSSOSessionIndexKey(String.valueOf(username)));
+    }
+
+    private static long remainingMillis(SSOSession session) {
+        if (session.getExpiresAt() == null) {
+            throw new IllegalArgumentException("Session expiresAt is required: " + session.getId());
+        }
+        return session.getExpiresAt().getTime() - System.currentTimeMillis();
+    }
+
+    /**
+     * 会话转换为哈希字段，值为null的字段不写入，时间以毫秒数保存
+     */
+    private static Map<String, String> toHash(SSOSession session) {
+        Map<String, String> hash = new LinkedHashMap<>();
+        put(hash, FIELD_USER_ID, session.getUserId());
+        put(hash, FIELD_USERNAME, session.getUsername());
+        put(hash, FIELD_SESSION_STATUS, session.getSessionStatus() == null ? null : session.getSessionStatus().name());
+        put(hash, FIELD_EXPIRES_AT, session.getExpiresAt());
+        put(hash, FIELD_LAST_ACTIVITY_TIME, session.getLastActivityTime());
+        put(hash, FIELD_MAX_INACTIVE_INTERVAL, session.getMaxInactiveInterval());
+        put(hash, FIELD_ACCESS_COUNT, session.getAccessCount());
+        put(hash, FIELD_CLIENT_IP, session.getClientIp());
+        put(hash, FIELD_USER_AGENT, session.getUserAgent());
+        put(hash, FIELD_DEVICE_ID, session.getDeviceId());
+        put(hash, FIELD_DEVICE_TYPE, session.getDeviceType());
+        put(hash, FIELD_BROWSER_INFO, session.getBrowserInfo());
+        put(hash, FIELD_OS_INFO, session.getOsInfo());
+        put(hash, FIELD_LOCATION_INFO, session.getLocationInfo());
+        put(hash, FIELD_AUTH_METHOD, session.getAuthMethod());
+        put(hash, FIELD_MFA_USED, session.getMfaUsed());
+        put(hash, FIELD_LOGIN_TIME, session.getLoginTime());
+        put(hash, FIELD_REMEMBER_ME, session.getRememberMe());
+        put(hash, FIELD_CONCURRENT_SESSIONS, session.getConcurrentSessions());
+        put(hash, FIELD_AUTHORIZED_APPS, session.getAuthorizedApps());
+        put(hash, FIELD_PERMISSIONS, session.getPermissions());
+        put(hash, FIELD_ROLES, session.getRoles());
+        put(hash, FIELD_RISK_SCORE, session.getRiskScore());
+        put(hash, FIELD_SUSPICIOUS, session.getSuspicious());
+        put(hash, FIELD_SECURITY_LEVEL, session.getSecurityLevel());
+        return hash;
+    }
+
+    private static void put(Map<String, String> hash, String field, Object value) {
+        if (value != null) {
+            hash.put(field, value instanceof Date date ? String.valueOf(date.getTime()) : value.toString());
+        }
+    }
+
+    private static SSOSession fromHash(Long sessionId, Map<?, ?> hash) {
+        SSOSession session = new SSOSession();
+        session.setId(sessionId);
+        session.setUserId(toLong(hash.get(FIELD_USER_ID)));
+        session.setUsername(toText(hash.get(FIELD_USERNAME)));
+        String status = toText(hash.get(FIELD_SESSION_STATUS));
+        session.setSessionStatus(status == null ? null : SessionStatus.valueOf(status));
+        session.setExpiresAt(toDate(hash.get(FIELD_EXPIRES_AT)));
+        session.setLastActivityTime(toDate(hash.get(FIELD_LAST_ACTIVITY_TIME)));
+        session.setMaxInactiveInterval(toInteger(hash.get(FIELD_MAX_INACTIVE_INTERVAL)));
+        session.setAccessCount(toInteger(hash.get(FIELD_ACCESS_COUNT)));
+        session.setClientIp(toText(hash.get(FIELD_CLIENT_IP)));
+        session.setUserAgent(toText(hash.get(FIELD_USER_AGENT)));
+        session.setDeviceId(toText(hash.get(FIELD_DEVICE_ID)));
+        session.setDeviceType(toText(hash.get(FIELD_DEVICE_TYPE)));
+        session.setBrowserInfo(toText(hash.get(FIELD_BROWSER_INFO)));
+        session.setOsInfo(toText(hash.get(FIELD_OS_INFO)));
+        session.setLocationInfo(toText(hash.get(FIELD_LOCATION_INFO)));
+        session.setAuthMethod(toText(hash.get(FIELD_AUTH_METHOD)));
+        session.setMfaUsed(toBoolean(hash.get(FIELD_MFA_USED)));
+        session.setLoginTime(toDate(hash.get(FIELD_LOGIN_TIME)));
+        session.setRememberMe(toBoolean(hash.get(FIELD_REMEMBER_ME)));
+        session.setConcurrentSessions(toInteger(hash.get(FIELD_CONCURRENT_SESSIONS)));
+        session.setAuthorizedApps(toText(hash.get(FIELD_AUTHORIZED_APPS)));
+        session.setPermissions(toText(hash.get(FIELD_PERMISSIONS)));
+        session.setRoles(toText(hash.get(FIELD_ROLES)));
+        session.setRiskScore(toInteger(hash.get(FIELD_RISK_SCORE)));
+        session.setSuspicious(toBoolean(hash.get(FIELD_SUSPICIOUS)));
+        session.setSecurityLevel(toText(hash.get(FIELD_SECURITY_LEVEL)));
+        return session;
+    }
+
+    private static String toText(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static Long toLong(Object value) {
+        return value == null ? null : Long.valueOf(value.toString());
+    }
+
+    private static Integer toInteger(Object value) {
+        return value == null ? null : Integer.valueOf(value.toString());
+    }
+
+    private static Boolean toBoolean(Object value) {
+        return value == null ? null : Boolean.valueOf(value.toString());
+    }
+
+    private static Date toDate(Object value) {
+        return value == null ? null : new Date(Long.parseLong(value.toString()));
+    }
+}
@@ -0,0 +1,180 @@
+package com.loveyue.auth.service.impl;
+
+import com.loveyue.auth.dto.SessionActivityDTO;
+import com.loveyue.auth.entity.SSOSession;
+import com.loveyue.auth.repository.SSOSessionRepository;
+import com.loveyue.auth.service.SessionActivityService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Description: SSO会话活动服务实现类
+ * <p>
+ * 每个会话在内存中对应一条活动记录：最后活动时间取最大值，访问次数原子累加，请求路径上无锁也不访问数据库。
+ * 定时任务把每个会话周期内的访问合并为一条，以JDBC批量UPDATE写回sso_session，不递增版本号。
+ * 写回后超过retain时长未再访问的记录从内存中移除。
+ * </p>
+ *
+ * <p>
+ * 非活跃判断使用数据库值与内存值中较新的一个；其他节点上的访问最多延迟一个刷新周期可见，
+ * 刷新周期应远小于会话的最大非活动间隔。
+ * </p>
+ * @Date 2025/8/17
+ * @Author LoveYue
+ */
+@Slf4j
+@Service
+public class SessionActivityServiceImpl implements SessionActivityService {
+
+    /**
+     * 已移除标记，访问次数为该值的记录不再接受累加
+     */
+    private static final int RETIRED = Integer.MIN_VALUE;
+
+    private final SSOSessionRepository ssoSessionRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 写回后记录在内存中的保留时长
+     */
+    private final long retainMillis;
+
+    private final Map<Long, Activity> activities = new ConcurrentHashMap<>();
+
+    public SessionActivityServiceImpl(SSOSessionRepository ssoSessionRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${auth.session.activity-retain:10m}") Duration retain) {
+        this.ssoSessionRepository = ssoSessionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retainMillis = retain.toMillis();
+    }
+
+    @Override
+    public void touch(Long sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        while (true) {
+            Activity activity = activities.computeIfAbsent(sessionId, id -> new Activity());
+            if (activity.touch(now)) {
+                return;
+            }
+            // 记录刚被移除，重新创建
+            activities.remove(sessionId, activity);
+        }
+    }
+
+    @Override
+    public Date getLastActivityTime(SSOSession session) {
+        return getLastActivityTime(session.getId(), session.getLastActivityTime());
+    }
+
+    @Override
+    public Date getLastActivityTime(Long sessionId, Date persisted) {
+        Activity activity = sessionId == null ? null : activities.get(sessionId);
+        if (activity == null) {
+            return persisted;
+        }
+        long latest = activity.lastActivity.get();
+        return persisted != null && persisted.getTime() >= latest ? persisted : new Date(latest);
+    }
+
+    @Override
+    public boolean isInactive(SSOSession session) {
+        return session.isInactive(getLastActivityTime(session));
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${auth.session.activity-flush-interval:10s}")
+    public synchronized int flush() {
+        if (activities.isEmpty()) {
+            return 0;
+        }
+
+        long now = System.currentTimeMillis();
+        List<SessionActivityDTO> batch = new ArrayList<>();
+        List<Activity> flushed = new ArrayList<>();
+        activities.forEach((sessionId, activity) -> {
+            int delta = activity.pending.getAndSet(0);
+            if (delta > 0) {
+                SessionActivityDTO dto = new SessionActivityDTO();
+                dto.setSessionId(sessionId);
+                dto.setLastActivityTime(new Date(activity.lastActivity.get()));
+                dto.setAccessCountDelta(delta);
+                batch.add(dto);
+                flushed.add(activity);
+            } else if (now - activity.lastActivity.get() > retainMillis
+                    && activity.pending.compareAndSet(0, RETIRED)) {
+                activities.remove(sessionId, activity);
+            }
+        });
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> ssoSessionRepository.batchUpdateActivity(batch));
+            log.debug("会话活动写回数据库: {}条", batch.size());
+            return batch.size();
+        } catch (Exception e) {
+            // 写回失败时把增量加回，与期间的新访问合并后下次重试
+            for (int i = 0; i < batch.size(); i++) {
+                flushed.get(i).pending.addAndGet(batch.get(i).getAccessCountDelta());
+            }
+            log.warn("会话活动写回数据库失败，待下次重试: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    /**
+     * 单个会话的内存活动记录
+     */
+    private static final class Activity {
+
+        private final AtomicLong lastActivity = new AtomicLong();
+
+        /**
+         * 尚未写回的访问次数
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        /**
+         * 记录一次访问
+         *
+         * @return 记录已被移除时返回false
+         */
+        private boolean touch(long now) {
+            // 先更新时间再计数，写回时读到计数就一定能读到对应的时间
+            lastActivity.accumulateAndGet(now, Math::max);
+            int current;
+            do {
+                current = pending.get();
+                if (current == RETIRED) {
+                    return false;
+                }
+            } while (!pending.compareAndSet(current, current + 1));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package com.loveyue.auth.service.impl;
+
+import com.loveyue.auth.dto.SessionDeadlineDTO;
+import com.loveyue.auth.entity.SSOSession;
+import com.loveyue.auth.repository.SSOSessionRepository;
+import com.loveyue.auth.service.SessionActivityService;
+import com.loveyue.auth.service.SessionExpiryService;
+import com.loveyue.common.constant.AuthConstants;
+import com.loveyue.common.constant.RedisKeys;
+import com.loveyue.common.enums.SessionStatus;
+import com.loveyue.common.utils.HierarchicalTimingWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Description: SSO会话到期服务实现类
+ * <p>
+ * 每个活跃会话在时间轮中只有一个定时项，到期时间取过期时间与“最后活动时间+最大非活动间隔”中较早的一个。
+ * 会话访问不重新调度时间轮：定时项到期时从Redis会话哈希（不存在时从数据库）重新读取最后活动时间、非活动间隔和过期时间，
+ * 并合并{@link SessionActivityService}中本节点尚未写入的活动，期间有访问则写回定时项并按新的截止时间重新调度，
+ * 否则结束会话。结束非活跃会话的UPDATE再以数据库中的最后活动时间校验一次，未结束的会话不清理缓存，稍后重新读取。
+ * </p>
+ *
+ * <p>
+ * 每个刻度内到期的会话合并为一次JDBC批量UPDATE（过期为EXPIRED，非活跃为INACTIVE）和一次Redis管道清理缓存，
+ * 处理代价只与到期的会话数有关。数据库写入失败的会话延迟retry-delay后重试。
+ * 应用启动后从数据库重建时间轮；多节点各自调度，结束会话的UPDATE只作用于仍为ACTIVE的会话，重复执行无副作用。
+ * </p>
+ * @Date 2025/8/18
+ * @Author LoveYue
+ */
+@Slf4j
+@Service
+public class SessionExpiryServiceImpl implements SessionExpiryService {
+
+    /**
+     * 到期判断需要的会话哈希字段，顺序与{@link #fromHash(Long, Object)}一致
+     */
+    private static final String[] SESSION_HASH_FIELDS = {
+            SSOSessionStoreServiceImpl.FIELD_SESSION_STATUS,
+            SSOSessionStoreServiceImpl.FIELD_EXPIRES_AT,
+            SSOSessionStoreServiceImpl.FIELD_LAST_ACTIVITY_TIME,
+            SSOSessionStoreServiceImpl.FIELD_MAX_INACTIVE_INTERVAL
+    };
+
+    private final SSOSessionRepository ssoSessionRepository;
+
+    private final SessionActivityService sessionActivityService;
+
+    private final ObjectProvider<StringRedisTemplate> redisTemplateProvider;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    /**
+     * 时间轮刻度（毫秒）
+     */
+    @Value("${auth.session.expiry.tick-millis:1000}")
+    private long tickMillis;
+
+    /**
+     * 每层槽数的位数
+     */
+    @Value("${auth.session.expiry.wheel-bits:6}")
+    private int wheelBits;
+
+    /**
+     * 层数，默认1秒刻度、64槽、4层，可覆盖约194天
+     */
+    @Value("${auth.session.expiry.wheel-levels:4}")
+    private int wheelLevels;
+
+    /**
+     * 重建时每次从数据库拉取的行数
+     */
+    @Value("${auth.session.expiry.rebuild-fetch-size:1000}")
+    private int rebuildFetchSize;
+
+    /**
+     * 结束会话失败后的重试延迟（毫秒）
+     */
+    @Value("${auth.session.expiry.retry-delay-millis:10000}")
+    private long retryDelayMillis;
+
+    private HierarchicalTimingWheel<Long, SessionDeadlineDTO> timingWheel;
+
+    private ScheduledExecutorService tickExecutor;
+
+    public SessionExpiryServiceImpl(SSOSessionRepository ssoSessionRepository,
+                                    SessionActivityService sessionActivityService,
+                                    ObjectProvider<StringRedisTemplate> redisTemplateProvider,
+                                    PlatformTransactionManager transactionManager) {
+        this.ssoSessionRepository = ssoSessionRepository;
+        this.sessionActivityService = sessionActivityService;
+        this.redisTemplateProvider = redisTemplateProvider;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void init() {
+        timingWheel = new HierarchicalTimingWheel<>(tickMillis, wheelBits, wheelLevels, System.currentTimeMillis());
+        tickExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (tickExecutor != null) {
+            tickExecutor.shutdownNow();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("会话到期时间轮重建失败: {}", e.getMessage(), e);
+        }
+        tickExecutor.scheduleWithFixedDelay(this::tickSafely, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void schedule(SSOSession session) {
+        if (session.getId() == null || !SessionStatus.ACTIVE.equals(session.getSessionStatus())) {
+            return;
+        }
+        SessionDeadlineDTO deadline = new SessionDeadlineDTO();
+        deadline.setSessionId(session.getId());
+        deadline.setUserId(session.getUserId());
+        deadline.setExpiresAt(session.getExpiresAt());
+        deadline.setLastActivityTime(session.getLastActivityTime());
+        deadline.setMaxInactiveInterval(session.getMaxInactiveInterval());
+        schedule(deadline);
+    }
+
+    @Override
+    public void schedule(SessionDeadlineDTO deadline) {
+        long deadlineMillis = deadlineOf(deadline, deadline.getLastActivityTime());
+        if (deadlineMillis == Long.MAX_VALUE) {
+            timingWheel.cancel(deadline.getSessionId());
+            return;
+        }
+        timingWheel.schedule(deadline.getSessionId(), deadline, deadlineMillis);
+    }
+
+    @Override
+    public void cancel(Long sessionId) {
+        timingWheel.cancel(sessionId);
+    }
+
+    @Override
+    public long rebuild() {
+        timingWheel.clear();
+        Long count = readOnlyTransactionTemplate.execute(status ->
+                ssoSessionRepository.scanActiveSessionDeadlines(rebuildFetchSize, this::schedule));
+        log.info("会话到期时间轮重建完成，活跃会话{}个", count);
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public int getScheduledCount() {
+        return timingWheel.size();
+    }
+
+    private void tickSafely() {
+        try {
+            tick();
+        } catch (Exception e) {
+            log.warn("会话到期处理失败: {}", e.getMessage());
+        }
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        List<SessionDeadlineDTO> due = timingWheel.advance(now);
+        if (due.isEmpty()) {
+            return;
+        }
+
+        List<SessionDeadlineDTO> expired = new ArrayList<>();
+        List<SessionDeadlineDTO> idle = new ArrayList<>();
+        for (SessionDeadlineDTO deadline : due) {
+            if (deadline.getExpiresAt() != null && deadline.getExpiresAt().getTime() <= now) {
+                expired.add(deadline);
+            } else {
+                idle.add(deadline);
+            }
+        }
+
+        List<SessionDeadlineDTO> inactive = new ArrayList<>();
+        if (!idle.isEmpty()) {
+            Map<Long, SessionDeadlineDTO> latest;
+            try {
+                latest = loadLatest(idle);
+            } catch (Exception e) {
+                log.warn("读取会话最新活动时间失败，{}毫秒后重试: {}", retryDelayMillis, e.getMessage());
+                reschedule(idle, now + retryDelayMillis);
+                latest = Map.of();
+            }
+            for (SessionDeadlineDTO deadline : idle) {
+                SessionDeadlineDTO current = latest.get(deadline.getSessionId());
+                if (current == null) {
+                    // 会话已结束或读取失败后已重新调度
+                    continue;
+                }
+                refresh(deadline, current);
+                long deadlineMillis = deadlineOf(deadline, deadline.getLastActivityTime());
+                if (deadline.getExpiresAt() != null && deadline.getExpiresAt().getTime() <= now) {
+                    expired.add(deadline);
+                } else if (deadlineMillis <= now) {
+                    inactive.add(deadline);
+                } else if (deadlineMillis != Long.MAX_VALUE) {
+                    timingWheel.schedule(deadline.getSessionId(), deadline, deadlineMillis);
+                }
+            }
+        }
+        if (expired.isEmpty() && inactive.isEmpty()) {
+            return;
+        }
+
+        List<Long> closedInactive;
+        try {
+            closedInactive = transactionTemplate.execute(status -> {
+                ssoSessionRepository.batchCloseSessions(sessionIds(expired), SessionStatus.EXPIRED,
+                        AuthConstants.LOGOUT_REASON_SESSION_EXPIRED);
+                return ssoSessionRepository.batchCloseSessions(sessionIds(inactive), SessionStatus.INACTIVE,
+                        AuthConstants.LOGOUT_REASON_IDLE_TIMEOUT);
+            });
+        } catch (Exception e) {
+            log.warn("批量结束到期会话失败，{}毫秒后重试: {}", retryDelayMillis, e.getMessage());
+            reschedule(expired, now + retryDelayMillis);
+            reschedule(inactive, now + retryDelayMillis);
+            return;
+        }
+
+        // 读取之后又有活动写入数据库的会话未被结束，稍后重新读取
+        Set<Long> closed = closedInactive == null ? Set.of() : new HashSet<>(closedInactive);
+        List<SessionDeadlineDTO> closedIdle = new ArrayList<>(closed.size());
+        for (SessionDeadlineDTO deadline : inactive) {
+            if (closed.contains(deadline.getSessionId())) {
+                closedIdle.add(deadline);
+            } else {
+                timingWheel.schedule(deadline.getSessionId(), deadline, now + retryDelayMillis);
+            }
+        }
+        log.debug("到期会话已结束: 过期{}个，非活跃{}个", expired.size(), closedIdle.size());
+
+        evictCaches(expired, closedIdle);
+    }
+
+    /**
+     * 批量读取会话当前的到期信息，已结束的会话不包含在内
+     * <p>
+     * 优先一次管道从Redis会话哈希读取（validate实时写入最后活动时间），哈希不存在或Redis不可用时从数据库读取。
+     * </p>
+     */
+    private Map<Long, SessionDeadlineDTO> loadLatest(List<SessionDeadlineDTO> deadlines) {
+        Map<Long, SessionDeadlineDTO> latest = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        List<Object> hashes = readSessionHashes(deadlines);
+        for (int i = 0; i < deadlines.size(); i++) {
+            Long sessionId = deadlines.get(i).getSessionId();
+            SessionDeadlineDTO current = hashes == null ? null : fromHash(sessionId, hashes.get(i));
+            if (current != null) {
+                latest.put(sessionId, current);
+            } else {
+                missing.add(sessionId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Long, SessionDeadlineDTO> persisted = readOnlyTransactionTemplate.execute(status ->
+                    ssoSessionRepository.findActiveSessionDeadlines(missing));
+            if (persisted != null) {
+                latest.putAll(persisted);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * 一次管道读取会话哈希中的到期字段，Redis不可用时返回null
+     */
+    private List<Object> readSessionHashes(List<SessionDeadlineDTO> deadlines) {
+        StringRedisTemplate redisTemplate = redisTemplateProvider.getIfAvailable();
+        if (redisTemplate == null) {
+            return null;
+        }
+        try {
+            return redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (SessionDeadlineDTO deadline : deadlines) {
+                    stringConnection.hMGet(RedisKeys.buildSSOSessionKey(String.valueOf(deadline.getSessionId())),
+                            SESSION_HASH_FIELDS);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("从Redis读取会话活动时间失败，改为读取数据库: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 由HMGET结果构造到期信息，哈希不存在或会话已不是ACTIVE时返回null
+     */
+    private static SessionDeadlineDTO fromHash(Long sessionId, Object hash) {
+        if (!(hash instanceof List<?> values) || values.size() < SESSION_HASH_FIELDS.length
+                || !SessionStatus.ACTIVE.name().equals(values.get(0))) {
+            return null;
+        }
+        SessionDeadlineDTO current = new SessionDeadlineDTO();
+        current.setSessionId(sessionId);
+        current.setExpiresAt(values.get(1) == null ? null : new Date(Long.parseLong(values.get(1).toString())));
+        current.setLastActivityTime(values.get(2) == null ? null : new Date(Long.parseLong(values.get(2).toString())));
+        current.setMaxInactiveInterval(values.get(3) == null ? null : Integer.valueOf(values.get(3).toString()));
+        return current;
+    }
+
+    /**
+     * 用读取到的最新值更新时间轮中的到期信息，最后活动时间只前进不后退，并合并本节点尚未写入的活动
+     */
+    private void refresh(SessionDeadlineDTO deadline, SessionDeadlineDTO current) {
+        Date lastActivityTime = sessionActivityService.getLastActivityTime(
+                deadline.getSessionId(), latestOf(deadline.getLastActivityTime(), current.getLastActivityTime()));
+        deadline.setLastActivityTime(lastActivityTime);
+        deadline.setMaxInactiveInterval(current.getMaxInactiveInterval());
+        deadline.setExpiresAt(current.getExpiresAt());
+    }
+
+    private void reschedule(List<SessionDeadlineDTO> deadlines, long deadlineMillis) {
+        deadlines.forEach(deadline -> timingWheel.schedule(deadline.getSessionId(), deadline, deadlineMillis));
+    }
+
+    /**
+     * 一次管道删除到期会话的缓存并从活跃会话集合中移除
+     */
+    private void evictCaches(List<SessionDeadlineDTO> expired, List<SessionDeadlineDTO> inactive) {
+        StringRedisTemplate redisTemplate = redisTemplateProvider.getIfAvailable();
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                List<String> sessionIds = new ArrayList<>(expired.size() + inactive.size());
+                expired.forEach(deadline -> sessionIds.add(String.valueOf(deadline.getSessionId())));
+                inactive.forEach(deadline -> sessionIds.add(String.valueOf(deadline.getSessionId())));
+                stringConnection.del(sessionIds.stream().map(RedisKeys::buildSSOSessionKey).toArray(String[]::new));
+                stringConnection.sRem(RedisKeys.SSO_ACTIVE_SESSIONS, sessionIds.toArray(String[]::new));
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("清理到期会话缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 会话的下一个到期时间，没有过期时间也没有非活动限制时返回Long.MAX_VALUE
+     */
+    private static long deadlineOf(SessionDeadlineDTO deadline, Date lastActivityTime) {
+        long deadlineMillis = deadline.getExpiresAt() == null ? Long.MAX_VALUE : deadline.getExpiresAt().getTime();
+        if (lastActivityTime != null && deadline.getMaxInactiveInterval() != null) {
+            deadlineMillis = Math.min(deadlineMillis,
+                    lastActivityTime.getTime() + deadline.getMaxInactiveInterval() * 1000L);
+        }
+        return deadlineMillis;
+    }
+
+    private static Date latestOf(Date first, Date second) {
+        if (first == null) {
+            return second;
+        }
+        return second == null || first.after(second) ? first : second;
+    }
+
+    private static List<Long> sessionIds(List<SessionDeadlineDTO> deadlines) {
+        return deadlines.stream().map(SessionDeadlineDTO::getSessionId).toList();
+    }
+}
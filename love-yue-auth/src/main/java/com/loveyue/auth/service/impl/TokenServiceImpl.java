@@ -0,0 +1,137 @@
+package com.loveyue.auth.service.impl;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.util.StrUtil;
+import com.loveyue.auth.dto.BatchTokenValidateResultDTO;
+import com.loveyue.auth.dto.TokenIntrospectionDTO;
+import com.loveyue.auth.service.TokenService;
+import com.loveyue.common.enums.TokenValidationStatus;
+import com.loveyue.common.security.TokenBatchValidator;
+import com.loveyue.common.security.TokenValidationResult;
+import com.loveyue.common.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * @Description: 令牌服务实现类
+ * @Date 2025/8/4
+ * @Author LoveYue
+ */
+@Service
+public class TokenServiceImpl implements TokenService {
+
+    private final TokenBatchValidator tokenBatchValidator;
+
+    /**
+     * 内省结果缓存时间（秒），同时作为响应的最大缓存时间
+     */
+    private final long introspectionCacheSeconds;
+
+    /**
+     * 内省结果缓存，按令牌缓存，条目时间不超过令牌剩余有效期
+     */
+    private final LRUCache<String, TokenIntrospectionDTO> introspectionCache;
+
+    public TokenServiceImpl(TokenBatchValidator tokenBatchValidator,
+                            @Value("${auth.introspection.cache-seconds:5}") long introspectionCacheSeconds,
+                            @Value("${auth.introspection.cache-size:10000}") int introspectionCacheSize) {
+        this.tokenBatchValidator = tokenBatchValidator;
+        this.introspectionCacheSeconds = introspectionCacheSeconds;
+        this.introspectionCache = CacheUtil.newLRUCache(introspectionCacheSize, introspectionCacheSeconds * 1000);
+    }
+
+    @Override
+    public BatchTokenValidateResultDTO validateTokens(List<String> tokens) {
+        List<TokenValidationResult> results = tokenBatchValidator.validate(tokens);
+
+        int validCount = (int) results.stream().filter(TokenValidationResult::isValid).count();
+
+        BatchTokenValidateResultDTO resultDTO = new BatchTokenValidateResultDTO();
+        resultDTO.setTotal(results.size());
+        resultDTO.setValidCount(validCount);
+        resultDTO.setInvalidCount(results.size() - validCount);
+        resultDTO.setResults(results);
+        return resultDTO;
+    }
+
+    @Override
+    public TokenIntrospectionDTO introspect(String token) {
+        if (StrUtil.isBlank(token)) {
+            return inactive();
+        }
+
+        TokenIntrospectionDTO cached = introspectionCache.get(token, false);
+        if (cached != null) {
+            return cached;
+        }
+
+        TokenIntrospectionDTO introspection = buildIntrospection(tokenBatchValidator.validate(token));
+        if (introspection.getMaxAgeSeconds() > 0) {
+            introspectionCache.put(token, introspection, introspection.getMaxAgeSeconds() * 1000);
+        }
+        return introspection;
+    }
+
+    /**
+     * 根据校验结果构建内省响应，有效令牌的缓存时间不超过其剩余有效期
+     */
+    private TokenIntrospectionDTO buildIntrospection(TokenValidationResult result) {
+        if (!result.isValid()) {
+            TokenIntrospectionDTO introspection = inactive();
+            if (TokenValidationStatus.UNKNOWN.equals(result.getStatus())) {
+                // 黑名单暂不可用，结果不可缓存
+                introspection.setMaxAgeSeconds(0);
+            }
+            return introspection;
+        }
+
+        Claims claims = result.getClaims();
+        TokenIntrospectionDTO introspection = new TokenIntrospectionDTO();
+        introspection.setActive(true);
+        introspection.setUsername(result.getUsername());
+        introspection.setTokenType(result.getTokenType());
+        introspection.setSub(result.getUserId() == null ? null : String.valueOf(result.getUserId()));
+        introspection.setJti(result.getTokenId());
+        introspection.setSessionId(result.getSessionId());
+        introspection.setIss(claims.getIssuer());
+        introspection.setAud(claims.getAudience());
+        introspection.setIat(result.getIssuedAt() == null ? null : result.getIssuedAt().getTime() / 1000);
+        introspection.setExp(result.getExpiresAt() == null ? null : result.getExpiresAt().getTime() / 1000);
+        introspection.setRoles(toStringList(claims.get(JwtUtil.CLAIM_ROLES)));
+
+        List<String> permissions = toStringList(claims.get(JwtUtil.CLAIM_PERMISSIONS));
+        if (permissions != null) {
+            introspection.setScope(String.join(" ", permissions));
+        }
+
+        long maxAgeSeconds = introspectionCacheSeconds;
+        if (introspection.getExp() != null) {
+            maxAgeSeconds = Math.min(maxAgeSeconds, introspection.getExp() - System.currentTimeMillis() / 1000);
+        }
+        introspection.setMaxAgeSeconds(Math.max(0, maxAgeSeconds));
+        introspection.setEtag("\"" + result.getTokenId() + "-" + introspection.getExp() + "\"");
+        return introspection;
+    }
+
+    /**
+     * 构建无效令牌的内省响应，按RFC 7662只返回active=false
+     */
+    private TokenIntrospectionDTO inactive() {
+        TokenIntrospectionDTO introspection = new TokenIntrospectionDTO();
+        introspection.setActive(false);
+        introspection.setMaxAgeSeconds(introspectionCacheSeconds);
+        introspection.setEtag("\"inactive\"");
+        return introspection;
+    }
+
+    private static List<String> toStringList(Object value) {
+        if (!(value instanceof List<?> list)) {
+            return null;
+        }
+        return list.stream().map(String::valueOf).toList();
+    }
+}
@@ -0,0 +1,97 @@
+package com.loveyue.auth.service.impl;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import com.loveyue.auth.entity.UserEntity;
+import com.loveyue.auth.service.RoleHierarchyService;
+import com.loveyue.auth.service.UserPermissionService;
+import com.loveyue.common.security.PermissionRegistry;
+import com.loveyue.common.security.PermissionSet;
+import com.loveyue.common.security.RoleHierarchy;
+import com.loveyue.common.utils.JwtUtil;
+import com.loveyue.common.utils.StringUtils;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @Description: 用户权限服务实现类
+ * <p>
+ * 编译结果按（角色集合，直接权限集合）缓存，角色和权限相同的用户共享同一个权限集合。
+ * 缓存条目记录编译时的角色层级快照，层级变更后下一次访问重新编译，不需要单独失效。
+ * </p>
+ * @Date 2025/8/23
+ * @Author LoveYue
+ */
+@Service
+public class UserPermissionServiceImpl implements UserPermissionService {
+
+    private final RoleHierarchyService roleHierarchyService;
+
+    private final PermissionRegistry permissionRegistry;
+
+    private final LRUCache<Key, Compiled> compiledCache;
+
+    public UserPermissionServiceImpl(RoleHierarchyService roleHierarchyService,
+                                     PermissionRegistry permissionRegistry,
+                                     @Value("${auth.permission.compiled-cache-size:10000}") int compiledCacheSize) {
+        this.roleHierarchyService = roleHierarchyService;
+        this.permissionRegistry = permissionRegistry;
+        this.compiledCache = CacheUtil.newLRUCache(compiledCacheSize);
+    }
+
+    @Override
+    public PermissionSet getPermissionSet(Collection<String> roleNames, Collection<String> permissions) {
+        Key key = new Key(roleNames == null ? Set.of() : Set.copyOf(roleNames),
+                permissions == null ? Set.of() : Set.copyOf(permissions));
+        RoleHierarchy hierarchy = roleHierarchyService.getHierarchy();
+        Compiled compiled = compiledCache.get(key, false);
+        if (compiled != null && compiled.hierarchy() == hierarchy) {
+            return compiled.permissionSet();
+        }
+
+        PermissionSet permissionSet = permissionRegistry.compile(key.permissions())
+                .union(hierarchy.getPermissionBits(roleHierarchyService.resolveRoleIds(key.roleNames())));
+        compiledCache.put(key, new Compiled(hierarchy, permissionSet));
+        return permissionSet;
+    }
+
+    @Override
+    public PermissionSet getPermissionSet(UserEntity user) {
+        return getPermissionSet(StringUtils.splitCodes(user.getRoles()), StringUtils.splitCodes(user.getPermissions()));
+    }
+
+    @Override
+    public PermissionSet getPermissionSet(Claims claims) {
+        return getPermissionSet(toStringList(claims.get(JwtUtil.CLAIM_ROLES)),
+                toStringList(claims.get(JwtUtil.CLAIM_PERMISSIONS)));
+    }
+
+    @Override
+    public PermissionSet compile(String... permissions) {
+        return permissionRegistry.compile(permissions);
+    }
+
+    private static List<String> toStringList(Object value) {
+        if (!(value instanceof List<?> list)) {
+            return null;
+        }
+        return list.stream().map(String::valueOf).toList();
+    }
+
+    /**
+     * 缓存键：角色名称集合和直接权限集合
+     */
+    private record Key(Set<String> roleNames, Set<String> permissions) {
+    }
+
+    /**
+     * 编译结果及编译时的角色层级快照
+     */
+    private record Compiled(RoleHierarchy hierarchy, PermissionSet permissionSet) {
+    }
+}
@@ -0,0 +1,401 @@
+package com.loveyue.auth.service.impl;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.util.IdUtil;
+import com.loveyue.auth.dto.UserRetentionDTO;
+import com.loveyue.auth.dto.UserStatisticsDTO;
+import com.loveyue.auth.service.UserStatisticsService;
+import com.loveyue.common.constant.RedisKeys;
+import com.loveyue.common.enums.LoginResult;
+import com.loveyue.common.enums.ResponseCode;
+import com.loveyue.common.exception.BusinessException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Description: 用户统计服务实现类
+ * <p>
+ * 去重用户数使用HyperLogLog（每日、每小时、在线时间片各一个键），留存分析使用按日期划分的位图，
+ * 用户ID通过序号映射转换为位图偏移量；登录次数和用户活跃次数在本地用LongAdder累加。
+ * 所有记录先进入本地缓冲，同一时间片内重复活跃的用户只写一次，由定时任务通过一次管道批量写入Redis，
+ * 请求路径上不访问Redis。写入失败时取出的数据加回本地缓冲，下次重试。
+ * </p>
+ * @Date 2025/8/14
+ * @Author LoveYue
+ */
+@Slf4j
+@Service
+public class UserStatisticsServiceImpl implements UserStatisticsService {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private static final DateTimeFormatter DATE_HOUR_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd-HH");
+
+    /**
+     * 留存计算临时交集键的过期时间（秒）
+     */
+    private static final long RETENTION_TEMP_KEY_TTL_SECONDS = 60;
+
+    /**
+     * KEYS[1]: 序号映射哈希；KEYS[2]: 序号计数器；ARGV: 用户ID列表。返回与ARGV一一对应的序号
+     */
+    private static final String ASSIGN_ORDINALS_SCRIPT = """
+            local ordinals = {}
+            for i, userId in ipairs(ARGV) do
+                local ordinal = redis.call('HGET', KEYS[1], userId)
+                if not ordinal then
+                    ordinal = redis.call('INCR', KEYS[2]) - 1
+                    redis.call('HSET', KEYS[1], userId, ordinal)
+                end
+                ordinals[i] = tonumber(ordinal)
+            end
+            return ordinals
+            """;
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ASSIGN_ORDINALS = new DefaultRedisScript<>(ASSIGN_ORDINALS_SCRIPT, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final ZoneId zoneId = ZoneId.systemDefault();
+
+    /**
+     * 在线用户时间片长度（毫秒）
+     */
+    private final long onlineBucketMillis;
+
+    /**
+     * 在线用户统计覆盖的时间片数
+     */
+    private final int onlineBuckets;
+
+    /**
+     * 每日统计数据的保留天数
+     */
+    private final long retentionDays;
+
+    /**
+     * 待写入的活跃用户，按在线时间片分组
+     */
+    private final Map<Long, Set<Long>> pendingActiveUsers = new ConcurrentHashMap<>();
+
+    /**
+     * 各时间片内已记录过的用户，用于本地去重
+     */
+    private final Map<Long, Set<Long>> recordedActiveUsers = new ConcurrentHashMap<>();
+
+    /**
+     * 登录次数计数，键为登录统计键，值为各登录结果的计数
+     */
+    private final Map<String, Map<LoginResult, LongAdder>> loginCounters = new ConcurrentHashMap<>();
+
+    /**
+     * 用户活跃次数计数，键为用户活跃度统计键
+     */
+    private final Map<String, LongAdder> activityCounters = new ConcurrentHashMap<>();
+
+    /**
+     * 用户序号本地缓存，序号分配后不再变化
+     */
+    private final LRUCache<Long, Long> ordinalCache;
+
+    public UserStatisticsServiceImpl(StringRedisTemplate redisTemplate,
+                                     @Value("${auth.stats.online-bucket-minutes:5}") long onlineBucketMinutes,
+                                     @Value("${auth.stats.online-window-minutes:15}") long onlineWindowMinutes,
+                                     @Value("${auth.stats.retention-days:90}") long retentionDays,
+                                     @Value("${auth.stats.ordinal-cache-size:100000}") int ordinalCacheSize) {
+        this.redisTemplate = redisTemplate;
+        this.onlineBucketMillis = TimeUnit.MINUTES.toMillis(onlineBucketMinutes);
+        this.onlineBuckets = (int) Math.max(1, onlineWindowMinutes / onlineBucketMinutes);
+        this.retentionDays = retentionDays;
+        this.ordinalCache = CacheUtil.newLRUCache(ordinalCacheSize);
+    }
+
+    @Override
+    public void recordActivity(Long userId) {
+        if (userId == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long bucket = now / onlineBucketMillis;
+        if (recordedActiveUsers.computeIfAbsent(bucket, k -> ConcurrentHashMap.newKeySet()).add(userId)) {
+            pendingActiveUsers.computeIfAbsent(bucket, k -> ConcurrentHashMap.newKeySet()).add(userId);
+        }
+
+        String activityKey = RedisKeys.buildUserActivityStatsKey(String.valueOf(userId), formatDate(now));
+        activityCounters.computeIfAbsent(activityKey, k -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void recordLogin(Long userId, LoginResult loginResult) {
+        String loginKey = RedisKeys.buildLoginStatsKey(formatDate(System.currentTimeMillis()));
+        loginCounters.computeIfAbsent(loginKey, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(loginResult, k -> new LongAdder())
+                .increment();
+
+        if (loginResult == LoginResult.SUCCESS) {
+            recordActivity(userId);
+        }
+    }
+
+    @Override
+    public UserStatisticsDTO getOverview() {
+        long now = System.currentTimeMillis();
+        long currentBucket = now / onlineBucketMillis;
+        String[] onlineKeys = new String[onlineBuckets];
+        for (int i = 0; i < onlineBuckets; i++) {
+            onlineKeys[i] = RedisKeys.buildOnlineUsersKey(currentBucket - i);
+        }
+        String date = formatDate(now);
+
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            stringConnection.pfCount(onlineKeys);
+            stringConnection.pfCount(RedisKeys.buildDailyUvKey(date));
+            stringConnection.pfCount(RedisKeys.buildHourlyUvKey(formatDateHour(now)));
+            stringConnection.hGetAll(RedisKeys.buildLoginStatsKey(date));
+            return null;
+        });
+
+        UserStatisticsDTO statistics = new UserStatisticsDTO();
+        statistics.setDate(date);
+        statistics.setOnlineUsers(toLong(results.get(0)));
+        statistics.setDailyActiveUsers(toLong(results.get(1)));
+        statistics.setHourlyActiveUsers(toLong(results.get(2)));
+
+        Map<String, Long> loginCounts = new LinkedHashMap<>();
+        if (results.get(3) instanceof Map<?, ?> counts) {
+            counts.forEach((result, count) -> loginCounts.put(String.valueOf(result), toLong(count)));
+        }
+        statistics.setLoginCounts(loginCounts);
+        return statistics;
+    }
+
+    @Override
+    public UserRetentionDTO getRetention(String date, int days) {
+        LocalDate baseDate;
+        try {
+            baseDate = LocalDate.parse(date, DATE_FORMATTER);
+        } catch (DateTimeParseException e) {
+            throw new BusinessException(ResponseCode.BAD_REQUEST.getCode(), "日期格式应为yyyy-MM-dd");
+        }
+        if (days < 1 || days > retentionDays) {
+            throw new BusinessException(ResponseCode.BAD_REQUEST.getCode(), "间隔天数应在1到" + retentionDays + "之间");
+        }
+
+        String baseKey = RedisKeys.buildActiveBitmapKey(date);
+        String targetKey = RedisKeys.buildActiveBitmapKey(baseDate.plusDays(days).format(DATE_FORMATTER));
+        String intersectionKey = RedisKeys.STATS_ACTIVE_BITMAP + "tmp:" + IdUtil.fastSimpleUUID();
+
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            stringConnection.bitCount(baseKey);
+            stringConnection.bitOp(RedisStringCommands.BitOperation.AND, intersectionKey, baseKey, targetKey);
+            // 删除失败时由过期时间兜底清理
+            stringConnection.expire(intersectionKey, RETENTION_TEMP_KEY_TTL_SECONDS);
+            stringConnection.bitCount(intersectionKey);
+            stringConnection.del(intersectionKey);
+            return null;
+        });
+
+        // 结果依次为BITCOUNT、BITOP、EXPIRE、BITCOUNT、DEL
+        long baseUsers = toLong(results.get(0));
+        long retainedUsers = toLong(results.get(3));
+
+        UserRetentionDTO retention = new UserRetentionDTO();
+        retention.setDate(date);
+        retention.setDays(days);
+        retention.setBaseUsers(baseUsers);
+        retention.setRetainedUsers(retainedUsers);
+        retention.setRetentionRate(baseUsers == 0 ? 0D : (double) retainedUsers / baseUsers);
+        return retention;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${auth.stats.flush-interval:5s}")
+    public void flush() {
+        try {
+            doFlush();
+        } catch (Exception e) {
+            log.warn("用户统计写入Redis失败: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    private void doFlush() {
+        long now = System.currentTimeMillis();
+        long currentBucket = now / onlineBucketMillis;
+        String today = formatDate(now);
+        recordedActiveUsers.keySet().removeIf(bucket -> bucket < currentBucket - 1);
+
+        Map<Long, List<Long>> activeUsers = new HashMap<>();
+        for (Long bucket : new ArrayList<>(pendingActiveUsers.keySet())) {
+            Set<Long> users = pendingActiveUsers.remove(bucket);
+            if (users != null && !users.isEmpty()) {
+                activeUsers.put(bucket, new ArrayList<>(users));
+            }
+        }
+
+        Map<String, Map<LoginResult, Long>> loginDeltas = new HashMap<>();
+        loginCounters.forEach((key, counters) -> counters.forEach((result, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta > 0) {
+                loginDeltas.computeIfAbsent(key, k -> new HashMap<>()).put(result, delta);
+            }
+        }));
+        // 只清理往日的计数，当日计数复用，避免清理与并发累加竞争导致计数丢失
+        String todayLoginKey = RedisKeys.buildLoginStatsKey(today);
+        loginCounters.keySet().removeIf(key -> !key.equals(todayLoginKey) && !loginDeltas.containsKey(key));
+
+        Map<String, Long> activityDeltas = new HashMap<>();
+        activityCounters.forEach((key, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta > 0) {
+                activityDeltas.put(key, delta);
+            }
+        });
+        activityCounters.keySet().removeIf(key -> !key.endsWith(today) && !activityDeltas.containsKey(key));
+
+        if (activeUsers.isEmpty() && loginDeltas.isEmpty() && activityDeltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            writeToRedis(activeUsers, loginDeltas, activityDeltas);
+        } catch (RuntimeException e) {
+            // 已取出的数据加回本地缓冲，与期间的新记录合并后下次重试
+            activeUsers.forEach((bucket, users) ->
+                    pendingActiveUsers.computeIfAbsent(bucket, k -> ConcurrentHashMap.newKeySet()).addAll(users));
+            loginDeltas.forEach((key, deltas) -> deltas.forEach((result, delta) ->
+                    loginCounters.computeIfAbsent(key, k -> new ConcurrentHashMap<>())
+                            .computeIfAbsent(result, k -> new LongAdder())
+                            .add(delta)));
+            activityDeltas.forEach((key, delta) -> activityCounters.computeIfAbsent(key, k -> new LongAdder()).add(delta));
+            throw e;
+        }
+    }
+
+    private void writeToRedis(Map<Long, List<Long>> activeUsers,
+                              Map<String, Map<LoginResult, Long>> loginDeltas,
+                              Map<String, Long> activityDeltas) {
+        Map<Long, Long> ordinals = resolveOrdinals(activeUsers);
+        long retentionSeconds = TimeUnit.DAYS.toSeconds(retentionDays);
+        long onlineExpireMillis = onlineBucketMillis * (onlineBuckets + 1);
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            activeUsers.forEach((bucket, users) -> {
+                long bucketStart = bucket * onlineBucketMillis;
+                String[] userIds = users.stream().map(String::valueOf).toArray(String[]::new);
+
+                String dailyKey = RedisKeys.buildDailyUvKey(formatDate(bucketStart));
+                stringConnection.pfAdd(dailyKey, userIds);
+                stringConnection.expire(dailyKey, retentionSeconds);
+
+                String hourlyKey = RedisKeys.buildHourlyUvKey(formatDateHour(bucketStart));
+                stringConnection.pfAdd(hourlyKey, userIds);
+                stringConnection.expire(hourlyKey, TimeUnit.DAYS.toSeconds(2));
+
+                String onlineKey = RedisKeys.buildOnlineUsersKey(bucket);
+                stringConnection.pfAdd(onlineKey, userIds);
+                stringConnection.pExpire(onlineKey, onlineExpireMillis);
+
+                String bitmapKey = RedisKeys.buildActiveBitmapKey(formatDate(bucketStart));
+                for (Long userId : users) {
+                    Long ordinal = ordinals.get(userId);
+                    if (ordinal != null) {
+                        stringConnection.setBit(bitmapKey, ordinal, true);
+                    }
+                }
+                stringConnection.expire(bitmapKey, retentionSeconds);
+            });
+
+            loginDeltas.forEach((key, deltas) -> {
+                deltas.forEach((result, delta) -> stringConnection.hIncrBy(key, result.name(), delta));
+                stringConnection.expire(key, retentionSeconds);
+            });
+
+            activityDeltas.forEach((key, delta) -> {
+                stringConnection.incrBy(key, delta);
+                stringConnection.expire(key, retentionSeconds);
+            });
+            return null;
+        });
+    }
+
+    /**
+     * 获取用户在位图中的序号，本地未缓存的一次性通过脚本分配
+     */
+    private Map<Long, Long> resolveOrdinals(Map<Long, List<Long>> activeUsers) {
+        Map<Long, Long> ordinals = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        activeUsers.values().forEach(users -> users.forEach(userId -> {
+            Long ordinal = ordinalCache.get(userId, false);
+            if (ordinal != null) {
+                ordinals.put(userId, ordinal);
+            } else if (!ordinals.containsKey(userId)) {
+                ordinals.put(userId, null);
+                missing.add(userId);
+            }
+        }));
+
+        if (!missing.isEmpty()) {
+            List<?> assigned = redisTemplate.execute(ASSIGN_ORDINALS,
+                    List.of(RedisKeys.STATS_USER_ORDINAL, RedisKeys.STATS_USER_ORDINAL_SEQ),
+                    missing.stream().map(String::valueOf).toArray());
+            List<?> values = assigned == null ? Collections.emptyList() : assigned;
+            for (int i = 0; i < missing.size() && i < values.size(); i++) {
+                long ordinal = toLong(values.get(i));
+                ordinals.put(missing.get(i), ordinal);
+                ordinalCache.put(missing.get(i), ordinal);
+            }
+        }
+        return ordinals;
+    }
+
+    private String formatDate(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atZone(zoneId).format(DATE_FORMATTER);
+    }
+
+    private String formatDateHour(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atZone(zoneId).format(DATE_HOUR_FORMATTER);
+    }
+
+    private static long toLong(Object value) {
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        return value == null ? 0L : Long.parseLong(String.valueOf(value));
+    }
+}
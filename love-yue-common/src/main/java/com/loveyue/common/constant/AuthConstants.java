@@ -51,6 +51,16 @@ public class AuthConstants {
 
     public static final int DEFAULT_SESSION_TIMEOUT_HOURS = 8;
 
+    public static final String LOGOUT_REASON_SESSION_EXPIRED = "SESSION_EXPIRED";
+
+    public static final String LOGOUT_REASON_IDLE_TIMEOUT = "IDLE_TIMEOUT";
+
+    public static final String LOGOUT_REASON_CONCURRENT_SESSION_LIMIT = "CONCURRENT_SESSION_LIMIT";
+
+    public static final String REVOKE_REASON_ROTATED = "ROTATED";
+
+    public static final String REVOKE_REASON_TOKEN_REUSE = "TOKEN_REUSE";
+
     public static final int DEFAULT_ACCESS_TOKEN_EXPIRE_MINUTES = 30;
 
     public static final int DEFAULT_REFRESH_TOKEN_EXPIRE_DAYS = 7;
@@ -91,8 +101,18 @@ public class AuthConstants {
 
     public static final String VALIDATE_TOKEN_API_PATH = "/validate";
 
+    public static final String BATCH_VALIDATE_TOKEN_API_PATH = "/validate/batch";
+
+    public static final int MAX_BATCH_VALIDATE_TOKENS = 500;
+
+    public static final String INTROSPECT_TOKEN_API_PATH = "/introspect";
+
     public static final String USER_INFO_API_PATH = "/userinfo";
 
+    public static final String STATS_API_PATH = "/stats";
+
+    public static final String STATS_RETENTION_API_PATH = "/stats/retention";
+
     public static final String REQUEST_ATTR_CURRENT_USER = "currentUser";
 
     public static final String REQUEST_ATTR_USER_ID = "userId";
@@ -0,0 +1,175 @@
+package com.loveyue.common.constant;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Redis二进制键构建类
+ * @Description: 与{@link RedisKeys}一一对应的二进制键，前缀在类加载时预先编码为UTF-8字节，
+ * 构建键时直接把前缀和ID写入一个长度恰好的byte[]，不产生中间String和编码缓冲区，
+ * 配合{@link com.loveyue.common.redis.RedisBatch}的原始字节命令使用
+ * @Date 2025/8/10
+ * @Author LoveYue
+ */
+public final class RedisBinaryKeys {
+
+    public static final byte[] CACHE_USER_INFO = encode(RedisKeys.CACHE_USER_INFO);
+
+    public static final byte[] CACHE_USER_PERMISSIONS = encode(RedisKeys.CACHE_USER_PERMISSIONS);
+
+    public static final byte[] CACHE_USER_ROLES = encode(RedisKeys.CACHE_USER_ROLES);
+
+    public static final byte[] CACHE_USERNAME_TO_ID = encode(RedisKeys.CACHE_USERNAME_TO_ID);
+
+    public static final byte[] TOKEN_BLACKLIST_ACCESS = encode(RedisKeys.TOKEN_BLACKLIST_ACCESS);
+
+    public static final byte[] TOKEN_BLACKLIST_REFRESH = encode(RedisKeys.TOKEN_BLACKLIST_REFRESH);
+
+    public static final byte[] TOKEN_REFRESH_INFO = encode(RedisKeys.TOKEN_REFRESH_INFO);
+
+    public static final byte[] SECURITY_LOGIN_ATTEMPTS = encode(RedisKeys.SECURITY_LOGIN_ATTEMPTS);
+
+    public static final byte[] SECURITY_ACCOUNT_LOCKED = encode(RedisKeys.SECURITY_ACCOUNT_LOCKED);
+
+    public static final byte[] SSO_SESSION = encode(RedisKeys.SSO_SESSION);
+
+    private RedisBinaryKeys() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * 构建用户信息缓存键
+     */
+    public static byte[] userInfoCacheKey(long userId) {
+        return key(CACHE_USER_INFO, userId);
+    }
+
+    /**
+     * 构建用户权限缓存键
+     */
+    public static byte[] userPermissionsCacheKey(long userId) {
+        return key(CACHE_USER_PERMISSIONS, userId);
+    }
+
+    /**
+     * 构建用户角色缓存键
+     */
+    public static byte[] userRolesCacheKey(long userId) {
+        return key(CACHE_USER_ROLES, userId);
+    }
+
+    /**
+     * 构建用户名到用户ID映射缓存键
+     */
+    public static byte[] usernameToIdCacheKey(String username) {
+        return key(CACHE_USERNAME_TO_ID, username);
+    }
+
+    /**
+     * 构建登录尝试记录键
+     */
+    public static byte[] loginAttemptsKey(String username) {
+        return key(SECURITY_LOGIN_ATTEMPTS, username);
+    }
+
+    /**
+     * 构建账户锁定键
+     */
+    public static byte[] accountLockedKey(String username) {
+        return key(SECURITY_ACCOUNT_LOCKED, username);
+    }
+
+    /**
+     * 构建刷新Token信息键
+     */
+    public static byte[] refreshTokenInfoKey(String tokenId) {
+        return key(TOKEN_REFRESH_INFO, tokenId);
+    }
+
+    /**
+     * 构建SSO会话键
+     */
+    public static byte[] ssoSessionKey(String sessionId) {
+        return key(SSO_SESSION, sessionId);
+    }
+
+    /**
+     * 构建Token黑名单键
+     * @param tokenId Token ID
+     * @param tokenType Token类型（access/refresh）
+     */
+    public static byte[] tokenBlacklistKey(String tokenId, String tokenType) {
+        if (AuthConstants.ACCESS_TOKEN_TYPE.equals(tokenType)) {
+            return key(TOKEN_BLACKLIST_ACCESS, tokenId);
+        } else if (AuthConstants.REFRESH_TOKEN_TYPE.equals(tokenType)) {
+            return key(TOKEN_BLACKLIST_REFRESH, tokenId);
+        }
+        throw new IllegalArgumentException("Invalid token type: " + tokenType);
+    }
+
+    /**
+     * 前缀加十进制数字ID
+     */
+    public static byte[] key(byte[] prefix, long id) {
+        int digits = stringSize(id);
+        byte[] key = new byte[prefix.length + digits];
+        System.arraycopy(prefix, 0, key, 0, prefix.length);
+
+        int pos = key.length;
+        long value = id;
+        if (value < 0) {
+            key[prefix.length] = '-';
+        } else {
+            value = -value;
+        }
+        // 按负数处理以覆盖Long.MIN_VALUE
+        do {
+            key[--pos] = (byte) ('0' - (value % 10));
+            value /= 10;
+        } while (value != 0);
+        return key;
+    }
+
+    /**
+     * 前缀加字符串后缀，纯ASCII后缀直接逐字节写入，否则按UTF-8编码
+     */
+    public static byte[] key(byte[] prefix, String suffix) {
+        int length = suffix.length();
+        for (int i = 0; i < length; i++) {
+            if (suffix.charAt(i) >= 0x80) {
+                byte[] encoded = suffix.getBytes(StandardCharsets.UTF_8);
+                byte[] key = new byte[prefix.length + encoded.length];
+                System.arraycopy(prefix, 0, key, 0, prefix.length);
+                System.arraycopy(encoded, 0, key, prefix.length, encoded.length);
+                return key;
+            }
+        }
+
+        byte[] key = new byte[prefix.length + length];
+        System.arraycopy(prefix, 0, key, 0, prefix.length);
+        for (int i = 0; i < length; i++) {
+            key[prefix.length + i] = (byte) suffix.charAt(i);
+        }
+        return key;
+    }
+
+    private static int stringSize(long value) {
+        int sign = 0;
+        if (value < 0) {
+            sign = 1;
+        } else {
+            value = -value;
+        }
+        long threshold = -10;
+        for (int digits = 1; digits < 19; digits++) {
+            if (value > threshold) {
+                return digits + sign;
+            }
+            threshold *= 10;
+        }
+        return 19 + sign;
+    }
+
+    private static byte[] encode(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
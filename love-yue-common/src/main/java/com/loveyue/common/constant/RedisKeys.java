@@ -40,13 +40,13 @@ public class RedisKeys {
 
     /**
      * SSO会话键模板：love_yue:auth:sso:session:{sessionId}
-     * 存储SSO会话信息
+     * 存储SSO会话信息（哈希，会话的实时状态，过期时间与会话expiresAt一致）
      */
     public static final String SSO_SESSION = SSO_PREFIX + "session:";
     
     /**
-     * 用户SSO会话映射键模板：love_yue:auth:sso:user_session:{userId}
-     * 存储用户ID到SSO会话ID的映射
+     * 用户SSO会话键模板：love_yue:auth:sso:user_session:{userId}
+     * 存储用户的活跃SSO会话ID（有序集合，分值为最后活动时间），用于并发会话数限制
      */
     public static final String SSO_USER_SESSION = SSO_PREFIX + "user_session:";
     
@@ -116,6 +116,24 @@ public class RedisKeys {
      */
     public static final String CACHE_USERNAME_TO_ID = CACHE_PREFIX + "username_to_id:";
 
+    /**
+     * 用户缓存失效通知频道：love_yue:auth:cache:user_invalidation
+     * 用户角色、权限或基本信息变更时发布用户ID，各节点据此清除本地缓存
+     */
+    public static final String CACHE_USER_INVALIDATION_CHANNEL = CACHE_PREFIX + "user_invalidation";
+
+    /**
+     * 角色层级变更通知频道：love_yue:auth:cache:role_hierarchy
+     * 角色新增、修改或删除后发布角色ID，各节点从数据库重新加载该角色并增量更新本地角色层级
+     */
+    public static final String CACHE_ROLE_HIERARCHY_CHANNEL = CACHE_PREFIX + "role_hierarchy";
+
+    /**
+     * 刷新令牌族撤销通知频道：love_yue:auth:token:family_revocation
+     * 检测到刷新令牌重用时发布“令牌族:会话ID”，持有令牌或会话缓存的节点据此清除
+     */
+    public static final String TOKEN_FAMILY_REVOCATION_CHANNEL = TOKEN_PREFIX + "family_revocation";
+
     /**
      * 登录尝试记录键模板：love_yue:auth:security:login_attempts:{username}
      * 记录用户登录尝试次数
@@ -206,6 +224,35 @@ public class RedisKeys {
      */
     public static final String STATS_USER_ACTIVITY = AUTH_PREFIX + "stats:user_activity:";
 
+    /**
+     * 每日去重用户HyperLogLog键模板：love_yue:auth:stats:uv:daily:{date}
+     * 统计每日活跃用户数
+     */
+    public static final String STATS_UV_DAILY = AUTH_PREFIX + "stats:uv:daily:";
+
+    /**
+     * 每小时去重用户HyperLogLog键模板：love_yue:auth:stats:uv:hourly:{date}-{hour}
+     * 统计每小时活跃用户数
+     */
+    public static final String STATS_UV_HOURLY = AUTH_PREFIX + "stats:uv:hourly:";
+
+    /**
+     * 每日活跃用户位图键模板：love_yue:auth:stats:active:{date}
+     * 以用户序号为偏移量，用于留存分析
+     */
+    public static final String STATS_ACTIVE_BITMAP = AUTH_PREFIX + "stats:active:";
+
+    /**
+     * 用户序号映射：love_yue:auth:stats:user_ordinal
+     * 用户ID到位图偏移量的映射，用户ID过大无法直接作为位图偏移量
+     */
+    public static final String STATS_USER_ORDINAL = AUTH_PREFIX + "stats:user_ordinal";
+
+    /**
+     * 用户序号分配计数器：love_yue:auth:stats:user_ordinal_seq
+     */
+    public static final String STATS_USER_ORDINAL_SEQ = AUTH_PREFIX + "stats:user_ordinal_seq";
+
     /**
      * 构建SSO会话键
      * @param sessionId SSO会话ID
@@ -404,6 +451,42 @@ public class RedisKeys {
         return STATS_USER_ACTIVITY + userId + ":" + date;
     }
     
+    /**
+     * 构建在线用户时间片键
+     * @param bucket 时间片序号（时间片起始毫秒数 / 时间片长度）
+     * @return 完整的Redis键名
+     */
+    public static String buildOnlineUsersKey(long bucket) {
+        return STATS_ONLINE_USERS + ":" + bucket;
+    }
+
+    /**
+     * 构建每日去重用户键
+     * @param date 日期（格式：yyyy-MM-dd）
+     * @return 完整的Redis键名
+     */
+    public static String buildDailyUvKey(String date) {
+        return STATS_UV_DAILY + date;
+    }
+
+    /**
+     * 构建每小时去重用户键
+     * @param dateHour 日期和小时（格式：yyyy-MM-dd-HH）
+     * @return 完整的Redis键名
+     */
+    public static String buildHourlyUvKey(String dateHour) {
+        return STATS_UV_HOURLY + dateHour;
+    }
+
+    /**
+     * 构建每日活跃用户位图键
+     * @param date 日期（格式：yyyy-MM-dd）
+     * @return 完整的Redis键名
+     */
+    public static String buildActiveBitmapKey(String date) {
+        return STATS_ACTIVE_BITMAP + date;
+    }
+
     /**
      * 私有构造函数，防止实例化
      */
@@ -67,26 +67,13 @@ public abstract class BaseController {
     }
 
     /**
-     * 获取客户端IP地址。
-     * <p>
-     * 该方法优先从"X-Forwarded-For"请求头中获取客户端IP地址，如果不存在或为空，则尝试从"X-Real-Ip"请求头中获取。
-     * 若上述两个请求头均未能提供有效的客户端IP地址，则使用HttpServletRequest的getRemoteHost()方法返回的值。
+     * 获取客户端IP地址，规则见{@link ResponseUtils#getClientIpAddress(HttpServletRequest)}
      *
      * @param request 包含客户端请求信息的HttpServletRequest对象
      * @return 客户端的IP地址字符串
      */
     private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty() && !"unknown".equals(xForwardedFor)) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-
-        String xRealIp = request.getHeader("X-Real-Ip");
-        if (xRealIp != null && !xRealIp.isEmpty() && !"unknown".equals(xRealIp)) {
-            return xRealIp;
-        }
-
-        return request.getRemoteHost();
+        return ResponseUtils.getClientIpAddress(request);
     }
 
     protected <T extends BaseDTO> ObjectResponse<T> success(T data) {
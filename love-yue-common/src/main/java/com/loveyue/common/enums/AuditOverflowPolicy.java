@@ -0,0 +1,25 @@
+package com.loveyue.common.enums;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+
+/**
+ * @Description: 审计写入队列溢出策略枚举
+ * @Date 2025/8/15
+ * @Author LoveYue
+ */
+@Schema(description = "审计写入队列溢出策略枚举")
+@Getter
+public enum AuditOverflowPolicy {
+    DROP_NEWEST("丢弃新记录", "队列已满时丢弃当前提交的记录"),
+    DROP_OLDEST("丢弃最早记录", "队列已满时丢弃队首最早的记录，为当前记录腾出空间"),
+    SPILL_TO_DISK("溢出到磁盘", "队列已满时将当前记录追加到本地溢出文件，数据库可用后回放");
+
+    private final String displayName;
+    private final String description;
+
+    AuditOverflowPolicy(String displayName, String description) {
+        this.displayName = displayName;
+        this.description = description;
+    }
+}
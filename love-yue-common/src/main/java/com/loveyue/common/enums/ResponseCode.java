@@ -22,6 +22,7 @@ public enum ResponseCode {
     METHOD_NOT_ALLOWED(405, "请求方法不允许"),
     CONFLICT(409, "资源冲突"),
     VALIDATION_FAILED(422, "参数校验失败"),
+    TOO_MANY_REQUESTS(429, "请求过于频繁，请稍后再试"),
     INTERNAL_SERVER_ERROR(500, "服务器内部错误"),
     SERVICE_UNAVAILABLE(503, "服务不可用"),
     BUSINESS_ERROR(6000, "业务处理失败"),
@@ -0,0 +1,31 @@
+package com.loveyue.common.enums;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+
+/**
+ * @Description: 令牌校验状态枚举
+ * @Date 2025/8/4
+ * @Author LoveYue
+ */
+@Getter
+@Schema(description = "令牌校验状态枚举")
+public enum TokenValidationStatus {
+    VALID("有效", "令牌校验通过"),
+    EMPTY("为空", "令牌为空"),
+    EXPIRED("已过期", "令牌已过期"),
+    UNSUPPORTED("不支持", "不支持的令牌格式"),
+    MALFORMED("格式错误", "令牌格式错误"),
+    INVALID_SIGNATURE("签名无效", "令牌签名验证失败"),
+    REVOKED("已撤销", "令牌已被加入黑名单"),
+    UNKNOWN("未知", "黑名单校验不可用，无法确认令牌状态");
+
+    private final String displayName;
+
+    private final String description;
+
+    TokenValidationStatus(String displayName, String description) {
+        this.displayName = displayName;
+        this.description = description;
+    }
+}
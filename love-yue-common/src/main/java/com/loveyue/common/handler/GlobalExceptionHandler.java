@@ -42,6 +42,10 @@ public class GlobalExceptionHandler {
         logger.warn("业务异常：{} - {}", e.getCode(), e.getMessage());
 
         ObjectResponse<BaseDTO> response = ResponseUtils.error(e.getCode(), e.getMessage());
+        // 限流、过载类拒绝同时使用HTTP 429，便于网关和客户端按状态码退避
+        if (ResponseCode.TOO_MANY_REQUESTS.getCode().equals(e.getCode())) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
+        }
         return ResponseEntity.ok(response);
     }
 
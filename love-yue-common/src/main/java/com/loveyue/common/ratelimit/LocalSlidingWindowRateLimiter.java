@@ -0,0 +1,289 @@
+package com.loveyue.common.ratelimit;
+
+import cn.hutool.core.util.IdUtil;
+import com.loveyue.common.redis.RedisRoundTripTracker;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地滑动窗口近似限流器
+ * <p>
+ * 适用于IP、用户等全局精度要求不高但请求量大的限流维度：请求路径上只访问本地计数，不产生Redis调用。
+ * 每个键维护一个按时间分槽的环形滑动窗口，每个槽使用{@link LongAdder}分段计数，热点键的并发递增不会争用同一缓存行。
+ * </p>
+ *
+ * <p>
+ * 后台线程每隔sync-interval-millis把所有活跃键的本节点窗口计数通过一次管道写入Redis哈希（字段为节点ID），
+ * 同时读回其他节点的计数。判定时本节点窗口计数加上其他节点最近一次同步的计数不超过限额即放行，
+ * 即每个节点只使用全局限额中其他节点尚未占用的份额。同步写入的是窗口计数快照而非增量，
+ * 同步丢失或重复都不会累积误差；超过一个窗口未更新的节点字段视为已下线而忽略。
+ * </p>
+ *
+ * @author loveyue
+ * @since 2025-08-12
+ */
+@Slf4j
+@Component
+public class LocalSlidingWindowRateLimiter implements RateLimiter {
+
+    /**
+     * Redis哈希键后缀，与令牌桶使用的键区分
+     */
+    private static final String NODES_SUFFIX = ":nodes";
+
+    private final ObjectProvider<StringRedisTemplate> redisTemplateProvider;
+
+    /**
+     * 节点ID，进程内唯一
+     */
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    private final Map<String, SlidingWindow> windows = new ConcurrentHashMap<>();
+
+    /**
+     * 是否启用限流
+     */
+    @Value("${auth.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 每个窗口的分槽数，越大越接近真实滑动窗口
+     */
+    @Value("${auth.rate-limit.local.slots:10}")
+    private int slots;
+
+    /**
+     * 与Redis同步的间隔（毫秒）
+     */
+    @Value("${auth.rate-limit.local.sync-interval-millis:500}")
+    private long syncIntervalMillis;
+
+    /**
+     * 本地最多跟踪的键数，超出后新键直接放行
+     */
+    @Value("${auth.rate-limit.local.max-keys:100000}")
+    private int maxKeys;
+
+    private ScheduledExecutorService syncExecutor;
+
+    public LocalSlidingWindowRateLimiter(ObjectProvider<StringRedisTemplate> redisTemplateProvider) {
+        this.redisTemplateProvider = redisTemplateProvider;
+    }
+
+    @PostConstruct
+    public void init() {
+        syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncExecutor.scheduleWithFixedDelay(this::syncSafely, syncIntervalMillis, syncIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (syncExecutor != null) {
+            syncExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public RateLimitDecision tryAcquire(String key, int limit, Duration window) {
+        if (!enabled || limit <= 0) {
+            return RateLimitDecision.ALLOWED;
+        }
+
+        SlidingWindow slidingWindow = windows.get(key);
+        if (slidingWindow == null) {
+            if (windows.size() >= maxKeys) {
+                return RateLimitDecision.ALLOWED;
+            }
+            slidingWindow = windows.computeIfAbsent(key, k -> new SlidingWindow(window.toMillis(), slots));
+        }
+        return slidingWindow.tryAcquire(limit, System.currentTimeMillis());
+    }
+
+    private void syncSafely() {
+        try {
+            sync();
+        } catch (Exception e) {
+            log.warn("限流计数同步失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 一次管道同步所有活跃键：写入本节点计数、刷新过期时间并读回所有节点计数
+     */
+    private void sync() {
+        long now = System.currentTimeMillis();
+        List<String> keys = new ArrayList<>();
+        List<SlidingWindow> active = new ArrayList<>();
+        windows.forEach((key, slidingWindow) -> {
+            if (now - slidingWindow.lastAccess > slidingWindow.windowMillis + syncIntervalMillis) {
+                windows.remove(key, slidingWindow);
+            } else {
+                keys.add(key);
+                active.add(slidingWindow);
+            }
+        });
+
+        StringRedisTemplate redisTemplate = redisTemplateProvider.getIfAvailable();
+        if (keys.isEmpty() || redisTemplate == null) {
+            return;
+        }
+
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (int i = 0; i < keys.size(); i++) {
+                SlidingWindow slidingWindow = active.get(i);
+                String redisKey = keys.get(i) + NODES_SUFFIX;
+                stringConnection.hSet(redisKey, nodeId, slidingWindow.count(now) + "@" + now);
+                stringConnection.pExpire(redisKey, slidingWindow.windowMillis * 2);
+                stringConnection.hGetAll(redisKey);
+            }
+            return null;
+        });
+        RedisRoundTripTracker.record();
+
+        for (int i = 0; i < active.size(); i++) {
+            Object entries = results.get(i * 3 + 2);
+            if (entries instanceof Map<?, ?> nodeCounts) {
+                SlidingWindow slidingWindow = active.get(i);
+                slidingWindow.remoteCount = sumRemote(nodeCounts, now - slidingWindow.windowMillis);
+            }
+        }
+    }
+
+    /**
+     * 汇总其他节点在一个窗口内上报过的计数
+     */
+    private long sumRemote(Map<?, ?> nodeCounts, long staleBefore) {
+        long remote = 0;
+        for (Map.Entry<?, ?> entry : nodeCounts.entrySet()) {
+            if (nodeId.equals(entry.getKey())) {
+                continue;
+            }
+            String value = String.valueOf(entry.getValue());
+            int separator = value.indexOf('@');
+            if (separator <= 0) {
+                continue;
+            }
+            try {
+                long reportedAt = Long.parseLong(value.substring(separator + 1));
+                if (reportedAt >= staleBefore) {
+                    remote += Long.parseLong(value.substring(0, separator));
+                }
+            } catch (NumberFormatException e) {
+                log.debug("忽略无效的限流节点计数: {}", value);
+            }
+        }
+        return remote;
+    }
+
+    /**
+     * 分槽环形滑动窗口
+     */
+    private static final class SlidingWindow {
+
+        private final long windowMillis;
+
+        private final long slotMillis;
+
+        private final int slotCount;
+
+        /**
+         * 每个槽当前对应的时间片及其计数，切换时间片时整体替换，不重置正在使用的计数器
+         */
+        private final AtomicReferenceArray<Slot> slots;
+
+        /**
+         * 其他节点在当前窗口内的计数，由同步线程更新
+         */
+        private volatile long remoteCount;
+
+        private volatile long lastAccess;
+
+        private SlidingWindow(long windowMillis, int slotCount) {
+            this.windowMillis = Math.max(windowMillis, slotCount);
+            this.slotCount = slotCount;
+            this.slotMillis = this.windowMillis / slotCount;
+            this.slots = new AtomicReferenceArray<>(slotCount);
+            for (int i = 0; i < slotCount; i++) {
+                slots.set(i, new Slot(0, new LongAdder()));
+            }
+        }
+
+        private RateLimitDecision tryAcquire(int limit, long now) {
+            lastAccess = now;
+            long epoch = now / slotMillis;
+            LongAdder current = slotFor(epoch);
+
+            // 先计数再判定，超限时回退，避免判定与计数之间的竞争导致超发
+            current.increment();
+            if (count(now) + remoteCount > limit) {
+                current.decrement();
+                return RateLimitDecision.rejected(slotMillis - now % slotMillis);
+            }
+            return RateLimitDecision.ALLOWED;
+        }
+
+        /**
+         * 本节点窗口内的计数
+         */
+        private long count(long now) {
+            long epoch = now / slotMillis;
+            long total = 0;
+            for (int i = 0; i < slotCount; i++) {
+                Slot slot = slots.get(i);
+                if (epoch - slot.epoch() < slotCount) {
+                    total += slot.count().sum();
+                }
+            }
+            return total;
+        }
+
+        /**
+         * 获取时间片对应的计数器，槽已属于过期时间片时以新的计数器替换。
+         * 时间片和计数器通过一次CAS同时发布，看到新时间片的线程不会再把计数写入旧计数器或被重置清零
+         */
+        private LongAdder slotFor(long epoch) {
+            int index = (int) (epoch % slotCount);
+            while (true) {
+                Slot slot = slots.get(index);
+                // 时钟落后的线程计入当前时间片，不回退槽
+                if (slot.epoch() >= epoch) {
+                    return slot.count();
+                }
+                Slot next = new Slot(epoch, new LongAdder());
+                if (slots.compareAndSet(index, slot, next)) {
+                    return next.count();
+                }
+            }
+        }
+    }
+
+    /**
+     * 槽对应的时间片序号及其计数
+     */
+    private record Slot(long epoch, LongAdder count) {
+    }
+}
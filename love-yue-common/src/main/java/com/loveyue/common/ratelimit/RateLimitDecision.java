@@ -0,0 +1,49 @@
+package com.loveyue.common.ratelimit;
+
+import lombok.Getter;
+
+/**
+ * 限流判定结果
+ *
+ * @author loveyue
+ * @since 2025-08-11
+ */
+@Getter
+public final class RateLimitDecision {
+
+    /**
+     * 放行结果，无需重复创建
+     */
+    public static final RateLimitDecision ALLOWED = new RateLimitDecision(true, 0);
+
+    /**
+     * 是否放行
+     */
+    private final boolean allowed;
+
+    /**
+     * 被拒绝时距下一次可用的毫秒数
+     */
+    private final long retryAfterMillis;
+
+    private RateLimitDecision(boolean allowed, long retryAfterMillis) {
+        this.allowed = allowed;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * 拒绝结果
+     *
+     * @param retryAfterMillis 距下一次可用的毫秒数
+     */
+    public static RateLimitDecision rejected(long retryAfterMillis) {
+        return new RateLimitDecision(false, Math.max(retryAfterMillis, 1));
+    }
+
+    /**
+     * 距下一次可用的秒数（向上取整），用于Retry-After响应头
+     */
+    public long getRetryAfterSeconds() {
+        return (retryAfterMillis + 999) / 1000;
+    }
+}
@@ -0,0 +1,22 @@
+package com.loveyue.common.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * 限流器
+ *
+ * @author loveyue
+ * @since 2025-08-11
+ */
+public interface RateLimiter {
+
+    /**
+     * 尝试获取一次许可
+     *
+     * @param key    限流键，通常由RedisKeys.buildXxxRateLimitKey构建
+     * @param limit  窗口内允许的次数
+     * @param window 窗口长度
+     * @return 判定结果
+     */
+    RateLimitDecision tryAcquire(String key, int limit, Duration window);
+}
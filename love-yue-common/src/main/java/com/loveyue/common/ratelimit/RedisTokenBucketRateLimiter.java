@@ -0,0 +1,239 @@
+package com.loveyue.common.ratelimit;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import com.loveyue.common.redis.RedisRoundTripTracker;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于Redis Lua脚本的分布式令牌桶限流器
+ * <p>
+ * 每个限流键对应Redis中的一个哈希（剩余令牌数和上次补充时间），补充、扣减和过期设置在同一个脚本内完成，
+ * 一次往返即可得到结果，时间取Redis服务器时间，不受节点时钟偏差影响。
+ * </p>
+ *
+ * <p>
+ * 本地预取：每次访问Redis时按该键最近的请求量批量领取令牌，在租约有效期内本地扣减，
+ * 热点键的大部分请求无需访问Redis；被拒绝后在本地记录下一次可用时间，期间的请求直接拒绝。
+ * 租约到期未用完的令牌直接丢弃。上一批令牌被用完时预取量翻倍（不超过上限），
+ * 租约到期仍有剩余时按实际使用量收缩，浪费有上限。
+ * Redis不可用时放行（fail-open），避免限流组件成为可用性瓶颈。
+ * </p>
+ *
+ * @author loveyue
+ * @since 2025-08-11
+ */
+@Slf4j
+@Component
+public class RedisTokenBucketRateLimiter implements RateLimiter {
+
+    /**
+     * KEYS[1]: 桶键；ARGV[1]: 容量；ARGV[2]: 每毫秒补充令牌数；ARGV[3]: 本次领取数量。
+     * 返回 {实际领取数量, 无令牌时距下一个令牌的毫秒数}
+     */
+    private static final String TOKEN_BUCKET_SCRIPT = """
+            local capacity = tonumber(ARGV[1])
+            local rate = tonumber(ARGV[2])
+            local requested = tonumber(ARGV[3])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(state[1])
+            local ts = tonumber(state[2])
+            if tokens == nil or ts == nil then
+                tokens = capacity
+                ts = now
+            end
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate)
+            local granted = math.min(requested, math.floor(tokens))
+            tokens = tokens - granted
+            local retry = 0
+            if granted == 0 then
+                retry = math.ceil((1 - tokens) / rate)
+            end
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))
+            redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate) + 1000)
+            return {granted, retry}
+            """;
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SCRIPT = new DefaultRedisScript<>(TOKEN_BUCKET_SCRIPT, List.class);
+
+    private final ObjectProvider<StringRedisTemplate> redisTemplateProvider;
+
+    /**
+     * 是否启用限流
+     */
+    @Value("${auth.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 本地租约有效期（毫秒），决定多节点间的最大超发时间
+     */
+    @Value("${auth.rate-limit.lease-millis:1000}")
+    private long leaseMillis;
+
+    /**
+     * 单次预取上限占限额的比例
+     */
+    @Value("${auth.rate-limit.prefetch-ratio:0.1}")
+    private double prefetchRatio;
+
+    /**
+     * 本地租约缓存的最大键数
+     */
+    @Value("${auth.rate-limit.local-cache-size:100000}")
+    private int localCacheSize;
+
+    private LRUCache<String, Lease> leases;
+
+    public RedisTokenBucketRateLimiter(ObjectProvider<StringRedisTemplate> redisTemplateProvider) {
+        this.redisTemplateProvider = redisTemplateProvider;
+    }
+
+    @PostConstruct
+    public void init() {
+        leases = CacheUtil.newLRUCache(localCacheSize);
+    }
+
+    @Override
+    public RateLimitDecision tryAcquire(String key, int limit, Duration window) {
+        if (!enabled || limit <= 0) {
+            return RateLimitDecision.ALLOWED;
+        }
+
+        Lease lease = leases.get(key, false, Lease::new);
+        long now = System.currentTimeMillis();
+        RateLimitDecision local = lease.tryLocal(now);
+        if (local != null) {
+            return local;
+        }
+
+        synchronized (lease) {
+            // 等待期间其他线程可能已经补充了租约
+            now = System.currentTimeMillis();
+            local = lease.tryLocal(now);
+            if (local != null) {
+                return local;
+            }
+
+            int maxBatch = Math.max(1, (int) (limit * prefetchRatio));
+            long[] result = acquire(key, limit, window, lease.nextBatchSize(maxBatch));
+            if (result == null) {
+                return RateLimitDecision.ALLOWED;
+            }
+
+            int granted = (int) result[0];
+            if (granted <= 0) {
+                lease.deny(now + result[1]);
+                return RateLimitDecision.rejected(result[1]);
+            }
+            lease.refill(granted - 1, now + leaseMillis);
+            return RateLimitDecision.ALLOWED;
+        }
+    }
+
+    /**
+     * 执行令牌桶脚本
+     *
+     * @return {领取数量, 重试毫秒数}，Redis不可用时返回null
+     */
+    private long[] acquire(String key, int limit, Duration window, int requested) {
+        StringRedisTemplate redisTemplate = redisTemplateProvider.getIfAvailable();
+        if (redisTemplate == null) {
+            return null;
+        }
+
+        double ratePerMillis = (double) limit / Math.max(window.toMillis(), 1);
+        try {
+            List<?> result = redisTemplate.execute(SCRIPT, Collections.singletonList(key),
+                    String.valueOf(limit), String.valueOf(ratePerMillis), String.valueOf(requested));
+            RedisRoundTripTracker.record();
+            if (result == null || result.size() < 2) {
+                return null;
+            }
+            return new long[]{((Number) result.get(0)).longValue(), ((Number) result.get(1)).longValue()};
+        } catch (Exception e) {
+            log.warn("限流脚本执行失败，键: {}，错误: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 单个限流键的本地租约
+     */
+    private static final class Lease {
+
+        private final AtomicInteger permits = new AtomicInteger();
+
+        /**
+         * 本租约期内放行的请求数，用于估算下一次预取量
+         */
+        private final AtomicInteger used = new AtomicInteger();
+
+        /**
+         * 上一次预取量，只在持有租约锁时读写
+         */
+        private int batchSize;
+
+        private volatile long expiresAt;
+
+        private volatile long deniedUntil;
+
+        /**
+         * 仅使用本地状态判定，无法判定时返回null
+         */
+        private RateLimitDecision tryLocal(long now) {
+            long denied = deniedUntil;
+            if (now < denied) {
+                return RateLimitDecision.rejected(denied - now);
+            }
+            if (now >= expiresAt) {
+                return null;
+            }
+            int current;
+            do {
+                current = permits.get();
+                if (current <= 0) {
+                    return null;
+                }
+            } while (!permits.compareAndSet(current, current - 1));
+            used.incrementAndGet();
+            return RateLimitDecision.ALLOWED;
+        }
+
+        /**
+         * 下一次预取量：本地令牌已用完说明需求超过了上一批，翻倍；否则按本租约期实际使用量。需持有租约锁
+         */
+        private int nextBatchSize(int maxBatch) {
+            int observed = Math.max(1, used.getAndSet(0));
+            int next = permits.get() <= 0 ? Math.max(observed, batchSize) * 2 : observed;
+            batchSize = Math.min(Math.max(1, next), maxBatch);
+            return batchSize;
+        }
+
+        private void refill(int remaining, long expiresAt) {
+            permits.set(remaining);
+            // 触发补充的请求本身也计入使用量
+            used.set(1);
+            this.expiresAt = expiresAt;
+        }
+
+        private void deny(long deniedUntil) {
+            permits.set(0);
+            this.deniedUntil = deniedUntil;
+        }
+    }
+}
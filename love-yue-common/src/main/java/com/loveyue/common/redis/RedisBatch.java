@@ -0,0 +1,308 @@
+package com.loveyue.common.redis;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.loveyue.common.constant.RedisBinaryKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Redis批量读取
+ * <p>
+ * 先登记需要读取的键，再调用{@link #execute()}一次性读取：全部为字符串键时合并为一条MGET，
+ * 包含集合、哈希等其他类型时使用管道，两种方式都只产生一次网络往返。
+ * 键以原始字节发送（可直接使用{@link RedisBinaryKeys}构建），读取结果按登记时指定的类型从字节解码，
+ * 字符串和数值直接转换，其他类型按JSON反序列化，不经过模板的序列化器。
+ * </p>
+ *
+ * <p>使用示例：</p>
+ * <pre>
+ * RedisBatch batch = redisBatchReader.newBatch();
+ * RedisBatch.Value&lt;List&lt;String&gt;&gt; roles = batch.getList(RedisBinaryKeys.userRolesCacheKey(userId), String.class);
+ * RedisBatch.Value&lt;Boolean&gt; locked = batch.exists(RedisBinaryKeys.accountLockedKey(username));
+ * batch.execute();
+ * </pre>
+ *
+ * @author loveyue
+ * @since 2025-08-08
+ */
+@Slf4j
+public class RedisBatch {
+
+    private enum Command {
+        GET, SMEMBERS, HGETALL
+    }
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final List<Value<?>> values = new ArrayList<>();
+
+    private boolean executed;
+
+    RedisBatch(StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 登记字符串键，按指定类型解码
+     */
+    public <T> Value<T> get(String key, Class<T> type) {
+        return get(encode(key), type);
+    }
+
+    /**
+     * 登记字符串键，按指定类型解码
+     */
+    public <T> Value<T> get(byte[] key, Class<T> type) {
+        JavaType javaType = objectMapper.constructType(type);
+        return register(Command.GET, key, raw -> decode((byte[]) raw, javaType));
+    }
+
+    /**
+     * 登记存储JSON数组的字符串键
+     */
+    public <T> Value<List<T>> getList(String key, Class<T> elementType) {
+        return getList(encode(key), elementType);
+    }
+
+    /**
+     * 登记存储JSON数组的字符串键
+     */
+    public <T> Value<List<T>> getList(byte[] key, Class<T> elementType) {
+        JavaType listType = objectMapper.getTypeFactory().constructCollectionType(List.class, elementType);
+        return register(Command.GET, key, raw -> decode((byte[]) raw, listType));
+    }
+
+    /**
+     * 登记字符串键的存在性检查，通过GET实现以便与其他字符串键合并为一条MGET，仅适用于字符串键
+     */
+    public Value<Boolean> exists(String key) {
+        return exists(encode(key));
+    }
+
+    /**
+     * 登记字符串键的存在性检查，通过GET实现以便与其他字符串键合并为一条MGET，仅适用于字符串键
+     */
+    public Value<Boolean> exists(byte[] key) {
+        return register(Command.GET, key, raw -> raw != null);
+    }
+
+    /**
+     * 登记集合键
+     */
+    public Value<Set<String>> members(String key) {
+        return members(encode(key));
+    }
+
+    /**
+     * 登记集合键
+     */
+    @SuppressWarnings("unchecked")
+    public Value<Set<String>> members(byte[] key) {
+        return register(Command.SMEMBERS, key, raw -> {
+            if (raw == null) {
+                return null;
+            }
+            Set<byte[]> members = (Set<byte[]>) raw;
+            Set<String> decoded = new LinkedHashSet<>(members.size() * 2);
+            for (byte[] member : members) {
+                decoded.add(new String(member, StandardCharsets.UTF_8));
+            }
+            return decoded;
+        });
+    }
+
+    /**
+     * 登记哈希键
+     */
+    public Value<Map<String, String>> entries(String key) {
+        return entries(encode(key));
+    }
+
+    /**
+     * 登记哈希键
+     */
+    @SuppressWarnings("unchecked")
+    public Value<Map<String, String>> entries(byte[] key) {
+        return register(Command.HGETALL, key, raw -> {
+            if (raw == null) {
+                return null;
+            }
+            Map<byte[], byte[]> entries = (Map<byte[], byte[]>) raw;
+            Map<String, String> decoded = new LinkedHashMap<>(entries.size() * 2);
+            for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+                decoded.put(new String(entry.getKey(), StandardCharsets.UTF_8),
+                        new String(entry.getValue(), StandardCharsets.UTF_8));
+            }
+            return decoded;
+        });
+    }
+
+    /**
+     * 执行批量读取，只产生一次Redis往返
+     */
+    public void execute() {
+        if (executed) {
+            throw new IllegalStateException("RedisBatch不能重复执行");
+        }
+        executed = true;
+
+        if (values.isEmpty()) {
+            return;
+        }
+
+        List<?> results = values.stream().allMatch(value -> value.command == Command.GET)
+                ? multiGet()
+                : pipeline();
+        RedisRoundTripTracker.record();
+
+        for (int i = 0; i < values.size(); i++) {
+            values.get(i).complete(results == null ? null : results.get(i));
+        }
+    }
+
+    private List<byte[]> multiGet() {
+        byte[][] keys = new byte[values.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = values.get(i).key;
+        }
+        return redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                connection.stringCommands().mGet(keys));
+    }
+
+    private List<Object> pipeline() {
+        return redisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+            connection.openPipeline();
+            for (Value<?> value : values) {
+                switch (value.command) {
+                    case GET -> connection.stringCommands().get(value.key);
+                    case SMEMBERS -> connection.setCommands().sMembers(value.key);
+                    case HGETALL -> connection.hashCommands().hGetAll(value.key);
+                }
+            }
+            return connection.closePipeline();
+        });
+    }
+
+    private <T> Value<T> register(Command command, byte[] key, Function<Object, T> decoder) {
+        if (executed) {
+            throw new IllegalStateException("RedisBatch已执行，不能继续登记");
+        }
+        Value<T> value = new Value<>(command, key, decoder);
+        values.add(value);
+        return value;
+    }
+
+    /**
+     * 将原始字节解码为指定类型，解码失败时视为缓存未命中
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T decode(byte[] raw, JavaType type) {
+        if (raw == null) {
+            return null;
+        }
+
+        Class<?> rawClass = type.getRawClass();
+        try {
+            if (rawClass == String.class) {
+                return (T) new String(raw, StandardCharsets.UTF_8);
+            } else if (rawClass == Long.class) {
+                return (T) Long.valueOf(parseLong(raw));
+            } else if (rawClass == Integer.class) {
+                return (T) Integer.valueOf(Math.toIntExact(parseLong(raw)));
+            } else if (rawClass == Boolean.class) {
+                return (T) Boolean.valueOf(new String(raw, StandardCharsets.UTF_8));
+            }
+            return objectMapper.readValue(raw, type);
+        } catch (Exception e) {
+            log.warn("Redis缓存值解码失败，类型: {}，错误: {}", type, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 直接从ASCII字节解析十进制整数，避免创建中间字符串
+     */
+    private static long parseLong(byte[] raw) {
+        if (raw.length == 0 || raw.length > 20) {
+            throw new NumberFormatException("Invalid number length: " + raw.length);
+        }
+        boolean negative = raw[0] == '-';
+        int i = negative ? 1 : 0;
+        if (i == raw.length) {
+            throw new NumberFormatException("Invalid number: -");
+        }
+        long result = 0;
+        for (; i < raw.length; i++) {
+            int digit = raw[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid number: " + new String(raw, StandardCharsets.UTF_8));
+            }
+            result = Math.addExact(Math.multiplyExact(result, 10), negative ? -digit : digit);
+        }
+        return result;
+    }
+
+    private static byte[] encode(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 批量读取中的单个结果
+     *
+     * @param <T> 解码后的类型
+     */
+    public static final class Value<T> {
+
+        private final Command command;
+
+        private final byte[] key;
+
+        private final Function<Object, T> decoder;
+
+        private boolean completed;
+
+        private T value;
+
+        private Value(Command command, byte[] key, Function<Object, T> decoder) {
+            this.command = command;
+            this.key = key;
+            this.decoder = decoder;
+        }
+
+        private void complete(Object raw) {
+            this.value = decoder.apply(raw);
+            this.completed = true;
+        }
+
+        /**
+         * 获取解码后的值，键不存在或解码失败时返回null
+         */
+        public T get() {
+            if (!completed) {
+                throw new IllegalStateException("RedisBatch尚未执行");
+            }
+            return value;
+        }
+
+        /**
+         * 获取Redis键
+         */
+        public String getKey() {
+            return new String(key, StandardCharsets.UTF_8);
+        }
+    }
+}
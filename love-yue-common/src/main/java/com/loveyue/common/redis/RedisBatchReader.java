@@ -0,0 +1,88 @@
+package com.loveyue.common.redis;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.loveyue.common.constant.RedisBinaryKeys;
+import com.loveyue.common.constant.RedisKeys;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 基于{@link RedisKeys}的Redis批量访问层
+ * <p>
+ * 认证请求通常需要同时读取用户信息、角色、权限、登录失败次数、锁定标记和令牌黑名单，
+ * 逐个读取需要4~6次往返，这里将它们合并为一次MGET。缓存值约定如下：
+ * 用户信息为JSON对象，角色和权限为JSON字符串数组，登录失败次数为整数，锁定和黑名单键存在即生效。
+ * </p>
+ *
+ * @author loveyue
+ * @since 2025-08-08
+ */
+@Component
+public class RedisBatchReader {
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    public RedisBatchReader(StringRedisTemplate redisTemplate, ObjectProvider<ObjectMapper> objectMapperProvider) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapperProvider.getIfAvailable(ObjectMapper::new);
+    }
+
+    /**
+     * 创建新的批量读取
+     */
+    public RedisBatch newBatch() {
+        return new RedisBatch(redisTemplate, objectMapper);
+    }
+
+    /**
+     * 一次往返读取认证请求所需的用户缓存
+     *
+     * @param userId       用户ID
+     * @param username     用户名，为null时不读取用户名映射、登录失败次数和锁定标记
+     * @param tokenId      令牌ID，为null时不检查黑名单
+     * @param tokenType    令牌类型（AuthConstants.ACCESS_TOKEN_TYPE/REFRESH_TOKEN_TYPE）
+     * @param userInfoType 用户信息类型
+     * @return 用户缓存快照
+     */
+    public <U> UserCacheSnapshot<U> loadUserSnapshot(Long userId, String username, String tokenId, String tokenType,
+                                                     Class<U> userInfoType) {
+        RedisBatch batch = newBatch();
+
+        RedisBatch.Value<U> userInfo = batch.get(RedisBinaryKeys.userInfoCacheKey(userId), userInfoType);
+        RedisBatch.Value<List<String>> roles = batch.getList(RedisBinaryKeys.userRolesCacheKey(userId), String.class);
+        RedisBatch.Value<List<String>> permissions =
+                batch.getList(RedisBinaryKeys.userPermissionsCacheKey(userId), String.class);
+
+        RedisBatch.Value<Long> usernameUserId = null;
+        RedisBatch.Value<Integer> loginAttempts = null;
+        RedisBatch.Value<Boolean> accountLocked = null;
+        if (username != null) {
+            usernameUserId = batch.get(RedisBinaryKeys.usernameToIdCacheKey(username), Long.class);
+            loginAttempts = batch.get(RedisBinaryKeys.loginAttemptsKey(username), Integer.class);
+            accountLocked = batch.exists(RedisBinaryKeys.accountLockedKey(username));
+        }
+
+        RedisBatch.Value<Boolean> tokenRevoked = tokenId == null
+                ? null
+                : batch.exists(RedisBinaryKeys.tokenBlacklistKey(tokenId, tokenType));
+
+        batch.execute();
+
+        UserCacheSnapshot<U> snapshot = new UserCacheSnapshot<>();
+        snapshot.setUserInfo(userInfo.get());
+        snapshot.setRoles(roles.get());
+        snapshot.setPermissions(permissions.get());
+        if (username != null) {
+            snapshot.setUsernameUserId(usernameUserId.get());
+            snapshot.setLoginAttempts(loginAttempts.get());
+            snapshot.setAccountLocked(accountLocked.get());
+        }
+        snapshot.setTokenRevoked(tokenRevoked != null && tokenRevoked.get());
+        return snapshot;
+    }
+}
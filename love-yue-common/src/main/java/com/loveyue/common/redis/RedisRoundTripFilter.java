@@ -0,0 +1,56 @@
+package com.loveyue.common.redis;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 按请求上报Redis往返次数的过滤器
+ * <p>
+ * 指标名称为 love_yue.redis.round_trips，单位为次/请求；未配置MeterRegistry时只输出debug日志。
+ * </p>
+ *
+ * @author loveyue
+ * @since 2025-08-08
+ */
+@Slf4j
+@Component
+public class RedisRoundTripFilter extends OncePerRequestFilter {
+
+    public static final String METRIC_NAME = "love_yue.redis.round_trips";
+
+    private final DistributionSummary roundTripSummary;
+
+    public RedisRoundTripFilter(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        this.roundTripSummary = meterRegistry == null ? null : DistributionSummary.builder(METRIC_NAME)
+                .description("每个请求的Redis往返次数")
+                .baseUnit("round_trips")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RedisRoundTripTracker.reset();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int roundTrips = RedisRoundTripTracker.current();
+            if (roundTripSummary != null) {
+                roundTripSummary.record(roundTrips);
+            }
+            log.debug("Redis往返次数: {} {} -> {}", request.getMethod(), request.getRequestURI(), roundTrips);
+            RedisRoundTripTracker.reset();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.loveyue.common.redis;
+
+/**
+ * Redis往返次数统计
+ * <p>
+ * 以线程为单位记录当前请求发起的Redis往返次数，由{@link RedisRoundTripFilter}在请求开始时重置、
+ * 结束时上报。所有经过批量访问层的Redis调用都会计数，便于发现逐键访问的热点路径。
+ * </p>
+ *
+ * @author loveyue
+ * @since 2025-08-08
+ */
+public final class RedisRoundTripTracker {
+
+    private static final ThreadLocal<int[]> ROUND_TRIPS = ThreadLocal.withInitial(() -> new int[1]);
+
+    private RedisRoundTripTracker() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * 记录一次Redis往返
+     */
+    public static void record() {
+        ROUND_TRIPS.get()[0]++;
+    }
+
+    /**
+     * 获取当前线程记录的往返次数
+     */
+    public static int current() {
+        return ROUND_TRIPS.get()[0];
+    }
+
+    /**
+     * 重置当前线程的往返次数
+     */
+    public static void reset() {
+        ROUND_TRIPS.get()[0] = 0;
+    }
+}
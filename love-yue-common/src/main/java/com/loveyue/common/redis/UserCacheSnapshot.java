@@ -0,0 +1,51 @@
+package com.loveyue.common.redis;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 认证请求所需的用户缓存快照，由{@link RedisBatchReader#loadUserSnapshot}一次往返读取
+ *
+ * @param <U> 用户信息类型
+ * @author loveyue
+ * @since 2025-08-08
+ */
+@Data
+public class UserCacheSnapshot<U> {
+
+    /**
+     * 用户基本信息，未缓存时为null
+     */
+    private U userInfo;
+
+    /**
+     * 用户角色，未缓存时为null
+     */
+    private List<String> roles;
+
+    /**
+     * 用户权限，未缓存时为null
+     */
+    private List<String> permissions;
+
+    /**
+     * 用户名对应的用户ID，未缓存时为null
+     */
+    private Long usernameUserId;
+
+    /**
+     * 登录失败次数，无记录时为null
+     */
+    private Integer loginAttempts;
+
+    /**
+     * 账户是否被锁定
+     */
+    private boolean accountLocked;
+
+    /**
+     * 令牌是否已被加入黑名单
+     */
+    private boolean tokenRevoked;
+}
@@ -0,0 +1,404 @@
+package com.loveyue.common.redis;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.loveyue.common.constant.RedisKeys;
+import com.loveyue.common.security.PermissionRegistry;
+import com.loveyue.common.security.PermissionSet;
+import com.loveyue.common.security.UserRolesResolver;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 用户信息、角色和权限的两级缓存
+ * <p>
+ * 一级为进程内LRU缓存，二级为Redis（{@link RedisKeys#CACHE_USER_INFO}、{@link RedisKeys#CACHE_USER_ROLES}、
+ * {@link RedisKeys#CACHE_USER_PERMISSIONS}）。本地未命中时通过{@link RedisBatchReader}一次MGET读取三项缓存；
+ * 条目存活超过TTL的一定比例后，下一次访问在后台异步刷新（refresh-ahead），热点用户不会出现同步回源。
+ * </p>
+ *
+ * <p>
+ * 用户角色、权限或基本信息变更后调用{@link #invalidate(Long)}，通过Redis发布订阅通知所有节点清除本地条目。
+ * 发布订阅不保证送达，TTL是本地缓存陈旧时间的上限。
+ * 失效时递增用户ID所在分段的代数，加载（同步或异步刷新）开始前记录代数，写入本地缓存后代数已变化则撤销写入，
+ * 失效之前开始的加载不会把旧值写回。
+ * </p>
+ *
+ * @author loveyue
+ * @since 2025-08-09
+ */
+@Slf4j
+@Component
+public class UserNearCache implements UserRolesResolver {
+
+    /**
+     * 失效代数的分段数，必须为2的幂
+     */
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final RedisBatchReader redisBatchReader;
+
+    private final ObjectProvider<StringRedisTemplate> redisTemplateProvider;
+
+    private final ObjectProvider<RedisMessageListenerContainer> listenerContainerProvider;
+
+    private final ObjectMapper objectMapper;
+
+    private final PermissionRegistry permissionRegistry;
+
+    /**
+     * 是否启用本地缓存，关闭时每次都读取Redis
+     */
+    @Value("${auth.near-cache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 本地缓存最大条目数
+     */
+    @Value("${auth.near-cache.max-size:10000}")
+    private int maxSize;
+
+    /**
+     * 本地条目存活时间（秒）
+     */
+    @Value("${auth.near-cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    /**
+     * 存活时间超过TTL的该比例后异步刷新
+     */
+    @Value("${auth.near-cache.refresh-ahead-ratio:0.8}")
+    private double refreshAheadRatio;
+
+    private LRUCache<Long, Entry> localCache;
+
+    private ThreadPoolExecutor refreshExecutor;
+
+    /**
+     * 正在刷新的用户ID，保证同一用户同时只有一个刷新任务
+     */
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 按用户ID分段的失效代数，同一分段内任一用户失效都会使该分段进行中的加载放弃写入
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private long ttlMillis;
+
+    private long refreshAfterMillis;
+
+    public UserNearCache(RedisBatchReader redisBatchReader,
+                         ObjectProvider<StringRedisTemplate> redisTemplateProvider,
+                         ObjectProvider<RedisMessageListenerContainer> listenerContainerProvider,
+                         ObjectProvider<ObjectMapper> objectMapperProvider,
+                         ObjectProvider<PermissionRegistry> permissionRegistryProvider) {
+        this.redisBatchReader = redisBatchReader;
+        this.redisTemplateProvider = redisTemplateProvider;
+        this.listenerContainerProvider = listenerContainerProvider;
+        this.objectMapper = objectMapperProvider.getIfAvailable(ObjectMapper::new);
+        this.permissionRegistry = permissionRegistryProvider.getIfAvailable(PermissionRegistry::new);
+    }
+
+    @PostConstruct
+    public void init() {
+        ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        refreshAfterMillis = (long) (ttlMillis * refreshAheadRatio);
+        // 过期由条目自身的加载时间判断，LRU只负责容量上限
+        localCache = CacheUtil.newLRUCache(maxSize);
+        refreshExecutor = new ThreadPoolExecutor(1, 2, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1024),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "user-near-cache-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+
+        RedisMessageListenerContainer listenerContainer = listenerContainerProvider.getIfAvailable();
+        if (listenerContainer == null) {
+            log.warn("未配置RedisMessageListenerContainer，用户本地缓存仅依赖TTL失效");
+            return;
+        }
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            try {
+                evictLocal(Long.valueOf(body));
+            } catch (NumberFormatException e) {
+                log.warn("忽略无效的用户缓存失效消息: {}", body);
+            }
+        }, new ChannelTopic(RedisKeys.CACHE_USER_INVALIDATION_CHANNEL));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 获取用户角色
+     */
+    @Override
+    public List<String> resolveRoles(Long userId) {
+        Entry entry = getEntry(userId);
+        return entry == null ? null : entry.roles;
+    }
+
+    /**
+     * 获取用户权限
+     *
+     * @return 权限集合，未缓存时返回null
+     */
+    public Set<String> getPermissions(Long userId) {
+        Entry entry = getEntry(userId);
+        return entry == null ? null : entry.permissions;
+    }
+
+    /**
+     * 获取用户权限集合，同一条目内只编译一次
+     *
+     * @return 权限集合，未缓存时返回null
+     */
+    public PermissionSet getPermissionSet(Long userId) {
+        Entry entry = getEntry(userId);
+        return entry == null || entry.permissions == null ? null : entry.permissionSet(permissionRegistry);
+    }
+
+    /**
+     * 获取用户基本信息，同一条目内按类型只转换一次
+     *
+     * @return 用户信息，未缓存或转换失败时返回null
+     */
+    public <U> U getUserInfo(Long userId, Class<U> userInfoType) {
+        Entry entry = getEntry(userId);
+        return entry == null ? null : entry.userInfo(userInfoType, objectMapper);
+    }
+
+    /**
+     * 判断用户是否拥有指定权限
+     */
+    public boolean hasPermission(Long userId, String permission) {
+        PermissionSet permissionSet = getPermissionSet(userId);
+        return permissionSet != null && permissionSet.hasPermission(permission);
+    }
+
+    /**
+     * 判断用户是否拥有指定角色
+     */
+    public boolean hasRole(Long userId, String role) {
+        Entry entry = getEntry(userId);
+        return entry != null && entry.roleSet.contains(role);
+    }
+
+    /**
+     * 用户缓存变更后调用：清除本节点条目并通知其他节点
+     * <p>
+     * 调用方应先更新或删除Redis中的缓存，再调用本方法，避免其他节点重新加载到旧值。
+     * </p>
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        evictLocal(userId);
+
+        StringRedisTemplate redisTemplate = redisTemplateProvider.getIfAvailable();
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(RedisKeys.CACHE_USER_INVALIDATION_CHANNEL, String.valueOf(userId));
+        } catch (Exception e) {
+            log.warn("发布用户缓存失效通知失败，用户ID: {}，错误: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * 仅清除本节点的条目
+     */
+    public void evictLocal(Long userId) {
+        // 先递增代数再删除，进行中的加载写入后会发现代数变化
+        generations.incrementAndGet(stripe(userId));
+        if (localCache != null) {
+            localCache.remove(userId);
+        }
+    }
+
+    /**
+     * 清空本节点的全部条目
+     */
+    public void clearLocal() {
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        if (localCache != null) {
+            localCache.clear();
+        }
+    }
+
+    private Entry getEntry(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        if (!enabled) {
+            return load(userId);
+        }
+
+        Entry entry = localCache.get(userId, false);
+        long now = System.currentTimeMillis();
+        if (entry != null) {
+            long age = now - entry.loadedAt;
+            if (age < refreshAfterMillis) {
+                return entry;
+            }
+            if (age < ttlMillis) {
+                refreshAsync(userId);
+                return entry;
+            }
+        }
+
+        try {
+            long generation = generations.get(stripe(userId));
+            Entry loaded = load(userId);
+            if (loaded != null) {
+                putIfCurrent(userId, loaded, generation);
+            }
+            return loaded;
+        } catch (Exception e) {
+            // Redis不可用时继续使用已过期的本地条目
+            log.warn("读取用户缓存失败，用户ID: {}，错误: {}", userId, e.getMessage());
+            return entry;
+        }
+    }
+
+    private void refreshAsync(Long userId) {
+        if (!refreshing.add(userId)) {
+            return;
+        }
+        try {
+            long generation = generations.get(stripe(userId));
+            refreshExecutor.execute(() -> {
+                try {
+                    Entry loaded = load(userId);
+                    if (loaded != null) {
+                        putIfCurrent(userId, loaded, generation);
+                    } else {
+                        localCache.remove(userId);
+                    }
+                } catch (Exception e) {
+                    log.debug("异步刷新用户缓存失败，用户ID: {}，错误: {}", userId, e.getMessage());
+                } finally {
+                    refreshing.remove(userId);
+                }
+            });
+        } catch (Exception e) {
+            refreshing.remove(userId);
+        }
+    }
+
+    /**
+     * 加载开始后没有发生失效时才保留写入的条目；写入后再检查代数，与失效并发时撤销本次写入
+     */
+    private void putIfCurrent(Long userId, Entry loaded, long generation) {
+        int stripe = stripe(userId);
+        if (generations.get(stripe) != generation) {
+            return;
+        }
+        localCache.put(userId, loaded);
+        if (generations.get(stripe) != generation) {
+            localCache.remove(userId);
+        }
+    }
+
+    private static int stripe(Long userId) {
+        long hash = userId * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (GENERATION_STRIPES - 1);
+    }
+
+    /**
+     * 从Redis读取用户缓存，三项均未缓存时返回null，不做负缓存
+     */
+    private Entry load(Long userId) {
+        UserCacheSnapshot<JsonNode> snapshot =
+                redisBatchReader.loadUserSnapshot(userId, null, null, null, JsonNode.class);
+        if (snapshot.getUserInfo() == null && snapshot.getRoles() == null && snapshot.getPermissions() == null) {
+            return null;
+        }
+        return new Entry(snapshot.getUserInfo(), snapshot.getRoles(), snapshot.getPermissions());
+    }
+
+    /**
+     * 本地缓存条目，创建后只读
+     */
+    private static final class Entry {
+
+        private final long loadedAt = System.currentTimeMillis();
+
+        private final JsonNode userInfoNode;
+
+        private final List<String> roles;
+
+        private final Set<String> roleSet;
+
+        private final Set<String> permissions;
+
+        private volatile Object userInfo;
+
+        private volatile PermissionSet permissionSet;
+
+        private Entry(JsonNode userInfoNode, List<String> roles, List<String> permissions) {
+            this.userInfoNode = userInfoNode;
+            this.roles = roles == null ? null : Collections.unmodifiableList(roles);
+            this.roleSet = roles == null ? Collections.emptySet() : Collections.unmodifiableSet(new HashSet<>(roles));
+            this.permissions = permissions == null ? null : Collections.unmodifiableSet(new HashSet<>(permissions));
+        }
+
+        private PermissionSet permissionSet(PermissionRegistry registry) {
+            PermissionSet compiled = permissionSet;
+            if (compiled == null) {
+                compiled = registry.compile(permissions);
+                permissionSet = compiled;
+            }
+            return compiled;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <U> U userInfo(Class<U> type, ObjectMapper objectMapper) {
+            if (userInfoNode == null) {
+                return null;
+            }
+            Object cached = userInfo;
+            if (type.isInstance(cached)) {
+                return (U) cached;
+            }
+            try {
+                U converted = objectMapper.treeToValue(userInfoNode, type);
+                userInfo = converted;
+                return converted;
+            } catch (Exception e) {
+                log.warn("用户信息缓存转换失败，类型: {}，错误: {}", type.getName(), e.getMessage());
+                return null;
+            }
+        }
+    }
+}
@@ -4,7 +4,9 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
 import org.springframework.data.domain.*;
+import com.loveyue.common.security.DataScopeFilter;
 import com.loveyue.common.utils.DataTypeUtil;
 
 import java.util.*;
@@ -687,6 +689,63 @@ public abstract class BaseRepository {
             return this;
         }
 
+        /**
+         * 添加数据权限条件到查询中
+         * <p>
+         * 该方法根据已解析的 {@link DataScopeFilter} 限制可见记录：不限制范围时不添加任何条件；
+         * 否则可见记录为部门字段在可见部门中的记录，加上创建人字段为本人的记录（两者为 OR 关系），
+         * 范围为空时不返回任何记录。
+         * 部门条件渲染为 {@code dept_id = ANY(?)}，可见部门作为一个数组参数绑定，
+         * SQL 文本与部门数量无关，不会生成超长的 IN 列表，也不会因部门数量不同产生不同的执行计划缓存。
+         * </p>
+         *
+         * <p>使用示例：</p>
+         * <pre>
+         * // 按当前用户的数据权限查询用户列表
+         * DataScopeFilter filter = dataScopeService.getDataScope(currentUser);
+         * builder.is("userStatus", UserStatus.ACTIVE)
+         *     .dataScope(filter, "departmentId", "createBy")
+         *     .execute()
+         *     .resultList();
+         *
+         * // 记录没有创建人字段时只按部门过滤
+         * builder.dataScope(filter, "departmentId", null);
+         * </pre>
+         *
+         * @param filter   已解析的数据权限范围，为 null 时不添加条件
+         * @param deptKey  记录所属部门的实体属性名，支持嵌套属性路径
+         * @param ownerKey 记录创建人的实体属性名，为 null 时忽略本人数据
+         * @return 当前 SQLQueryBuilder 实例，支持链式调用
+         */
+        public SQLQueryBuilder<T> dataScope(DataScopeFilter filter, String deptKey, String ownerKey) {
+            if (filter == null || filter.isUnrestricted()) {
+                return this;
+            }
+
+            List<Predicate> visible = new ArrayList<>(2);
+            if (filter.getDeptCount() > 0) {
+                HibernateCriteriaBuilder hibernateCriteriaBuilder = (HibernateCriteriaBuilder) criteriaBuilder;
+                visible.add(criteriaBuilder.isTrue(hibernateCriteriaBuilder.sql(
+                        "(? = any(?))",
+                        Boolean.class,
+                        getPathByKey(deptKey, entityRootType),
+                        hibernateCriteriaBuilder.value(filter.getDeptIdArray())
+                )));
+            }
+            if (filter.getOwner() != null && ownerKey != null) {
+                visible.add(criteriaBuilder.equal(getPathByKey(ownerKey, entityRootType), filter.getOwner()));
+            }
+
+            predicate = criteriaBuilder.and(
+                    predicate,
+                    visible.isEmpty()
+                            ? criteriaBuilder.disjunction()
+                            : criteriaBuilder.or(visible.toArray(new Predicate[0]))
+            );
+
+            return this;
+        }
+
         /**
          * 添加模糊查询条件到查询中
          * <p>
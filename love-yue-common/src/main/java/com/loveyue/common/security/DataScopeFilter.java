@@ -0,0 +1,248 @@
+package com.loveyue.common.security;
+
+import com.loveyue.common.enums.DataScope;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * 解析后的数据权限范围
+ * <p>
+ * 由用户全部有效角色的数据权限规则合并而成：任一角色为ALL时不限制；否则可见数据为
+ * 部门ID在{@link #getDeptIds()}中的记录，加上创建人为{@link #getOwner()}的记录（SELF）。
+ * 部门ID保存为去重后的升序long数组，判断为一次二分查找，查询时作为单个数组参数绑定（= ANY(?)），
+ * 不随部门数量展开IN列表。
+ * </p>
+ *
+ * <p>
+ * 实例不可变，可在多线程间共享和缓存。
+ * </p>
+ *
+ * @author loveyue
+ * @since 2025-08-24
+ */
+public final class DataScopeFilter {
+
+    private static final long[] EMPTY = new long[0];
+
+    private static final DataScopeFilter UNRESTRICTED = new DataScopeFilter(true, EMPTY, null);
+
+    private static final DataScopeFilter NONE = new DataScopeFilter(false, EMPTY, null);
+
+    /**
+     * 单个角色的数据权限规则
+     *
+     * @param scope   数据权限范围
+     * @param deptIds 角色配置的部门ID（CUSTOM、DEPT_AND_CHILD使用），调用方不可再修改
+     */
+    public record Rule(DataScope scope, long[] deptIds) {
+    }
+
+    private final boolean unrestricted;
+
+    private final long[] deptIds;
+
+    private final String owner;
+
+    private DataScopeFilter(boolean unrestricted, long[] deptIds, String owner) {
+        this.unrestricted = unrestricted;
+        this.deptIds = deptIds;
+        this.owner = owner;
+    }
+
+    /**
+     * 不限制数据范围
+     */
+    public static DataScopeFilter unrestricted() {
+        return UNRESTRICTED;
+    }
+
+    /**
+     * 不可见任何数据
+     */
+    public static DataScopeFilter none() {
+        return NONE;
+    }
+
+    /**
+     * 只可见指定部门和本人的数据
+     *
+     * @param deptIds 部门ID，可无序、可重复
+     * @param owner   本人标识（创建人），为null时不包含本人数据
+     * @return 数据权限范围
+     */
+    public static DataScopeFilter of(long[] deptIds, String owner) {
+        long[] sorted = sortedDistinct(deptIds == null ? EMPTY : deptIds.clone());
+        return sorted.length == 0 && owner == null ? NONE : new DataScopeFilter(false, sorted, owner);
+    }
+
+    /**
+     * 合并角色规则
+     * <p>
+     * ALL不限制；CUSTOM取角色配置的部门；DEPT取用户所在部门；DEPT_AND_CHILD取用户所在部门及角色配置的部门；
+     * SELF只包含本人数据。没有任何规则时只可见本人数据。
+     * </p>
+     *
+     * @param rules        用户有效角色的规则
+     * @param departmentId 用户所在部门ID，可为null
+     * @param owner        本人标识（创建人）
+     * @return 数据权限范围
+     */
+    public static DataScopeFilter resolve(Collection<Rule> rules, Long departmentId, String owner) {
+        if (rules.isEmpty()) {
+            return of(EMPTY, owner);
+        }
+
+        long[] merged = EMPTY;
+        boolean self = false;
+        boolean ownDept = false;
+        for (Rule rule : rules) {
+            switch (rule.scope()) {
+                case ALL -> {
+                    return UNRESTRICTED;
+                }
+                case CUSTOM -> merged = concat(merged, rule.deptIds());
+                case DEPT -> ownDept = true;
+                case DEPT_AND_CHILD -> {
+                    ownDept = true;
+                    merged = concat(merged, rule.deptIds());
+                }
+                case SELF -> self = true;
+            }
+        }
+        if (ownDept && departmentId != null) {
+            merged = concat(merged, new long[]{departmentId});
+        }
+        return of(merged, self ? owner : null);
+    }
+
+    /**
+     * 解析部门ID列表，支持JSON数组和逗号分隔，忽略无法解析的项
+     *
+     * @param codes 已拆分的部门ID字符串
+     * @return 去重后的升序部门ID
+     */
+    public static long[] parseDeptIds(Collection<String> codes) {
+        long[] result = new long[codes.size()];
+        int size = 0;
+        for (String code : codes) {
+            try {
+                result[size] = Long.parseLong(code);
+                size++;
+            } catch (NumberFormatException ignored) {
+                // 非数字的部门ID不生效
+            }
+        }
+        return sortedDistinct(Arrays.copyOf(result, size));
+    }
+
+    /**
+     * 是否不限制数据范围
+     */
+    public boolean isUnrestricted() {
+        return unrestricted;
+    }
+
+    /**
+     * 是否不可见任何数据
+     */
+    public boolean isEmpty() {
+        return !unrestricted && deptIds.length == 0 && owner == null;
+    }
+
+    /**
+     * 部门是否在可见范围内
+     *
+     * @param deptId 部门ID
+     * @return 是否可见
+     */
+    public boolean containsDept(Long deptId) {
+        return unrestricted || (deptId != null && Arrays.binarySearch(deptIds, deptId) >= 0);
+    }
+
+    /**
+     * 记录是否可见
+     *
+     * @param deptId  记录所属部门ID
+     * @param creator 记录创建人
+     * @return 是否可见
+     */
+    public boolean isVisible(Long deptId, String creator) {
+        return containsDept(deptId) || (owner != null && owner.equals(creator));
+    }
+
+    /**
+     * 可见部门ID（升序）
+     *
+     * @return 部门ID副本
+     */
+    public long[] getDeptIds() {
+        return deptIds.clone();
+    }
+
+    /**
+     * 可见部门ID，用作数组查询参数
+     *
+     * @return 部门ID数组
+     */
+    public Long[] getDeptIdArray() {
+        return Arrays.stream(deptIds).boxed().toArray(Long[]::new);
+    }
+
+    /**
+     * 可见部门数量
+     */
+    public int getDeptCount() {
+        return deptIds.length;
+    }
+
+    /**
+     * 本人标识，不包含本人数据时为null
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    private static long[] concat(long[] left, long[] right) {
+        if (right == null || right.length == 0) {
+            return left;
+        }
+        long[] result = Arrays.copyOf(left, left.length + right.length);
+        System.arraycopy(right, 0, result, left.length, right.length);
+        return result;
+    }
+
+    private static long[] sortedDistinct(long[] values) {
+        if (values.length == 0) {
+            return EMPTY;
+        }
+        Arrays.sort(values);
+        int size = 1;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] != values[size - 1]) {
+                values[size++] = values[i];
+            }
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof DataScopeFilter filter
+                && unrestricted == filter.unrestricted
+                && Arrays.equals(deptIds, filter.deptIds)
+                && Objects.equals(owner, filter.owner);
+    }
+
+    @Override
+    public int hashCode() {
+        return (Arrays.hashCode(deptIds) * 31 + (owner == null ? 0 : owner.hashCode())) * 31 + (unrestricted ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return unrestricted ? "DataScopeFilter[ALL]"
+                : "DataScopeFilter[deptIds=" + Arrays.toString(deptIds) + ", owner=" + owner + "]";
+    }
+}
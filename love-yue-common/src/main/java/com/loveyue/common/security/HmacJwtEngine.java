@@ -0,0 +1,262 @@
+package com.loveyue.common.security;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.loveyue.common.constant.SecurityConstants;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.PrematureJwtException;
+import io.jsonwebtoken.security.SignatureException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * HS256 JWT签名与验签引擎
+ * <p>
+ * 每个线程复用一个{@link Mac}实例和一组字节缓冲区，Base64URL解码直接写入缓冲区，
+ * 签名使用常量时间比较，只有签名校验通过后才会解码声明JSON。
+ * 仅处理头部为 {"alg":"HS256"} 的令牌，其他头部由调用方回退到jjwt解析。
+ * </p>
+ *
+ * @author loveyue
+ * @since 2025-08-05
+ */
+public class HmacJwtEngine {
+
+    /**
+     * HS256签名长度（字节）
+     */
+    private static final int SIGNATURE_LENGTH = 32;
+
+    /**
+     * 与jjwt生成的HS256令牌一致的头部
+     */
+    private static final String HEADER_JSON = "{\"alg\":\"HS256\"}";
+
+    private static final Base64.Encoder BASE64_URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final TypeReference<Map<String, Object>> CLAIMS_TYPE = new TypeReference<>() {
+    };
+
+    private static final byte[] BASE64_URL_DECODE_TABLE = new byte[128];
+
+    static {
+        Arrays.fill(BASE64_URL_DECODE_TABLE, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_URL_DECODE_TABLE[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    /**
+     * Base64URL编码后的头部，同时用于快速判断令牌是否由本引擎处理
+     */
+    private final String encodedHeader;
+
+    private final ObjectMapper objectMapper;
+
+    private final ThreadLocal<Mac> macHolder;
+
+    private final ThreadLocal<Buffers> bufferHolder = ThreadLocal.withInitial(Buffers::new);
+
+    public HmacJwtEngine(byte[] keyBytes, ObjectMapper objectMapper) {
+        SecretKeySpec keySpec = new SecretKeySpec(keyBytes, SecurityConstants.HMAC_SHA256_ALGORITHM);
+        this.objectMapper = objectMapper;
+        this.encodedHeader = BASE64_URL_ENCODER.encodeToString(HEADER_JSON.getBytes(StandardCharsets.UTF_8));
+        this.macHolder = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(SecurityConstants.HMAC_SHA256_ALGORITHM);
+                mac.init(keySpec);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("初始化HMAC-SHA256失败", e);
+            }
+        });
+    }
+
+    /**
+     * 判断令牌是否可由本引擎处理（头部为HS256）
+     */
+    public boolean supports(String token) {
+        return token != null
+               && token.length() > encodedHeader.length()
+               && token.charAt(encodedHeader.length()) == '.'
+               && token.startsWith(encodedHeader);
+    }
+
+    /**
+     * 签发令牌
+     *
+     * @param claims 声明，时间类声明（iat、exp）需为秒级时间戳
+     * @return 紧凑格式的JWT
+     */
+    public String sign(Map<String, Object> claims) {
+        String encodedPayload;
+        try {
+            encodedPayload = BASE64_URL_ENCODER.encodeToString(objectMapper.writeValueAsBytes(claims));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("JWT声明序列化失败", e);
+        }
+
+        StringBuilder token = new StringBuilder(encodedHeader.length() + encodedPayload.length() + 45)
+                .append(encodedHeader)
+                .append('.')
+                .append(encodedPayload);
+
+        Buffers buffers = bufferHolder.get();
+        computeSignature(token, token.length(), buffers);
+
+        return token.append('.')
+                .append(BASE64_URL_ENCODER.encodeToString(Arrays.copyOf(buffers.expected, SIGNATURE_LENGTH)))
+                .toString();
+    }
+
+    /**
+     * 校验签名、过期时间并解析声明
+     *
+     * @param token 令牌，调用前需通过{@link #supports(String)}判断
+     * @return 声明
+     * @throws MalformedJwtException 令牌结构错误
+     * @throws SignatureException    签名不匹配
+     * @throws ExpiredJwtException   令牌已过期
+     * @throws PrematureJwtException 令牌尚未生效
+     */
+    public Claims verify(String token) {
+        int payloadEnd = token.indexOf('.', encodedHeader.length() + 1);
+        if (payloadEnd < 0 || token.indexOf('.', payloadEnd + 1) >= 0) {
+            throw new MalformedJwtException("JWT结构错误");
+        }
+
+        Buffers buffers = bufferHolder.get();
+        int signatureLength = decode(token, payloadEnd + 1, token.length(), buffers.actual);
+        if (signatureLength != SIGNATURE_LENGTH) {
+            throw new SignatureException("JWT签名长度错误");
+        }
+
+        computeSignature(token, payloadEnd, buffers);
+        if (!constantTimeEquals(buffers.expected, buffers.actual)) {
+            throw new SignatureException("JWT签名不匹配");
+        }
+
+        int payloadStart = encodedHeader.length() + 1;
+        byte[] payload = buffers.payload(payloadEnd - payloadStart);
+        int payloadLength = decode(token, payloadStart, payloadEnd, payload);
+        if (payloadLength < 0) {
+            throw new MalformedJwtException("JWT载荷编码错误");
+        }
+
+        Claims claims;
+        try {
+            claims = Jwts.claims(objectMapper.readValue(payload, 0, payloadLength, CLAIMS_TYPE));
+        } catch (IOException e) {
+            throw new MalformedJwtException("JWT载荷解析失败", e);
+        }
+
+        long now = System.currentTimeMillis();
+        if (claims.getExpiration() != null && claims.getExpiration().getTime() <= now) {
+            throw new ExpiredJwtException(null, claims, "JWT已过期: " + claims.getExpiration());
+        }
+        if (claims.getNotBefore() != null && claims.getNotBefore().getTime() > now) {
+            throw new PrematureJwtException(null, claims, "JWT尚未生效: " + claims.getNotBefore());
+        }
+        return claims;
+    }
+
+    /**
+     * 对令牌前length个字符计算签名，结果写入buffers.expected
+     */
+    private void computeSignature(CharSequence token, int length, Buffers buffers) {
+        byte[] input = buffers.input(length);
+        for (int i = 0; i < length; i++) {
+            input[i] = (byte) token.charAt(i);
+        }
+
+        Mac mac = macHolder.get();
+        mac.update(input, 0, length);
+        try {
+            mac.doFinal(buffers.expected, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("计算JWT签名失败", e);
+        }
+    }
+
+    /**
+     * 常量时间比较签名，避免计时攻击
+     */
+    private static boolean constantTimeEquals(byte[] expected, byte[] actual) {
+        int diff = 0;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            diff |= expected[i] ^ actual[i];
+        }
+        return diff == 0;
+    }
+
+    /**
+     * 将无填充的Base64URL字符串解码到目标缓冲区
+     *
+     * @return 解码后的字节数，编码非法或缓冲区不足时返回-1
+     */
+    private static int decode(String source, int from, int to, byte[] target) {
+        int length = to - from;
+        if (length % 4 == 1) {
+            return -1;
+        }
+
+        int outLength = length * 3 / 4;
+        if (outLength > target.length) {
+            return -1;
+        }
+
+        int bits = 0;
+        int bitCount = 0;
+        int out = 0;
+        for (int i = from; i < to; i++) {
+            char c = source.charAt(i);
+            int value = c < 128 ? BASE64_URL_DECODE_TABLE[c] : -1;
+            if (value < 0) {
+                return -1;
+            }
+            bits = (bits << 6) | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                target[out++] = (byte) (bits >> bitCount);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * 线程私有的可复用缓冲区
+     */
+    private static final class Buffers {
+        private final byte[] expected = new byte[SIGNATURE_LENGTH];
+        private final byte[] actual = new byte[SIGNATURE_LENGTH + 2];
+        private byte[] input = new byte[1024];
+        private byte[] payload = new byte[1024];
+
+        private byte[] input(int length) {
+            if (input.length < length) {
+                input = new byte[Math.max(length, input.length * 2)];
+            }
+            return input;
+        }
+
+        private byte[] payload(int encodedLength) {
+            int length = encodedLength * 3 / 4 + 1;
+            if (payload.length < length) {
+                payload = new byte[Math.max(length, payload.length * 2)];
+            }
+            return payload;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.loveyue.common.security;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 权限字典
+ * <p>
+ * 为每个权限编码分配固定下标，用于将权限列表编码为位图，压缩令牌中的权限声明。
+ * 字典只允许追加，已分配的下标不会改变，因此字典版本即为权限数量：
+ * 版本为N的位图只引用前N个权限，任何不低于N的字典都能正确解码。
+ * 不再使用的权限应保留在原位置，不能删除或调整顺序。
+ * </p>
+ *
+ * @author loveyue
+ * @since 2025-08-06
+ */
+public class PermissionDictionary {
+
+    private static final Base64.Encoder BASE64_URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder BASE64_URL_DECODER = Base64.getUrlDecoder();
+
+    /**
+     * 按下标排列的权限编码
+     */
+    private final String[] codes;
+
+    /**
+     * 权限编码到下标的映射
+     */
+    private final Map<String, Integer> indexes;
+
+    public PermissionDictionary(List<String> codes) {
+        this.codes = codes.toArray(new String[0]);
+        this.indexes = new HashMap<>(this.codes.length * 2);
+        for (int i = 0; i < this.codes.length; i++) {
+            if (this.indexes.putIfAbsent(this.codes[i], i) != null) {
+                throw new IllegalArgumentException("权限字典中存在重复的权限编码: " + this.codes[i]);
+            }
+        }
+    }
+
+    /**
+     * 获取字典版本
+     */
+    public int getVersion() {
+        return codes.length;
+    }
+
+    /**
+     * 获取权限编码的下标
+     *
+     * @param code 权限编码
+     * @return 下标，不在字典中时返回-1
+     */
+    public int indexOf(String code) {
+        Integer index = indexes.get(code);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * 获取下标对应的权限编码
+     */
+    public String codeAt(int index) {
+        return codes[index];
+    }
+
+    /**
+     * 获取所有权限编码
+     */
+    public List<String> getCodes() {
+        return List.of(codes);
+    }
+
+    /**
+     * 将字典内的权限编码为Base64URL位图，字典外的权限写入overflow
+     *
+     * @param permissions 权限列表
+     * @param overflow    接收字典外权限的列表
+     * @return Base64URL编码的位图
+     */
+    public String encode(Collection<String> permissions, List<String> overflow) {
+        byte[] bits = new byte[(codes.length + 7) >>> 3];
+        int length = 0;
+        for (String permission : permissions) {
+            int index = indexOf(permission);
+            if (index < 0) {
+                overflow.add(permission);
+                continue;
+            }
+            bits[index >>> 3] |= (byte) (1 << (index & 7));
+            length = Math.max(length, (index >>> 3) + 1);
+        }
+        return BASE64_URL_ENCODER.encodeToString(length == bits.length ? bits : Arrays.copyOf(bits, length));
+    }
+
+    /**
+     * 将位图解码为权限列表
+     *
+     * @param encoded 位图
+     * @param version 编码时的字典版本
+     * @return 权限列表
+     * @throws IllegalArgumentException 位图版本高于当前字典或编码错误
+     */
+    public List<String> decode(String encoded, int version) {
+        if (version > codes.length) {
+            throw new IllegalArgumentException("权限字典版本过低，令牌版本: " + version + "，当前版本: " + codes.length);
+        }
+
+        byte[] bits = BASE64_URL_DECODER.decode(encoded);
+        List<String> permissions = new ArrayList<>();
+        for (int i = 0; i < bits.length; i++) {
+            int value = bits[i] & 0xFF;
+            while (value != 0) {
+                int index = (i << 3) + Integer.numberOfTrailingZeros(value);
+                if (index >= version) {
+                    throw new IllegalArgumentException("权限位图超出字典版本范围: " + index);
+                }
+                permissions.add(codes[index]);
+                value &= value - 1;
+            }
+        }
+        return permissions;
+    }
+}
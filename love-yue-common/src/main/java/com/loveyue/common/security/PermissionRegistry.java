@@ -0,0 +1,174 @@
+package com.loveyue.common.security;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 权限注册表
+ * <p>
+ * 把权限编码驻留为从0开始的稠密整数下标，供{@link PermissionSet}按位存储。下标只追加不回收，
+ * 以{@link PermissionDictionary}初始化时前N个下标与字典一致，精简令牌中的权限位图可直接转换为权限集合。
+ * </p>
+ *
+ * <p>
+ * 查找下标不加锁也不分配对象；新编码的驻留在实例锁内执行，只在首次出现时发生。
+ * </p>
+ *
+ * @author loveyue
+ * @since 2025-08-23
+ */
+public class PermissionRegistry {
+
+    private static final Base64.Decoder BASE64_URL_DECODER = Base64.getUrlDecoder();
+
+    private final Map<String, Integer> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * 按下标排列的权限编码，驻留新编码时整体替换
+     */
+    private volatile String[] codes = new String[0];
+
+    /**
+     * 初始化时来自字典的编码数量，之后运行期驻留的编码不属于字典部分
+     */
+    private final int dictionarySize;
+
+    public PermissionRegistry() {
+        this.dictionarySize = 0;
+    }
+
+    public PermissionRegistry(PermissionDictionary dictionary) {
+        for (String code : dictionary.getCodes()) {
+            intern(code);
+        }
+        this.dictionarySize = codes.length;
+    }
+
+    /**
+     * 获取权限编码的下标
+     *
+     * @param code 权限编码
+     * @return 下标，未驻留时返回-1
+     */
+    public int indexOf(String code) {
+        Integer index = code == null ? null : indexes.get(code);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * 驻留权限编码
+     *
+     * @param code 权限编码
+     * @return 下标
+     */
+    public int intern(String code) {
+        Integer index = indexes.get(code);
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            index = indexes.get(code);
+            if (index != null) {
+                return index;
+            }
+            String[] current = codes;
+            String[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = code;
+            // 先发布编码数组再发布下标，读到下标就一定能读到编码
+            codes = next;
+            indexes.put(code, current.length);
+            return current.length;
+        }
+    }
+
+    /**
+     * 获取下标对应的权限编码
+     */
+    public String codeAt(int index) {
+        return codes[index];
+    }
+
+    /**
+     * 已驻留的权限数量
+     */
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * 编译权限集合，未驻留的编码先驻留
+     *
+     * @param permissions 权限编码
+     * @return 权限集合
+     */
+    public PermissionSet compile(Collection<String> permissions) {
+        long[] words = new long[0];
+        for (String permission : permissions) {
+            if (permission == null) {
+                continue;
+            }
+            int index = intern(permission);
+            if ((index >>> 6) >= words.length) {
+                words = Arrays.copyOf(words, (index >>> 6) + 1);
+            }
+            words[index >>> 6] |= 1L << index;
+        }
+        return wrap(words);
+    }
+
+    /**
+     * 编译权限集合，常用于预先编译hasAny/hasAll的参数
+     */
+    public PermissionSet compile(String... permissions) {
+        return compile(Arrays.asList(permissions));
+    }
+
+    /**
+     * 将{@link PermissionDictionary#encode(Collection, List)}生成的位图转换为权限集合，不经过权限编码字符串
+     *
+     * @param encoded  Base64URL位图
+     * @param version  编码时的字典版本
+     * @param overflow 字典外的权限，可为null
+     * @return 权限集合
+     * @throws IllegalArgumentException 位图版本高于注册表中的字典部分或编码错误
+     */
+    public PermissionSet fromDictionaryBits(String encoded, int version, Collection<String> overflow) {
+        // 只与字典部分比较：运行期驻留的编码下标与其他节点新版字典中的编码并不对应
+        if (version > dictionarySize) {
+            throw new IllegalArgumentException("权限注册表版本过低，令牌版本: " + version + "，当前版本: " + dictionarySize);
+        }
+        byte[] bytes = BASE64_URL_DECODER.decode(encoded);
+        long[] words = new long[(bytes.length + 7) >>> 3];
+        for (int i = 0; i < bytes.length; i++) {
+            words[i >>> 3] |= (bytes[i] & 0xFFL) << ((i & 7) << 3);
+        }
+        words = trim(words);
+        if (words.length > 0) {
+            int highest = (words.length << 6) - 1 - Long.numberOfLeadingZeros(words[words.length - 1]);
+            if (highest >= version) {
+                throw new IllegalArgumentException("权限位图超出字典版本范围: " + highest);
+            }
+        }
+        PermissionSet permissionSet = wrap(words);
+        return overflow == null || overflow.isEmpty() ? permissionSet : permissionSet.union(compile(overflow));
+    }
+
+    /**
+     * 包装位图，调用方之后不能再修改该数组
+     */
+    PermissionSet wrap(long[] words) {
+        return new PermissionSet(this, words);
+    }
+
+    private static long[] trim(long[] words) {
+        int length = words.length;
+        while (length > 0 && words[length - 1] == 0) {
+            length--;
+        }
+        return length == words.length ? words : Arrays.copyOf(words, length);
+    }
+}
@@ -0,0 +1,175 @@
+package com.loveyue.common.security;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 不可变的权限集合
+ * <p>
+ * 以{@link PermissionRegistry}分配的下标按位存储。单个权限判断为一次哈希查找加一次位测试；
+ * hasAny/hasAll的参数应预先通过{@link PermissionRegistry#compile(String...)}编译为权限集合，
+ * 判断只做按字（64位）的与运算，不分配对象。
+ * </p>
+ *
+ * @author loveyue
+ * @since 2025-08-23
+ */
+public final class PermissionSet {
+
+    private final PermissionRegistry registry;
+
+    private final long[] words;
+
+    PermissionSet(PermissionRegistry registry, long[] words) {
+        this.registry = registry;
+        this.words = words;
+    }
+
+    /**
+     * 是否拥有权限
+     *
+     * @param permission 权限编码
+     * @return 是否拥有，未驻留的权限返回false
+     */
+    public boolean hasPermission(String permission) {
+        return hasPermission(registry.indexOf(permission));
+    }
+
+    /**
+     * 是否拥有下标对应的权限
+     */
+    public boolean hasPermission(int index) {
+        if (index < 0) {
+            return false;
+        }
+        int word = index >>> 6;
+        return word < words.length && (words[word] & (1L << index)) != 0;
+    }
+
+    /**
+     * 是否拥有其中任意一个权限
+     *
+     * @param required 预先编译的权限集合
+     * @return 是否有交集
+     */
+    public boolean hasAny(PermissionSet required) {
+        long[] other = required.words;
+        for (int i = 0, length = Math.min(words.length, other.length); i < length; i++) {
+            if ((words[i] & other[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 是否拥有全部权限
+     *
+     * @param required 预先编译的权限集合
+     * @return 是否包含
+     */
+    public boolean hasAll(PermissionSet required) {
+        long[] other = required.words;
+        for (int i = 0; i < other.length; i++) {
+            long word = i < words.length ? words[i] : 0L;
+            if ((other[i] & ~word) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 并集
+     */
+    public PermissionSet union(PermissionSet other) {
+        if (other.words.length == 0) {
+            return this;
+        }
+        if (words.length == 0) {
+            return other;
+        }
+        long[] result = Arrays.copyOf(words, Math.max(words.length, other.words.length));
+        for (int i = 0; i < other.words.length; i++) {
+            result[i] |= other.words[i];
+        }
+        return registry.wrap(result);
+    }
+
+    /**
+     * 并入位图（如{@link RoleHierarchy#getPermissionBits(java.util.Collection)}的结果）
+     */
+    public PermissionSet union(long[] bits) {
+        return union(registry.wrap(bits));
+    }
+
+    /**
+     * 权限数量
+     */
+    public int size() {
+        int size = 0;
+        for (long word : words) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    /**
+     * 是否为空集合
+     */
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 转换为权限编码列表，按下标顺序
+     */
+    public List<String> toCodes() {
+        List<String> codes = new ArrayList<>(size());
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                codes.add(registry.codeAt((i << 6) + Long.numberOfTrailingZeros(word)));
+                word &= word - 1;
+            }
+        }
+        return codes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PermissionSet other)) {
+            return false;
+        }
+        int length = Math.max(words.length, other.words.length);
+        for (int i = 0; i < length; i++) {
+            if ((i < words.length ? words[i] : 0L) != (i < other.words.length ? other.words[i] : 0L)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int length = words.length;
+        while (length > 0 && words[length - 1] == 0) {
+            length--;
+        }
+        return Arrays.hashCode(Arrays.copyOf(words, length));
+    }
+
+    @Override
+    public String toString() {
+        return toCodes().toString();
+    }
+}
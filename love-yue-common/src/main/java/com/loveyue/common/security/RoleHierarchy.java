@@ -0,0 +1,562 @@
+package com.loveyue.common.security;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 编译后的角色层级
+ * <p>
+ * 每个角色分配一个稠密下标，祖先集合、后代集合（均含自身）、直接权限和有效权限都预先计算为位图（long数组）。
+ * 角色层级数字越小权限越高，父角色继承全部后代角色的权限：角色的有效权限为其后代集合中所有角色直接权限的并集。
+ * “角色X是否继承角色Y”为一次位测试，“角色集合S的全部权限”为|S|次按字（64位）或运算。
+ * </p>
+ *
+ * <p>
+ * 实例不可变，可在多线程间共享。{@link #withRole(Role)}、{@link #withoutRole(Long)}返回新实例：
+ * 只替换受影响角色（变更角色的子树及新旧祖先链）的位图，其余位图与旧实例共享。
+ * 删除的角色保留下标占位，{@link #compile(Collection)}全量编译时回收。
+ * 权限位图使用{@link PermissionRegistry}分配的下标，可直接转换为{@link PermissionSet}。
+ * </p>
+ *
+ * @author loveyue
+ * @since 2025-08-22
+ */
+public final class RoleHierarchy {
+
+    private static final long[] EMPTY = new long[0];
+
+    /**
+     * 编译输入：角色ID、父角色ID、名称和直接权限，无效角色应传入空权限
+     *
+     * @param id          角色ID
+     * @param parentId    父角色ID，根角色为null
+     * @param name        角色名称
+     * @param nameEn      角色英文名称
+     * @param permissions 直接权限编码
+     */
+    public record Role(Long id, Long parentId, String name, String nameEn, Collection<String> permissions) {
+    }
+
+    /**
+     * 按下标排列的角色，已删除的位置为null
+     */
+    private final Role[] roles;
+
+    private final int[] parents;
+
+    private final long[][] children;
+
+    private final long[][] ancestors;
+
+    private final long[][] descendants;
+
+    private final long[][] directPermissions;
+
+    private final long[][] effectivePermissions;
+
+    private final Map<Long, Integer> roleIndexes;
+
+    private final Map<String, Integer> nameIndexes;
+
+    private final PermissionRegistry registry;
+
+    private RoleHierarchy(Role[] roles, int[] parents, long[][] children, long[][] ancestors, long[][] descendants,
+                          long[][] directPermissions, long[][] effectivePermissions, Map<Long, Integer> roleIndexes,
+                          Map<String, Integer> nameIndexes, PermissionRegistry registry) {
+        this.roles = roles;
+        this.parents = parents;
+        this.children = children;
+        this.ancestors = ancestors;
+        this.descendants = descendants;
+        this.directPermissions = directPermissions;
+        this.effectivePermissions = effectivePermissions;
+        this.roleIndexes = roleIndexes;
+        this.nameIndexes = nameIndexes;
+        this.registry = registry;
+    }
+
+    /**
+     * 空的角色层级
+     *
+     * @param registry 权限注册表
+     */
+    public static RoleHierarchy empty(PermissionRegistry registry) {
+        return compile(List.of(), registry);
+    }
+
+    /**
+     * 全量编译角色层级
+     * <p>
+     * 父角色不存在或形成环时该角色按根角色处理。
+     * </p>
+     *
+     * @param input    全部角色
+     * @param registry 权限注册表
+     * @return 角色层级
+     */
+    public static RoleHierarchy compile(Collection<Role> input, PermissionRegistry registry) {
+        int size = input.size();
+        Role[] roles = input.toArray(new Role[0]);
+        Map<Long, Integer> roleIndexes = new HashMap<>(size * 2);
+        Map<String, Integer> nameIndexes = new HashMap<>(size * 4);
+        for (int i = 0; i < size; i++) {
+            if (roleIndexes.putIfAbsent(roles[i].id(), i) != null) {
+                throw new IllegalArgumentException("角色ID重复: " + roles[i].id());
+            }
+            putNames(nameIndexes, roles[i], i);
+        }
+
+        long[][] directPermissions = new long[size][];
+        for (int i = 0; i < size; i++) {
+            directPermissions[i] = permissionBits(roles[i].permissions(), registry);
+        }
+
+        int[] parents = new int[size];
+        for (int i = 0; i < size; i++) {
+            Integer parent = roles[i].parentId() == null ? null : roleIndexes.get(roles[i].parentId());
+            parents[i] = parent == null ? -1 : parent;
+        }
+        // 沿父链找环，环上的角色断开与父角色的连接
+        byte[] state = new byte[size];
+        for (int i = 0; i < size; i++) {
+            List<Integer> path = new ArrayList<>();
+            int current = i;
+            while (current >= 0 && state[current] == 0) {
+                state[current] = 1;
+                path.add(current);
+                current = parents[current];
+            }
+            if (current >= 0 && state[current] == 1) {
+                parents[current] = -1;
+            }
+            path.forEach(index -> state[index] = 2);
+        }
+
+        long[][] children = new long[size][];
+        long[][] ancestors = new long[size][];
+        long[][] descendants = new long[size][];
+        long[][] effectivePermissions = new long[size][];
+        int words = wordsFor(size);
+        for (int i = 0; i < size; i++) {
+            children[i] = EMPTY;
+            ancestors[i] = new long[words];
+            descendants[i] = new long[words];
+            effectivePermissions[i] = directPermissions[i].clone();
+        }
+        for (int i = 0; i < size; i++) {
+            if (parents[i] >= 0) {
+                children[parents[i]] = withBit(children[parents[i]], i);
+            }
+            for (int ancestor = i; ancestor >= 0; ancestor = parents[ancestor]) {
+                setBit(ancestors[i], ancestor);
+                setBit(descendants[ancestor], i);
+                if (ancestor != i) {
+                    effectivePermissions[ancestor] = or(effectivePermissions[ancestor], directPermissions[i]);
+                }
+            }
+        }
+
+        return new RoleHierarchy(roles, parents, children, ancestors, descendants, directPermissions,
+                effectivePermissions, roleIndexes, nameIndexes, registry);
+    }
+
+    /**
+     * 新增或修改一个角色
+     *
+     * @param role 角色
+     * @return 新的角色层级
+     */
+    public RoleHierarchy withRole(Role role) {
+        Mutation mutation = new Mutation(this);
+        Integer existing = roleIndexes.get(role.id());
+        int index = existing == null ? mutation.append() : existing;
+        if (existing != null) {
+            removeNames(mutation.nameIndexes, roles[index], index);
+        }
+        mutation.roles[index] = role;
+        putNames(mutation.nameIndexes, role, index);
+        mutation.roleIndexes.put(role.id(), index);
+        mutation.directPermissions[index] = mutation.permissionBits(role.permissions());
+
+        Integer parent = role.parentId() == null ? null : mutation.roleIndexes.get(role.parentId());
+        int parentIndex = parent == null || testBit(mutation.descendants[index], parent) ? -1 : parent;
+        if (mutation.parents[index] != parentIndex) {
+            mutation.reparent(index, parentIndex);
+        } else {
+            mutation.refreshEffectivePermissions(index);
+        }
+
+        mutation.attachOrphans();
+        return mutation.build();
+    }
+
+    /**
+     * 删除一个角色，其子角色变为根角色
+     *
+     * @param roleId 角色ID
+     * @return 新的角色层级，角色不存在时返回当前实例
+     */
+    public RoleHierarchy withoutRole(Long roleId) {
+        Integer index = roleIndexes.get(roleId);
+        if (index == null) {
+            return this;
+        }
+        Mutation mutation = new Mutation(this);
+        for (int child : bits(children[index])) {
+            mutation.reparent(child, -1);
+        }
+        mutation.reparent(index, -1);
+        removeNames(mutation.nameIndexes, roles[index], index);
+        mutation.roleIndexes.remove(roleId);
+        mutation.roles[index] = null;
+        mutation.directPermissions[index] = EMPTY;
+        mutation.effectivePermissions[index] = EMPTY;
+        mutation.attachOrphans();
+        return mutation.build();
+    }
+
+    /**
+     * 角色数量（不含已删除的占位）
+     */
+    public int size() {
+        return roleIndexes.size();
+    }
+
+    /**
+     * 角色是否存在
+     */
+    public boolean contains(Long roleId) {
+        return roleIndexes.containsKey(roleId);
+    }
+
+    /**
+     * 按角色名称或英文名称查找角色ID
+     *
+     * @param name 角色名称
+     * @return 角色ID，不存在时为null
+     */
+    public Long getRoleId(String name) {
+        Integer index = name == null ? null : nameIndexes.get(name);
+        return index == null ? null : roles[index].id();
+    }
+
+    /**
+     * 角色是否继承另一个角色（自身视为继承自身）
+     *
+     * @param roleId       角色ID
+     * @param juniorRoleId 被继承的角色ID
+     * @return 被继承的角色是否在角色的后代集合中
+     */
+    public boolean inherits(Long roleId, Long juniorRoleId) {
+        Integer index = roleIndexes.get(roleId);
+        Integer junior = roleIndexes.get(juniorRoleId);
+        return index != null && junior != null && testBit(descendants[index], junior);
+    }
+
+    /**
+     * 角色的全部祖先ID（含自身）
+     */
+    public Set<Long> getAncestorIds(Long roleId) {
+        Integer index = roleIndexes.get(roleId);
+        return index == null ? Set.of() : roleIds(ancestors[index]);
+    }
+
+    /**
+     * 角色集合继承的全部角色ID（含自身）
+     */
+    public Set<Long> getEffectiveRoleIds(Collection<Long> roleIds) {
+        long[] result = EMPTY;
+        for (Long roleId : roleIds) {
+            Integer index = roleIndexes.get(roleId);
+            if (index != null) {
+                result = or(result, descendants[index]);
+            }
+        }
+        return roleIds(result);
+    }
+
+    /**
+     * 角色集合的有效权限位图，下标由{@link PermissionRegistry}分配
+     *
+     * @param roleIds 角色ID
+     * @return 权限位图，调用方不可修改
+     */
+    public long[] getPermissionBits(Collection<Long> roleIds) {
+        long[] result = EMPTY;
+        int merged = 0;
+        for (Long roleId : roleIds) {
+            Integer index = roleIndexes.get(roleId);
+            if (index != null) {
+                result = merged++ == 0 ? effectivePermissions[index] : or(result, effectivePermissions[index]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 角色集合的有效权限集合
+     */
+    public PermissionSet getPermissionSet(Collection<Long> roleIds) {
+        return registry.wrap(getPermissionBits(roleIds));
+    }
+
+    /**
+     * 角色集合的全部权限编码
+     */
+    public List<String> getPermissions(Collection<Long> roleIds) {
+        return getPermissionSet(roleIds).toCodes();
+    }
+
+    /**
+     * 角色集合是否拥有权限（含继承）
+     */
+    public boolean hasPermission(Collection<Long> roleIds, String permission) {
+        int bit = registry.indexOf(permission);
+        if (bit < 0) {
+            return false;
+        }
+        for (Long roleId : roleIds) {
+            Integer index = roleIndexes.get(roleId);
+            if (index != null && testBit(effectivePermissions[index], bit)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<Long> roleIds(long[] bits) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (int index : bits(bits)) {
+            if (roles[index] != null) {
+                ids.add(roles[index].id());
+            }
+        }
+        return ids;
+    }
+
+    private static void putNames(Map<String, Integer> nameIndexes, Role role, int index) {
+        if (role.name() != null) {
+            nameIndexes.putIfAbsent(role.name(), index);
+        }
+        if (role.nameEn() != null) {
+            nameIndexes.putIfAbsent(role.nameEn(), index);
+        }
+    }
+
+    private static void removeNames(Map<String, Integer> nameIndexes, Role role, int index) {
+        if (role != null) {
+            nameIndexes.remove(role.name(), index);
+            nameIndexes.remove(role.nameEn(), index);
+        }
+    }
+
+    private static long[] permissionBits(Collection<String> permissions, PermissionRegistry registry) {
+        long[] bits = EMPTY;
+        if (permissions == null) {
+            return bits;
+        }
+        for (String permission : permissions) {
+            bits = withBit(bits, registry.intern(permission));
+        }
+        return bits;
+    }
+
+    private static int wordsFor(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    private static boolean testBit(long[] bits, int index) {
+        int word = index >>> 6;
+        return word < bits.length && (bits[word] & (1L << index)) != 0;
+    }
+
+    private static void setBit(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * 返回置位后的新数组，不修改原数组
+     */
+    private static long[] withBit(long[] bits, int index) {
+        long[] result = Arrays.copyOf(bits, Math.max(bits.length, wordsFor(index + 1)));
+        setBit(result, index);
+        return result;
+    }
+
+    private static long[] withoutBit(long[] bits, int index) {
+        if (!testBit(bits, index)) {
+            return bits;
+        }
+        long[] result = bits.clone();
+        result[index >>> 6] &= ~(1L << index);
+        return result;
+    }
+
+    private static long[] or(long[] left, long[] right) {
+        long[] result = Arrays.copyOf(left, Math.max(left.length, right.length));
+        for (int i = 0; i < right.length; i++) {
+            result[i] |= right[i];
+        }
+        return result;
+    }
+
+    private static long[] andNot(long[] left, long[] right) {
+        long[] result = left.clone();
+        for (int i = 0; i < Math.min(left.length, right.length); i++) {
+            result[i] &= ~right[i];
+        }
+        return result;
+    }
+
+    private static int[] bits(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        int[] indexes = new int[count];
+        int position = 0;
+        for (int i = 0; i < bits.length; i++) {
+            long word = bits[i];
+            while (word != 0) {
+                indexes[position++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * 增量修改的工作副本：复制外层数组和索引表，内层位图只替换不修改，未受影响的位图与原实例共享
+     */
+    private static final class Mutation {
+
+        private Role[] roles;
+
+        private int[] parents;
+
+        private long[][] children;
+
+        private long[][] ancestors;
+
+        private long[][] descendants;
+
+        private long[][] directPermissions;
+
+        private long[][] effectivePermissions;
+
+        private final Map<Long, Integer> roleIndexes;
+
+        private final Map<String, Integer> nameIndexes;
+
+        private final PermissionRegistry registry;
+
+        private Mutation(RoleHierarchy source) {
+            this.roles = source.roles.clone();
+            this.parents = source.parents.clone();
+            this.children = source.children.clone();
+            this.ancestors = source.ancestors.clone();
+            this.descendants = source.descendants.clone();
+            this.directPermissions = source.directPermissions.clone();
+            this.effectivePermissions = source.effectivePermissions.clone();
+            this.roleIndexes = new HashMap<>(source.roleIndexes);
+            this.nameIndexes = new HashMap<>(source.nameIndexes);
+            this.registry = source.registry;
+        }
+
+        /**
+         * 追加一个根角色位置
+         */
+        private int append() {
+            int index = roles.length;
+            roles = Arrays.copyOf(roles, index + 1);
+            parents = Arrays.copyOf(parents, index + 1);
+            children = Arrays.copyOf(children, index + 1);
+            ancestors = Arrays.copyOf(ancestors, index + 1);
+            descendants = Arrays.copyOf(descendants, index + 1);
+            directPermissions = Arrays.copyOf(directPermissions, index + 1);
+            effectivePermissions = Arrays.copyOf(effectivePermissions, index + 1);
+            parents[index] = -1;
+            children[index] = EMPTY;
+            ancestors[index] = withBit(EMPTY, index);
+            descendants[index] = withBit(EMPTY, index);
+            directPermissions[index] = EMPTY;
+            effectivePermissions[index] = EMPTY;
+            return index;
+        }
+
+        private long[] permissionBits(Collection<String> permissions) {
+            return RoleHierarchy.permissionBits(permissions, registry);
+        }
+
+        /**
+         * 把角色及其子树挂到新的父角色下：旧祖先链的后代集合去掉子树，新祖先链加上子树，
+         * 子树中每个角色的祖先集合替换旧祖先链为新祖先链，然后沿新旧祖先链重新汇总有效权限
+         */
+        private void reparent(int index, int parentIndex) {
+            int oldParent = parents[index];
+            long[] subtree = descendants[index];
+            long[] oldAncestors = oldParent < 0 ? EMPTY : ancestors[oldParent];
+            long[] newAncestors = parentIndex < 0 ? EMPTY : ancestors[parentIndex];
+
+            for (int ancestor : bits(oldAncestors)) {
+                descendants[ancestor] = andNot(descendants[ancestor], subtree);
+            }
+            for (int ancestor : bits(newAncestors)) {
+                descendants[ancestor] = or(descendants[ancestor], subtree);
+            }
+            for (int member : bits(subtree)) {
+                ancestors[member] = or(andNot(ancestors[member], oldAncestors), newAncestors);
+            }
+            if (oldParent >= 0) {
+                children[oldParent] = withoutBit(children[oldParent], index);
+            }
+            if (parentIndex >= 0) {
+                children[parentIndex] = withBit(children[parentIndex], index);
+            }
+            parents[index] = parentIndex;
+
+            refreshEffectivePermissions(index);
+            refreshEffectivePermissions(oldParent);
+        }
+
+        /**
+         * 父角色已存在但未挂上的角色（先于父角色加入，或曾因形成环而断开）重新挂到父角色下
+         */
+        private void attachOrphans() {
+            for (int i = 0; i < roles.length; i++) {
+                Role orphan = roles[i];
+                if (orphan == null || parents[i] >= 0 || orphan.parentId() == null) {
+                    continue;
+                }
+                Integer parent = roleIndexes.get(orphan.parentId());
+                if (parent != null && !testBit(descendants[i], parent)) {
+                    reparent(i, parent);
+                }
+            }
+        }
+
+        /**
+         * 从给定角色开始沿父链向上重新汇总有效权限：自身直接权限与子角色有效权限的并集
+         */
+        private void refreshEffectivePermissions(int index) {
+            for (int current = index; current >= 0; current = parents[current]) {
+                long[] permissions = directPermissions[current];
+                for (int child : bits(children[current])) {
+                    permissions = or(permissions, effectivePermissions[child]);
+                }
+                effectivePermissions[current] = permissions;
+            }
+        }
+
+        private RoleHierarchy build() {
+            return new RoleHierarchy(roles, parents, children, ancestors, descendants, directPermissions,
+                    effectivePermissions, roleIndexes, nameIndexes, registry);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.loveyue.common.security;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.loveyue.common.enums.TokenValidationStatus;
+import io.jsonwebtoken.Claims;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * @Description: 单个令牌的校验结果
+ * @Date 2025/8/4
+ * @Author LoveYue
+ */
+@Data
+@Schema(description = "令牌校验结果")
+public class TokenValidationResult implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 2316618760264921874L;
+
+    @Schema(description = "令牌在请求列表中的下标")
+    private int index;
+
+    @Schema(description = "是否有效")
+    private boolean valid;
+
+    @Schema(description = "校验状态")
+    private TokenValidationStatus status;
+
+    @Schema(description = "令牌ID（jti）")
+    private String tokenId;
+
+    @Schema(description = "用户ID")
+    private Long userId;
+
+    @Schema(description = "用户名")
+    private String username;
+
+    @Schema(description = "令牌类型")
+    private String tokenType;
+
+    @Schema(description = "会话ID")
+    private String sessionId;
+
+    @Schema(description = "签发时间")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private Date issuedAt;
+
+    @Schema(description = "过期时间")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private Date expiresAt;
+
+    /**
+     * 校验通过后的声明信息，仅供服务端内部使用，不参与序列化
+     */
+    @JsonIgnore
+    private transient Claims claims;
+
+    /**
+     * 构建校验失败的结果
+     */
+    public static TokenValidationResult failure(int index, TokenValidationStatus status) {
+        TokenValidationResult result = new TokenValidationResult();
+        result.setIndex(index);
+        result.setValid(false);
+        result.setStatus(status);
+        return result;
+    }
+
+    /**
+     * 将结果标记为失败，保留已解析出的令牌信息
+     */
+    public void reject(TokenValidationStatus status) {
+        this.valid = false;
+        this.status = status;
+    }
+}
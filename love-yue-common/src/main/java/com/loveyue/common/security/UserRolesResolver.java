@@ -0,0 +1,24 @@
+package com.loveyue.common.security;
+
+import java.util.List;
+
+/**
+ * 用户角色解析器
+ * <p>
+ * 精简令牌不携带角色时，由服务端通过该接口（通常基于缓存）解析用户角色。
+ * </p>
+ *
+ * @author loveyue
+ * @since 2025-08-06
+ */
+@FunctionalInterface
+public interface UserRolesResolver {
+
+    /**
+     * 解析用户角色
+     *
+     * @param userId 用户ID
+     * @return 角色列表，无法解析时返回null
+     */
+    List<String> resolveRoles(Long userId);
+}
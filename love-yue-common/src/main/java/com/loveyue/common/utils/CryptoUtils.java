@@ -4,6 +4,7 @@ import org.apache.commons.io.IOUtils;
 import org.springframework.util.DigestUtils;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
@@ -263,6 +264,21 @@ public class CryptoUtils {
         return digest(string, "SHA-256");
     }
 
+    /**
+     * 生成字符串（UTF-8）的 SHA-256 摘要原始字节。
+     *
+     * @param string 输入字符串
+     * @return 32字节摘要
+     */
+    public static byte[] sha256Bytes(String string) {
+        try {
+            return MessageDigest.getInstance("SHA-256")
+                    .digest(string == null ? new byte[0] : string.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * 生成字符串的 SHA-384 摘要。
      *
@@ -0,0 +1,257 @@
+package com.loveyue.common.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分层时间轮
+ * <p>
+ * 以tickMillis为最小刻度，共levels层，每层2^bits个槽；第L层每个槽覆盖2^(bits*L)个刻度。
+ * 定时项按到期刻度与当前刻度的差值放入能容纳它的最低一层，槽下标取到期刻度对应位段，
+ * 底层指针每转一圈时把上一层当前槽的定时项重新分配到下层（级联）。
+ * 添加、取消、重新调度均为O(1)；推进时只处理到期的槽，代价与定时项总数无关。
+ * 超出最高层范围的到期时间先放在最高层，到期时按真实时间重新分配。
+ * </p>
+ *
+ * <p>
+ * 所有方法在实例锁内执行，临界区只有链表指针操作；到期回调由调用方在{@link #advance(long)}返回后执行。
+ * </p>
+ *
+ * @param <K> 定时项键
+ * @param <V> 定时项值
+ * @author loveyue
+ * @since 2025-08-18
+ */
+public class HierarchicalTimingWheel<K, V> {
+
+    private final long tickMillis;
+
+    private final int bits;
+
+    private final int mask;
+
+    private final int levels;
+
+    /**
+     * 最高层可以容纳的最大刻度差
+     */
+    private final long maxTicks;
+
+    /**
+     * 每层每个槽的链表头（哨兵节点）
+     */
+    private final Node<K, V>[][] buckets;
+
+    private final Map<K, Node<K, V>> index = new HashMap<>();
+
+    /**
+     * 下一个待处理的刻度
+     */
+    private long currentTick;
+
+    /**
+     * @param tickMillis 刻度毫秒数
+     * @param bits       每层槽数的位数，槽数为2^bits
+     * @param levels     层数
+     * @param startMillis 起始时间
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HierarchicalTimingWheel(long tickMillis, int bits, int levels, long startMillis) {
+        if (tickMillis <= 0 || bits <= 0 || levels <= 0 || (long) bits * levels >= 62) {
+            throw new IllegalArgumentException("Invalid timing wheel parameters");
+        }
+        this.tickMillis = tickMillis;
+        this.bits = bits;
+        this.mask = (1 << bits) - 1;
+        this.levels = levels;
+        this.maxTicks = 1L << (bits * levels);
+        this.buckets = new Node[levels][1 << bits];
+        for (int level = 0; level < levels; level++) {
+            for (int slot = 0; slot <= mask; slot++) {
+                Node<K, V> head = new Node<>(null, null, 0);
+                head.prev = head;
+                head.next = head;
+                buckets[level][slot] = head;
+            }
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * 添加或重新调度定时项
+     *
+     * @param key            键
+     * @param value          值，到期时返回
+     * @param deadlineMillis 到期时间
+     */
+    public synchronized void schedule(K key, V value, long deadlineMillis) {
+        Node<K, V> node = index.get(key);
+        if (node == null) {
+            node = new Node<>(key, value, deadlineMillis);
+            index.put(key, node);
+        } else {
+            node.unlink();
+            node.value = value;
+            node.deadlineMillis = deadlineMillis;
+        }
+        place(node);
+    }
+
+    /**
+     * 取消定时项
+     *
+     * @param key 键
+     * @return 被取消的值，不存在时为null
+     */
+    public synchronized V cancel(K key) {
+        Node<K, V> node = index.remove(key);
+        if (node == null) {
+            return null;
+        }
+        node.unlink();
+        return node.value;
+    }
+
+    /**
+     * 推进到指定时间，返回期间到期的定时项（已从时间轮中移除）
+     *
+     * @param nowMillis 当前时间
+     * @return 到期的值
+     */
+    public synchronized List<V> advance(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        List<V> expired = new ArrayList<>();
+        while (currentTick <= nowTick) {
+            int slot = (int) (currentTick & mask);
+            if (slot == 0) {
+                cascade();
+            }
+
+            for (Node<K, V> node : detach(buckets[0][slot])) {
+                if (node.deadlineMillis > nowMillis) {
+                    // 超出最高层范围而被截断的定时项，按真实到期时间重新分配
+                    place(node);
+                } else {
+                    index.remove(node.key);
+                    expired.add(node.value);
+                }
+            }
+            currentTick++;
+        }
+        return expired;
+    }
+
+    /**
+     * 定时项数量
+     *
+     * @return 数量
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * 清空所有定时项
+     */
+    public synchronized void clear() {
+        for (Node<K, V> node : new ArrayList<>(index.values())) {
+            node.unlink();
+        }
+        index.clear();
+    }
+
+    /**
+     * 底层转满一圈时逐层级联，上一层槽下标不为0时停止
+     */
+    private void cascade() {
+        for (int level = 1; level < levels; level++) {
+            int slot = (int) ((currentTick >>> (bits * level)) & mask);
+            for (Node<K, V> node : detach(buckets[level][slot])) {
+                place(node);
+            }
+            if (slot != 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 摘下槽中的全部定时项
+     */
+    private List<Node<K, V>> detach(Node<K, V> head) {
+        List<Node<K, V>> nodes = new ArrayList<>();
+        for (Node<K, V> node = head.next; node != head; node = node.next) {
+            nodes.add(node);
+        }
+        head.prev = head;
+        head.next = head;
+        for (Node<K, V> node : nodes) {
+            node.prev = null;
+            node.next = null;
+        }
+        return nodes;
+    }
+
+    /**
+     * 按到期刻度放入对应层的槽，到期刻度向上取整，保证不会提前到期
+     */
+    private void place(Node<K, V> node) {
+        long deadlineTick = -Math.floorDiv(-node.deadlineMillis, tickMillis);
+        long ticks = deadlineTick - currentTick;
+        Node<K, V> head;
+        if (ticks < 0) {
+            head = buckets[0][(int) (currentTick & mask)];
+        } else {
+            if (ticks >= maxTicks) {
+                deadlineTick = currentTick + maxTicks - 1;
+                ticks = maxTicks - 1;
+            }
+            int level = 0;
+            while (ticks >= 1L << (bits * (level + 1))) {
+                level++;
+            }
+            head = buckets[level][(int) ((deadlineTick >>> (bits * level)) & mask)];
+        }
+        node.linkBefore(head);
+    }
+
+    /**
+     * 双向链表节点
+     */
+    private static final class Node<K, V> {
+
+        private final K key;
+
+        private V value;
+
+        private long deadlineMillis;
+
+        private Node<K, V> prev;
+
+        private Node<K, V> next;
+
+        private Node(K key, V value, long deadlineMillis) {
+            this.key = key;
+            this.value = value;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        private void linkBefore(Node<K, V> head) {
+            prev = head.prev;
+            next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        private void unlink() {
+            if (prev != null) {
+                prev.next = next;
+                next.prev = prev;
+                prev = null;
+                next = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.loveyue.common.utils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * IP地址段匹配器
+ * <p>
+ * 由一组CIDR（如10.0.0.0/8、::1/128）或单个IP构造，判断IP是否落在其中任一地址段内，支持IPv4和IPv6。
+ * 只解析IP字面量，不做DNS查询；无法解析的输入视为不匹配。实例不可变，可在多线程间共享。
+ * </p>
+ *
+ * @author loveyue
+ * @since 2025-08-27
+ */
+public final class IpRangeMatcher {
+
+    private final List<Range> ranges;
+
+    /**
+     * @param cidrs CIDR或单个IP，忽略空白项
+     * @throws IllegalArgumentException CIDR格式无效
+     */
+    public IpRangeMatcher(Collection<String> cidrs) {
+        List<Range> parsed = new ArrayList<>();
+        if (cidrs != null) {
+            for (String cidr : cidrs) {
+                if (cidr != null && !cidr.isBlank()) {
+                    parsed.add(Range.parse(cidr.trim()));
+                }
+            }
+        }
+        this.ranges = List.copyOf(parsed);
+    }
+
+    /**
+     * 是否没有配置任何地址段
+     */
+    public boolean isEmpty() {
+        return ranges.isEmpty();
+    }
+
+    /**
+     * IP是否落在任一地址段内
+     *
+     * @param ip IP字面量
+     * @return 是否匹配
+     */
+    public boolean matches(String ip) {
+        if (ranges.isEmpty() || ip == null || ip.isEmpty()) {
+            return false;
+        }
+        byte[] address = parseLiteral(ip.trim());
+        if (address == null) {
+            return false;
+        }
+        for (Range range : ranges) {
+            if (range.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解析IP字面量，非字面量返回null，避免InetAddress触发DNS查询
+     */
+    private static byte[] parseLiteral(String ip) {
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (!(Character.digit(c, 16) >= 0 || c == '.' || c == ':')) {
+                return null;
+            }
+        }
+        try {
+            return InetAddress.getByName(ip).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private record Range(byte[] network, int prefixLength) {
+
+        private static Range parse(String cidr) {
+            int slash = cidr.indexOf('/');
+            byte[] network = parseLiteral(slash < 0 ? cidr : cidr.substring(0, slash));
+            if (network == null) {
+                throw new IllegalArgumentException("Invalid CIDR: " + cidr);
+            }
+            int prefixLength;
+            try {
+                prefixLength = slash < 0 ? network.length * 8 : Integer.parseInt(cidr.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid CIDR: " + cidr);
+            }
+            if (prefixLength < 0 || prefixLength > network.length * 8) {
+                throw new IllegalArgumentException("Invalid CIDR: " + cidr);
+            }
+            return new Range(network, prefixLength);
+        }
+
+        private boolean contains(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            int fullBytes = prefixLength / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefixLength % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = (0xFF << (8 - remainingBits)) & 0xFF;
+            return (address[fullBytes] & mask) == (network[fullBytes] & mask);
+        }
+    }
+}
@@ -1,10 +1,20 @@
 package com.loveyue.common.utils;
 
+import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.loveyue.common.enums.TokenValidationStatus;
+import com.loveyue.common.security.HmacJwtEngine;
+import com.loveyue.common.security.PermissionDictionary;
+import com.loveyue.common.security.TokenValidationResult;
+import com.loveyue.common.security.UserRolesResolver;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -12,6 +22,7 @@ import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -63,6 +74,30 @@ public class JwtUtil {
     @Value("${jwt.audience:love-yue-client}")
     private String audience;
 
+    /**
+     * 是否以精简声明签发访问令牌
+     */
+    @Value("${jwt.compact-claims.enabled:false}")
+    private boolean compactClaimsEnabled;
+
+    /**
+     * 精简声明中是否携带角色，不携带时由UserRolesResolver在服务端解析
+     */
+    @Value("${jwt.compact-claims.embed-roles:true}")
+    private boolean compactEmbedRoles;
+
+    /**
+     * 权限字典，用于将权限编码为位图
+     */
+    @Autowired(required = false)
+    private PermissionDictionary permissionDictionary;
+
+    /**
+     * 用户角色解析器
+     */
+    @Autowired(required = false)
+    private UserRolesResolver userRolesResolver;
+
     // JWT声明常量
     public static final String CLAIM_USER_ID = "userId";
     public static final String CLAIM_USERNAME = "username";
@@ -74,17 +109,142 @@ public class JwtUtil {
     public static final String CLAIM_CLIENT_IP = "clientIp";
     public static final String CLAIM_SESSION_ID = "sessionId";
 
+    // 精简声明常量，仅用于访问令牌，以CLAIM_COMPACT_PERMISSION_VERSION作为精简令牌标识
+    public static final String CLAIM_COMPACT_USER_ID = "uid";
+    public static final String CLAIM_COMPACT_USERNAME = "un";
+    public static final String CLAIM_COMPACT_ROLES = "rl";
+    public static final String CLAIM_COMPACT_PERMISSION_VERSION = "pv";
+    public static final String CLAIM_COMPACT_PERMISSION_BITS = "pb";
+    public static final String CLAIM_COMPACT_PERMISSION_OVERFLOW = "px";
+    public static final String CLAIM_COMPACT_DEVICE_ID = "did";
+    public static final String CLAIM_COMPACT_CLIENT_IP = "cip";
+    public static final String CLAIM_COMPACT_SESSION_ID = "sid";
+
     // Token类型常量
     public static final String TOKEN_TYPE_ACCESS = "access";
     public static final String TOKEN_TYPE_REFRESH = "refresh";
     public static final String TOKEN_TYPE_TEMP = "temp";
 
     /**
-     * 获取签名密钥
+     * JWT解析器，线程安全，可在多个请求间复用
      */
-    private SecretKey getSigningKey() {
+    private JwtParser jwtParser;
+
+    /**
+     * HS256签名与验签引擎，线程内复用Mac实例和缓冲区
+     */
+    private HmacJwtEngine hmacJwtEngine;
+
+    /**
+     * 初始化签名密钥、解析器和HS256引擎，避免每次签发、解析令牌时重复派生
+     */
+    @PostConstruct
+    public void init() {
         byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+        SecretKey signingKey = Keys.hmacShaKeyFor(keyBytes);
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        this.hmacJwtEngine = new HmacJwtEngine(keyBytes, new ObjectMapper());
+    }
+
+    /**
+     * 获取JWT解析器
+     */
+    private JwtParser getJwtParser() {
+        if (jwtParser == null) {
+            init();
+        }
+        return jwtParser;
+    }
+
+    /**
+     * 获取HS256引擎
+     */
+    private HmacJwtEngine getHmacJwtEngine() {
+        if (hmacJwtEngine == null) {
+            init();
+        }
+        return hmacJwtEngine;
+    }
+
+    /**
+     * 校验签名并解析声明，HS256令牌走线程复用的快速路径，其他令牌交由jjwt处理
+     */
+    private Claims verifyAndParse(String token) {
+        HmacJwtEngine engine = getHmacJwtEngine();
+        Claims claims = engine.supports(token)
+                ? engine.verify(token)
+                : getJwtParser().parseClaimsJws(token).getBody();
+        return expandCompactClaims(claims);
+    }
+
+    /**
+     * 校验访问令牌签名和有效期并只读取用户ID，不还原精简声明，不查询用户缓存，适用于限流等热路径
+     *
+     * @param token 令牌
+     * @return 用户ID，令牌无效或不是访问令牌时返回null
+     */
+    public Long getAccessTokenUserId(String token) {
+        if (StrUtil.isBlank(token)) {
+            return null;
+        }
+        Claims claims;
+        try {
+            HmacJwtEngine engine = getHmacJwtEngine();
+            claims = engine.supports(token)
+                    ? engine.verify(token)
+                    : getJwtParser().parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        if (claims.containsKey(CLAIM_COMPACT_PERMISSION_VERSION)) {
+            // 精简声明只用于访问令牌
+            return toLong(claims.get(CLAIM_COMPACT_USER_ID));
+        }
+        return TOKEN_TYPE_ACCESS.equals(claims.get(CLAIM_TOKEN_TYPE)) ? toLong(claims.get(CLAIM_USER_ID)) : null;
+    }
+
+    /**
+     * 将精简声明还原为标准声明，保证调用方看到的声明与普通令牌一致
+     */
+    private Claims expandCompactClaims(Claims claims) {
+        Object version = claims.remove(CLAIM_COMPACT_PERMISSION_VERSION);
+        if (version == null) {
+            return claims;
+        }
+
+        List<String> permissions = new ArrayList<>();
+        Object bits = claims.remove(CLAIM_COMPACT_PERMISSION_BITS);
+        if (bits != null) {
+            if (permissionDictionary == null) {
+                throw new UnsupportedJwtException("未配置权限字典，无法解析精简令牌");
+            }
+            try {
+                permissions.addAll(permissionDictionary.decode((String) bits, ((Number) version).intValue()));
+            } catch (IllegalArgumentException e) {
+                throw new UnsupportedJwtException(e.getMessage(), e);
+            }
+        }
+        Object overflow = claims.remove(CLAIM_COMPACT_PERMISSION_OVERFLOW);
+        if (overflow instanceof List<?> list) {
+            list.forEach(permission -> permissions.add((String) permission));
+        }
+
+        claims.put(CLAIM_USER_ID, claims.remove(CLAIM_COMPACT_USER_ID));
+        claims.put(CLAIM_USERNAME, claims.remove(CLAIM_COMPACT_USERNAME));
+        claims.put(CLAIM_PERMISSIONS, permissions);
+        claims.put(CLAIM_TOKEN_TYPE, TOKEN_TYPE_ACCESS);
+        claims.put(CLAIM_DEVICE_ID, claims.remove(CLAIM_COMPACT_DEVICE_ID));
+        claims.put(CLAIM_CLIENT_IP, claims.remove(CLAIM_COMPACT_CLIENT_IP));
+        claims.put(CLAIM_SESSION_ID, claims.remove(CLAIM_COMPACT_SESSION_ID));
+
+        Object roles = claims.remove(CLAIM_COMPACT_ROLES);
+        if (roles == null && userRolesResolver != null) {
+            roles = userRolesResolver.resolveRoles(toLong(claims.get(CLAIM_USER_ID)));
+        }
+        claims.put(CLAIM_ROLES, roles);
+        return claims;
     }
 
     /**
@@ -99,6 +259,10 @@ public class JwtUtil {
             String clientIp,
             String sessionId
     ) {
+        if (compactClaimsEnabled) {
+            return generateCompactAccessToken(userId, username, roles, permissions, deviceId, clientIp, sessionId);
+        }
+
         Map<String, Object> claims = new HashMap<>();
         claims.put(CLAIM_USER_ID, userId);
         claims.put(CLAIM_USERNAME, username);
@@ -112,6 +276,54 @@ public class JwtUtil {
         return generateToken(claims, accessTokenExpireMinutes * 60);
     }
 
+    /**
+     * 生成精简声明的访问令牌：使用短声明名，权限编码为权限字典上的位图，空值不写入
+     */
+    private String generateCompactAccessToken(
+            Long userId,
+            String username,
+            List<String> roles,
+            List<String> permissions,
+            String deviceId,
+            String clientIp,
+            String sessionId
+    ) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_COMPACT_USER_ID, userId);
+        claims.put(CLAIM_COMPACT_USERNAME, username);
+
+        List<String> overflow = new ArrayList<>();
+        if (permissionDictionary == null) {
+            claims.put(CLAIM_COMPACT_PERMISSION_VERSION, 0);
+            if (permissions != null) {
+                overflow.addAll(permissions);
+            }
+        } else {
+            claims.put(CLAIM_COMPACT_PERMISSION_VERSION, permissionDictionary.getVersion());
+            if (permissions != null && !permissions.isEmpty()) {
+                claims.put(CLAIM_COMPACT_PERMISSION_BITS, permissionDictionary.encode(permissions, overflow));
+            }
+        }
+        if (!overflow.isEmpty()) {
+            claims.put(CLAIM_COMPACT_PERMISSION_OVERFLOW, overflow);
+        }
+
+        if (roles != null && (compactEmbedRoles || userRolesResolver == null)) {
+            claims.put(CLAIM_COMPACT_ROLES, roles);
+        }
+        putIfNotNull(claims, CLAIM_COMPACT_DEVICE_ID, deviceId);
+        putIfNotNull(claims, CLAIM_COMPACT_CLIENT_IP, clientIp);
+        putIfNotNull(claims, CLAIM_COMPACT_SESSION_ID, sessionId);
+
+        return generateToken(claims, accessTokenExpireMinutes * 60);
+    }
+
+    private static void putIfNotNull(Map<String, Object> claims, String name, Object value) {
+        if (value != null) {
+            claims.put(name, value);
+        }
+    }
+
     /**
      * 生成刷新令牌
      */
@@ -147,17 +359,15 @@ public class JwtUtil {
      * 生成JWT令牌
      */
     private String generateToken(Map<String, Object> claims, int expireSeconds) {
-        Date now = new Date();
-        Date expireTime = new Date(now.getTime() + expireSeconds * 1000L);
+        long nowSeconds = System.currentTimeMillis() / 1000;
+
+        claims.put(Claims.ID, IdUtil.fastSimpleUUID());
+        claims.put(Claims.ISSUER, issuer);
+        claims.put(Claims.AUDIENCE, audience);
+        claims.put(Claims.ISSUED_AT, nowSeconds);
+        claims.put(Claims.EXPIRATION, nowSeconds + expireSeconds);
 
-        return Jwts.builder()
-                .setClaims(claims)
-                .setIssuer(issuer)
-                .setAudience(audience)
-                .setIssuedAt(now)
-                .setExpiration(expireTime)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
-                .compact();
+        return getHmacJwtEngine().sign(claims);
     }
 
     /**
@@ -165,11 +375,7 @@ public class JwtUtil {
      */
     public Claims parseToken(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return verifyAndParse(token);
         } catch (ExpiredJwtException e) {
             log.warn("JWT token已过期: {}", e.getMessage());
             throw new RuntimeException("Token已过期", e);
@@ -179,7 +385,7 @@ public class JwtUtil {
         } catch (MalformedJwtException e) {
             log.error("JWT token格式错误: {}", e.getMessage());
             throw new RuntimeException("Token格式错误", e);
-        } catch (SecurityException e) {
+        } catch (SignatureException e) {
             log.error("JWT token签名验证失败: {}", e.getMessage());
             throw new RuntimeException("Token签名验证失败", e);
         } catch (IllegalArgumentException e) {
@@ -201,6 +407,70 @@ public class JwtUtil {
         }
     }
 
+    /**
+     * 校验令牌并返回校验结果，不抛出异常，失败原因仅记录debug日志。
+     * <p>
+     * 适用于网关、批量校验等高频场景，黑名单校验由调用方负责。
+     * </p>
+     *
+     * @param index 令牌在批量请求中的下标
+     * @param token 令牌
+     * @return 校验结果
+     */
+    public TokenValidationResult checkToken(int index, String token) {
+        if (StrUtil.isBlank(token)) {
+            return TokenValidationResult.failure(index, TokenValidationStatus.EMPTY);
+        }
+
+        Claims claims;
+        try {
+            claims = verifyAndParse(token);
+        } catch (ExpiredJwtException e) {
+            log.debug("JWT token已过期: {}", e.getMessage());
+            return TokenValidationResult.failure(index, TokenValidationStatus.EXPIRED);
+        } catch (UnsupportedJwtException e) {
+            log.debug("不支持的JWT token: {}", e.getMessage());
+            return TokenValidationResult.failure(index, TokenValidationStatus.UNSUPPORTED);
+        } catch (SignatureException e) {
+            log.debug("JWT token签名验证失败: {}", e.getMessage());
+            return TokenValidationResult.failure(index, TokenValidationStatus.INVALID_SIGNATURE);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("JWT token格式错误: {}", e.getMessage());
+            return TokenValidationResult.failure(index, TokenValidationStatus.MALFORMED);
+        }
+
+        return toValidationResult(index, claims);
+    }
+
+    /**
+     * 将已通过签名校验的声明转换为校验结果
+     */
+    private TokenValidationResult toValidationResult(int index, Claims claims) {
+        TokenValidationResult result = new TokenValidationResult();
+        result.setIndex(index);
+        result.setValid(true);
+        result.setStatus(TokenValidationStatus.VALID);
+        result.setTokenId(claims.getId());
+        result.setUserId(toLong(claims.get(CLAIM_USER_ID)));
+        result.setUsername((String) claims.get(CLAIM_USERNAME));
+        result.setTokenType((String) claims.get(CLAIM_TOKEN_TYPE));
+        result.setSessionId((String) claims.get(CLAIM_SESSION_ID));
+        result.setIssuedAt(claims.getIssuedAt());
+        result.setExpiresAt(claims.getExpiration());
+        result.setClaims(claims);
+        return result;
+    }
+
+    /**
+     * 将声明中的数值转换为Long
+     */
+    private static Long toLong(Object value) {
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        return null;
+    }
+
     /**
      * 检查令牌是否过期
      */
@@ -221,6 +491,14 @@ public class JwtUtil {
         return (Long) userId;
     }
 
+    /**
+     * 从令牌中获取令牌ID（jti）
+     */
+    public String getTokenIdFromToken(String token) {
+        Claims claims = parseToken(token);
+        return claims.getId();
+    }
+
     /**
      * 从令牌中获取用户名
      */
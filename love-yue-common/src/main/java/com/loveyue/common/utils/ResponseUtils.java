@@ -38,6 +38,65 @@ public class ResponseUtils {
         return requestId;
     }
 
+    /**
+     * 获取客户端IP地址。
+     * <p>
+     * 该方法优先从"X-Forwarded-For"请求头中获取客户端IP地址，如果不存在或为空，则尝试从"X-Real-Ip"请求头中获取。
+     * 若上述两个请求头均未能提供有效的客户端IP地址，则使用HttpServletRequest的getRemoteHost()方法返回的值。
+     *
+     * @param request 包含客户端请求信息的HttpServletRequest对象
+     * @return 客户端的IP地址字符串
+     */
+    public static String getClientIpAddress(HttpServletRequest request) {
+        String xForwardedFor = request.getHeader("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isEmpty() && !"unknown".equals(xForwardedFor)) {
+            return xForwardedFor.split(",")[0].trim();
+        }
+
+        String xRealIp = request.getHeader("X-Real-Ip");
+        if (xRealIp != null && !xRealIp.isEmpty() && !"unknown".equals(xRealIp)) {
+            return xRealIp;
+        }
+
+        return request.getRemoteHost();
+    }
+
+    /**
+     * 获取客户端IP地址，只信任来自可信代理的转发头。
+     * <p>
+     * 直连地址（getRemoteAddr）不是可信代理时直接返回直连地址，忽略客户端自行设置的"X-Forwarded-For"、"X-Real-Ip"。
+     * 直连地址是可信代理时，从右向左跳过"X-Forwarded-For"中的可信代理，返回第一个不可信的地址；
+     * 没有"X-Forwarded-For"时使用"X-Real-Ip"，仍没有时返回直连地址。
+     *
+     * @param request        包含客户端请求信息的HttpServletRequest对象
+     * @param trustedProxies 可信代理地址段
+     * @return 客户端的IP地址字符串
+     */
+    public static String getClientIpAddress(HttpServletRequest request, IpRangeMatcher trustedProxies) {
+        String remoteAddr = request.getRemoteAddr();
+        if (!trustedProxies.matches(remoteAddr)) {
+            return remoteAddr;
+        }
+
+        String xForwardedFor = request.getHeader("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
+            String[] hops = xForwardedFor.split(",");
+            for (int i = hops.length - 1; i >= 0; i--) {
+                String hop = hops[i].trim();
+                if (!hop.isEmpty() && !"unknown".equals(hop) && !trustedProxies.matches(hop)) {
+                    return hop;
+                }
+            }
+        }
+
+        String xRealIp = request.getHeader("X-Real-Ip");
+        if (xRealIp != null && !xRealIp.isEmpty() && !"unknown".equals(xRealIp)) {
+            return xRealIp.trim();
+        }
+
+        return remoteAddr;
+    }
+
     /**
      * 创建一个表示成功的响应对象。
      *
@@ -487,6 +487,33 @@ public class StringUtils {
         return matched;
     }
 
+    /**
+     * 解析编码列表，支持 JSON 字符串数组和逗号分隔两种格式，去除空白项和重复项。
+     *
+     * @param value 输入值，如 ["user:read","user:write"] 或 user:read,user:write
+     * @return 编码列表，解析失败时为空列表
+     */
+    public static List<String> splitCodes(String value) {
+
+        if (isBlank(value)) {
+            return new ArrayList<>();
+        }
+
+        String trimmed = value.trim();
+        List<String> codes = trimmed.startsWith("[")
+                ? fromJSON(trimmed, new TypeReference<List<String>>() {
+        }, new ArrayList<>())
+                : Arrays.asList(trimmed.split(","));
+
+        Set<String> result = new LinkedHashSet<>();
+        for (String code : codes) {
+            if (code != null && !code.isBlank()) {
+                result.add(code.trim());
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
     /**
      * 将对象转为 URL Encoded 字符串。
      *